@@ -1,15 +1,28 @@
 package application;
-import java.text.DecimalFormat;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 
 /**
- * This class represents a generic Account
+ * This class represents a generic Account<br>
+ * The balance is stored as a whole number of cents and is updated atomically,
+ * so deposits and withdrawals on the same account from many threads never lose an update<br>
+ * Subclasses that keep their state somewhere else override the cents methods, getProfile and getOpenDate
  * @author Steven Nguyen, Julian Romero
  */
 public abstract class Account {
     private Profile holder;
-    private double balance;
+    private volatile long balance;
     private Date dateOpen;
 
+    private static final VarHandle BALANCE;
+    static {
+        try {
+            BALANCE = MethodHandles.lookup().findVarHandle(Account.class, "balance", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
     /**
      * Constructs an account
      * @param _fname	the first name of the profile
@@ -21,31 +34,93 @@ public abstract class Account {
      */
     public Account(String _fname, String _lname, double _balance, int _month, int _day, int _year) {
         this.holder = new Profile(_fname, _lname);
-        this.balance = _balance;
+        this.balance = Money.toCents(_balance);
         this.dateOpen = new Date(_month, _day, _year);
     }
 
+    /**
+     * Constructs an account from an existing profile and open date
+     * @param _holder		the profile
+     * @param _balance		the initial balance in cents
+     * @param _dateOpen		the open date
+     */
+    Account(Profile _holder, long _balance, Date _dateOpen) {
+        this.holder = _holder;
+        this.balance = _balance;
+        this.dateOpen = _dateOpen;
+    }
+
     /**
      * Remove money from this account
-     * @param amount	the amount of money to remove
+     * @param amount	the amount of money to remove, rounded to the nearest cent
      */
     public void debit(double amount) {
-        balance -= amount;
+        this.debitCents(Money.toCents(amount));
     }
 
     /**
      * Add money to this account
-     * @param amount	the amount of money to add
+     * @param amount	the amount of money to add, rounded to the nearest cent
      */
     public void credit(double amount) {
-        balance += amount;
+        this.creditCents(Money.toCents(amount));
+    }
+
+    /**
+     * Remove money from this account if it has enough money
+     * @param amount	the amount of money to remove, rounded to the nearest cent
+     * @return			true if the money was removed, false if the balance is too low
+     */
+    public boolean tryDebit(double amount) {
+        return this.tryDebitCents(Money.toCents(amount));
+    }
+
+    /**
+     * Remove money from this account
+     * @param cents	the amount of money to remove in cents
+     */
+    public void debitCents(long cents) {
+        BALANCE.getAndAdd(this, -cents);
+    }
+
+    /**
+     * Add money to this account
+     * @param cents	the amount of money to add in cents
+     */
+    public void creditCents(long cents) {
+        BALANCE.getAndAdd(this, cents);
+    }
+
+    /**
+     * Remove money from this account if it has enough money<br>
+     * The balance check and the update are one atomic step, so concurrent withdrawals can never overdraw the account
+     * @param cents	the amount of money to remove in cents
+     * @return		true if the money was removed, false if the balance is too low
+     */
+    public boolean tryDebitCents(long cents) {
+        long current;
+        do {
+            current = this.balance;
+            if (current - cents < 0) {
+                return false;
+            }
+        } while (!BALANCE.weakCompareAndSet(this, current, current - cents));
+        return true;
     }
 
     /**
      * Gets the balance
-     * @return	the balance
+     * @return	the balance in dollars
      */
     public double getBalance() {
+        return Money.toDollars(this.getBalanceCents());
+    }
+
+    /**
+     * Gets the balance
+     * @return	the balance in cents
+     */
+    public long getBalanceCents() {
         return this.balance;
     }
 
@@ -73,11 +148,20 @@ public abstract class Account {
      */
     @Override
     public String toString() {
-        String priceFormat = "$#.#";
-        DecimalFormat formattedPrice = new DecimalFormat(priceFormat);
-        formattedPrice.setMinimumFractionDigits(2);
+        return this.appendTo(new StringBuilder(64)).toString();
+    }
 
-        return String.format("*%s* %s*%s", this.holder, formattedPrice.format(this.balance), this.dateOpen);
+    /**
+     * Appends the string representation of this account<br>
+     * Format: "*[Profile Name]* $[Balance]*[Open Date]*"
+     * @param out	where to append the text
+     * @return		out
+     */
+    StringBuilder appendTo(StringBuilder out) {
+        out.append('*');
+        this.getProfile().appendTo(out).append("* ");
+        AccountFormat.appendMoney(out, this.getBalanceCents(), AccountFormat.DOLLARS).append('*');
+        return this.getOpenDate().appendTo(out);
     }
 
     /**
@@ -87,12 +171,19 @@ public abstract class Account {
      */
 
     public String toStringExport() {
-        String priceFormat = "#.#";
-        DecimalFormat formattedPrice = new DecimalFormat(priceFormat);
-        formattedPrice.setMinimumFractionDigits(2);
+        return this.appendExportTo(new StringBuilder(64)).toString();
+    }
 
-        return String.format(",%s,%s,%s,%s",this.holder.getFName(),  this.holder.getLName(),
-                formattedPrice.format(this.balance), this.dateOpen);
+    /**
+     * Appends the string representation of this account for export<br>
+     * Format: ",first name,last name,Balance,Open Date"
+     * @param out	where to append the text
+     * @return		out
+     */
+    StringBuilder appendExportTo(StringBuilder out) {
+        out.append(',').append(this.getProfile().getFName()).append(',').append(this.getProfile().getLName()).append(',');
+        AccountFormat.appendMoney(out, this.getBalanceCents(), AccountFormat.NO_SYMBOL).append(',');
+        return this.getOpenDate().appendTo(out);
     }
 
     /**
@@ -110,15 +201,55 @@ public abstract class Account {
         }
     }
 
+    /**
+     * Gets the hash code of this account, consistent with equals
+     * @return	the hash code of the profile
+     */
+    @Override
+    public int hashCode() {
+        return this.getProfile().hashCode();
+    }
+
+    /**
+     * Copies this account, including its current balance
+     * @return	a new account of the same type that is not tied to any database
+     */
+    abstract Account copy();
+
+    /**
+     * Calculates the monthly interest
+     * @return	the monthly interest in dollars
+     */
+    public double monthlyInterest() {
+        return Money.toDollars(this.monthlyInterestCents());
+    }
+
+    /**
+     * Calculates the monthly fee
+     * @return	the monthly fee in dollars
+     */
+    public double monthlyFee() {
+        return Money.toDollars(this.monthlyFeeCents());
+    }
+
     /**
      * Calculates the monthly interest
-     * @return	the monthly interest
+     * @return	the monthly interest in cents, rounded to the nearest cent
+     */
+    public abstract long monthlyInterestCents();
+
+    /**
+     * Calculates the balance after a number of month ends, without changing this account<br>
+     * Each month pays interest and charges the fee on the balance at the start of the month,
+     * the same as AccountDatabase.applyMonthEnd
+     * @param months	the number of months to project, at least 0
+     * @return			the projected balance in cents
      */
-    public abstract double monthlyInterest();
+    public abstract long projectBalanceCents(int months);
 
     /**
      * Calculates the monthly fee
-     * @return	the monthly fee
+     * @return	the monthly fee in cents
      */
-    public abstract double monthlyFee();
+    public abstract long monthlyFeeCents();
 }
@@ -1,89 +1,400 @@
 package application;
-import java.text.DecimalFormat;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntToLongFunction;
 
 /**
  * This class handles storing and handling accounts
  * @author Steven Nguyen, Julian Romero
  */
-public class AccountDatabase {
-    private Account[] accounts;
+public class AccountDatabase implements AccountStore {
+    private Account[][] segments;
+    private int capacity;
+    private int slotCount;
     private int size;
-
-    private static final int GROW_SIZE = 5;
+    private LinkedHashMap<Account, Integer> index;
+    private TreeSet<Account> byLastName;
+    private TreeSet<Account> byDateOpen;
+    private int[] freeSlots;
+    private int freeCount;
+    private volatile int version;
+    private int structureVersion;
+    private Account[] pageCache;
+    private Comparator<? super Account> pageCacheOrder;
+    private int pageCacheVersion;
+    private int pageCacheEnd;
+    private TransactionJournal journal;
+
+    private static final int SEGMENT_BITS = 10;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+    private static final int INITIAL_SEGMENTS = 4;
+    private static final int INITIAL_FREE_SLOTS = 16;
+    private static final double COMPACTION_THRESHOLD = .25;
+    private static final int COMPACTION_STEP = 32;
+    private static final int MONTH_END_CUTOFF = 256;
+    private static final int CHUNK_SIZE = 8192;
+    private static final int REBUILD_DIVISOR = 8;
+
+    private static final VarHandle VERSION;
+    static {
+        try {
+            VERSION = MethodHandles.lookup().findVarHandle(AccountDatabase.class, "version", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
 
     /**
      * Constructs a default account database with 0 accounts
      */
     public AccountDatabase() {
+        this(0);
+    }
+
+    /**
+     * Constructs an account database with 0 accounts and room for an expected number of accounts
+     * @param expectedSize	the number of accounts expected to be loaded, used to preallocate storage
+     */
+    public AccountDatabase(int expectedSize) {
+        int segmentCount = (Math.max(expectedSize, 1) + SEGMENT_MASK) >>> SEGMENT_BITS;
         this.size = 0;
-        this.accounts = new Account[5];
+        this.slotCount = 0;
+        this.capacity = 0;
+        this.freeSlots = new int[INITIAL_FREE_SLOTS];
+        this.freeCount = 0;
+        this.segments = new Account[Math.max(segmentCount, INITIAL_SEGMENTS)][];
+        this.index = new LinkedHashMap<Account, Integer>(Math.max(16, (int) (expectedSize / 0.75f) + 1));
+        this.byLastName = new TreeSet<Account>(AccountSorter.BY_NAME_THEN_TYPE);
+        this.byDateOpen = new TreeSet<Account>(AccountSorter.BY_DATE_THEN_NAME);
+        while (this.capacity < expectedSize) {
+            this.grow();
+        }
     }
+
     public int getsize() {
         return this.size;
     }
 
     /**
-     * Searches for an account with a given First and Last name
-     * @param account	an account with the same first and last name as the account to find
+     * Searches for an account with a given account type and First and Last name
+     * @param account	an account with the same type and first and last name as the account to find
      * @return			the index of the found account or -1
      */
     private int find(Account account) {
-        for (int i = 0; i < this.size; i++) {
-            if (accounts[i].equals(account)) {
-                return i;
+        Integer accountIndex = this.index.get(account);
+        if (accountIndex == null) {
+            return -1;
+        }
+        return accountIndex;
+    }
+
+    /**
+     * Gets the account stored at an index
+     * @param accountIndex	the index of the account
+     * @return				the account at the index
+     */
+    private Account get(int accountIndex) {
+        return this.segments[accountIndex >>> SEGMENT_BITS][accountIndex & SEGMENT_MASK];
+    }
+
+    /**
+     * Stores an account at an index
+     * @param accountIndex	the index to store the account at
+     * @param account		the account to store
+     */
+    private void set(int accountIndex, Account account) {
+        this.segments[accountIndex >>> SEGMENT_BITS][accountIndex & SEGMENT_MASK] = account;
+    }
+
+    /**
+     * Raises the pseudo arraylist's size by one segment<br>
+     * Existing segments are never copied, only the small segment table doubles when it is full
+     */
+    private void grow() {
+        int segmentCount = this.capacity >>> SEGMENT_BITS;
+        if (segmentCount == this.segments.length) {
+            Account[][] expandedSegments = new Account[segmentCount * 2][];
+            System.arraycopy(this.segments, 0, expandedSegments, 0, segmentCount);
+            this.segments = expandedSegments;
+        }
+        this.segments[segmentCount] = new Account[SEGMENT_SIZE];
+        this.capacity += SEGMENT_SIZE;
+    }
+
+    /**
+     * Takes an empty slot from the free list<br>
+     * Entries made stale by compaction are skipped
+     * @return	the index of an empty slot, or -1 if the free list has none
+     */
+    private int takeFreeSlot() {
+        while (this.freeCount > 0) {
+            int slot = this.freeSlots[--this.freeCount];
+            if (slot < this.slotCount && get(slot) == null) {
+                return slot;
             }
         }
         return -1;
     }
 
     /**
-     * Raises the pseudo arraylist's size
+     * Adds an emptied slot to the free list
+     * @param slot	the index of the emptied slot
      */
-    private void grow() {
-        Account[] expandedAccounts = new Account[this.accounts.length + GROW_SIZE];
-        System.arraycopy(this.accounts, 0, expandedAccounts, 0, this.accounts.length);
-        this.accounts = expandedAccounts;
+    private void releaseSlot(int slot) {
+        if (this.freeCount == this.freeSlots.length) {
+            int[] expandedFreeSlots = new int[this.freeCount * 2];
+            System.arraycopy(this.freeSlots, 0, expandedFreeSlots, 0, this.freeCount);
+            this.freeSlots = expandedFreeSlots;
+        }
+        this.freeSlots[this.freeCount++] = slot;
+    }
+
+    /**
+     * Gets if enough slots are empty that the storage should be compacted
+     * @return	true if the fraction of empty slots is over the compaction threshold
+     */
+    private boolean isFragmented() {
+        return this.slotCount - this.size > this.slotCount * COMPACTION_THRESHOLD;
+    }
+
+    /**
+     * Compacts the storage by a bounded number of steps<br>
+     * Each step either drops an empty slot at the end or moves the last account into an empty slot,
+     * so compaction happens a little at a time alongside later adds and removes
+     * @param steps	the maximum number of slots to process
+     */
+    private void compact(int steps) {
+        while (steps > 0 && this.slotCount > this.size) {
+            int lastSlot = this.slotCount - 1;
+            Account account = get(lastSlot);
+            if (account != null) {
+                int slot = this.takeFreeSlot();
+                if (slot == -1) {
+                    break;
+                }
+                set(slot, account);
+                set(lastSlot, null);
+                this.index.put(account, slot);
+            }
+            this.slotCount--;
+            steps--;
+        }
+
+        if (this.slotCount == this.size) {
+            this.freeCount = 0;
+        }
     }
 
     /**
-     * Adds an account to the database
+     * Adds an account to the database<br>
+     * Reuses a slot left by a removed account if there is one
      * @param account	the account to add to the database
      * @return			true if successfully added, false otherwise
      */
     public boolean add(Account account) {
+        this.checkJournal();
         if (this.find(account) != -1) {
             return false;
         }
 
-        if ((size + 1) % GROW_SIZE == 0) {
-            this.grow();
+        int slot = this.takeFreeSlot();
+        if (slot == -1) {
+            if (slotCount == capacity) {
+                this.grow();
+            }
+            slot = slotCount;
+            slotCount++;
         }
 
-        this.accounts[size] = account;
+        set(slot, account);
+        this.index.put(account, slot);
+        this.byLastName.add(account);
+        this.byDateOpen.add(account);
         size++;
+        this.incrementVersion();
+        this.structureVersion++;
+
+        if (this.isFragmented()) {
+            this.compact(COMPACTION_STEP);
+        }
+        if (this.journal != null) {
+            this.journal.logOpen(account);
+        }
         return true;
     }
 
     /**
-     * Removes an account from the database
+     * Removes an account from the database<br>
+     * The account's slot is emptied and added to the free list instead of shifting later accounts
      * @param account	an account with the same first and last name as the account to remove
      * @return			true if the account was successfully removed, false otherwise
      */
     public boolean remove(Account account) {
+        this.checkJournal();
         int accountIndex = this.find(account);
         if (accountIndex == -1) {
             return false;
         }
 
-        for (int i = accountIndex; i < size; i++) {
-            accounts[i] = accounts[i + 1];
-        }
-
+        account = get(accountIndex);
+        this.index.remove(account);
+        this.byLastName.remove(account);
+        this.byDateOpen.remove(account);
+        set(accountIndex, null);
+        this.releaseSlot(accountIndex);
         size--;
-        accounts[size] = null;
+        this.incrementVersion();
+        this.structureVersion++;
+
+        if (this.isFragmented()) {
+            this.compact(COMPACTION_STEP);
+        }
+        if (this.journal != null) {
+            this.journal.logClose(account);
+        }
         return true;
     }
 
+    /**
+     * Adds many accounts to the database at once<br>
+     * Storage is sized once for the whole batch, and each account is checked against the database and the rest of
+     * the batch with one hash lookup. A large batch is sorted and merged into the sorted indexes, which are then
+     * rebuilt in one pass, while a small batch is inserted into them one account at a time
+     * @param accounts	the accounts to add, in the order they should be added
+     * @return			the number of accounts added and the accounts rejected as duplicates
+     */
+    public BulkAddResult addAll(Collection<? extends Account> accounts) {
+        return this.addAll(accounts.toArray(new Account[0]));
+    }
+
+    /**
+     * Adds many accounts to the database at once
+     * @param accounts	the accounts to add, in the order they should be added
+     * @return			the number of accounts added and the accounts rejected as duplicates
+     */
+    public BulkAddResult addAll(Iterator<? extends Account> accounts) {
+        ArrayList<Account> batch = new ArrayList<Account>();
+        while (accounts.hasNext()) {
+            batch.add(accounts.next());
+        }
+        return this.addAll(batch.toArray(new Account[0]));
+    }
+
+    /**
+     * Adds a batch of accounts
+     * @param batch	the accounts to add, in the order they should be added
+     * @return		the number of accounts added and the accounts rejected as duplicates
+     */
+    private BulkAddResult addAll(Account[] batch) {
+        this.checkJournal();
+        while (this.capacity < this.slotCount + batch.length - this.freeCount) {
+            this.grow();
+        }
+
+        // The index doubles as the set of accounts seen, so duplicates within the batch are caught too
+        Account[] accepted = new Account[batch.length];
+        Account[] rejected = new Account[batch.length];
+        int acceptedCount = 0;
+        int rejectedCount = 0;
+        for (Account account : batch) {
+            int slot = this.takeFreeSlot();
+            if (slot == -1) {
+                // Only happens if stale free list entries made the batch need more room than planned
+                if (this.slotCount == this.capacity) {
+                    this.grow();
+                }
+                slot = this.slotCount;
+            }
+            if (this.index.putIfAbsent(account, slot) != null) {
+                if (slot != this.slotCount) {
+                    this.releaseSlot(slot);
+                }
+                rejected[rejectedCount++] = account;
+                continue;
+            }
+            if (slot == this.slotCount) {
+                this.slotCount++;
+            }
+            set(slot, account);
+            accepted[acceptedCount++] = account;
+        }
+        if (acceptedCount == 0) {
+            return new BulkAddResult(0, Arrays.copyOf(rejected, rejectedCount));
+        }
+
+        this.size += acceptedCount;
+        if ((long) acceptedCount * REBUILD_DIVISOR < this.size) {
+            for (int i = 0; i < acceptedCount; i++) {
+                this.byLastName.add(accepted[i]);
+                this.byDateOpen.add(accepted[i]);
+            }
+        } else {
+            rebuild(this.byLastName, accepted, acceptedCount, AccountSorter.BY_NAME_THEN_TYPE);
+            rebuild(this.byDateOpen, accepted, acceptedCount, AccountSorter.BY_DATE_THEN_NAME);
+        }
+        this.incrementVersion();
+        this.structureVersion++;
+
+        if (this.journal != null) {
+            this.journal.logOpenAll(accepted, acceptedCount);
+        }
+        return new BulkAddResult(acceptedCount, Arrays.copyOf(rejected, rejectedCount));
+    }
+
+    /**
+     * Rebuilds a sorted index with new accounts merged in<br>
+     * The new accounts are sorted, merged with the index in one pass, and the index is refilled from the merged run
+     * @param sortedIndex	the index
+     * @param added			the new accounts, none of which are in the index
+     * @param addedCount	the number of new accounts
+     * @param order			the order of the index
+     */
+    private static void rebuild(TreeSet<Account> sortedIndex, Account[] added, int addedCount,
+            Comparator<Account> order) {
+        Account[] sortedAdded = Arrays.copyOf(added, addedCount);
+        Arrays.parallelSort(sortedAdded, order);
+
+        Account[] merged = new Account[sortedIndex.size() + addedCount];
+        int mergedCount = 0;
+        int next = 0;
+        for (Account account : sortedIndex) {
+            while (next < addedCount && order.compare(sortedAdded[next], account) < 0) {
+                merged[mergedCount++] = sortedAdded[next++];
+            }
+            merged[mergedCount++] = account;
+        }
+        while (next < addedCount) {
+            merged[mergedCount++] = sortedAdded[next++];
+        }
+
+        sortedIndex.clear();
+        sortedIndex.addAll(new SortedRun(merged, order));
+    }
+
     /**
      * Deposits money into an account
      * @param account	an account with the same first and last name as the account to add to
@@ -91,14 +402,27 @@ public class AccountDatabase {
      * @return			true if the money is successfully deposited, false otherwise
      */
     public boolean deposit(Account account, double amount) {
+        return this.depositCents(account, Money.toCents(amount));
+    }
+
+    /**
+     * Deposits money into an account
+     * @param account	an account with the same first and last name as the account to add to
+     * @param cents		the amount of money to add to the account in cents
+     * @return			true if the money is successfully deposited, false otherwise
+     */
+    public boolean depositCents(Account account, long cents) {
+        this.checkJournal();
         int accountIndex = this.find(account);
         if (accountIndex == -1) {
             return false;
         }
 
-        account = accounts[accountIndex];
+        account = get(accountIndex);
 
-        account.credit(amount);
+        long record = this.applyDeposit(account, cents);
+        this.incrementVersion();
+        this.awaitRecord(record);
         return true;
     }
 
@@ -110,255 +434,912 @@ public class AccountDatabase {
      * and 0 if successfully withdrawn
      */
     public int withdrawal(Account account, double amount) {
+        return this.withdrawalCents(account, Money.toCents(amount));
+    }
+
+    /**
+     * Withdraws money from an account
+     * @param account	an account with the same first and last name as the account to withdraw from
+     * @param cents		the amount of money to withdraw in cents
+     * @return			-1 if the account is not found, 1 if the account doesn't have enough money to withdraw,<br>
+     * and 0 if successfully withdrawn
+     */
+    public int withdrawalCents(Account account, long cents) {
+        this.checkJournal();
         int accountIndex = this.find(account);
         if (accountIndex == -1) {
             return -1;
         }
 
-        account = accounts[accountIndex];
-        if (account.getBalance() - amount < 0) {
+        account = get(accountIndex);
+        long record = this.applyWithdrawal(account, cents);
+        if (record == -1) {
             return 1;
         }
-
-        account.debit(amount);
+        this.incrementVersion();
+        this.awaitRecord(record);
         return 0;
     }
 
     /**
-     * Recursively sorts the accounts by dateOpened<br>
-     * Uses quicksort with the pivot as the last element<br>
-     * Sorts by last name if the dates are the same
-     * @param startIndex	the start index of accounts to start sorting from
-     * @param endIndex		the index after the last index of accounts to sort from
+     * Applies a batch of deposits and withdrawals<br>
+     * The transactions are grouped by account so each account is looked up in the database only once, then applied
+     * in the order they were submitted. The whole batch is journaled with one wait for the disk
+     * @param transactions	the transactions, in the order to apply them
+     * @return				the result of each transaction: Transaction.APPLIED, Transaction.INSUFFICIENT_FUNDS
+     * 						or Transaction.NOT_FOUND
      */
-    private void sortByDateOpenHelper(int startIndex, int endIndex) {
-        int pivotIndex = endIndex - 1;
+    public int[] applyTransactions(Transaction[] transactions) {
+        this.checkJournal();
+        // Lookups go through a map only as big as the number of accounts in the batch
+        HashMap<Account, Integer> groups = new HashMap<Account, Integer>();
+        ArrayList<Account> groupAccounts = new ArrayList<Account>();
+        int[] groupOf = new int[transactions.length];
+        for (int i = 0; i < transactions.length; i++) {
+            Account key = transactions[i].getAccount();
+            if (i > 0 && key == transactions[i - 1].getAccount()) {
+                groupOf[i] = groupOf[i - 1];
+                continue;
+            }
+            Integer group = groups.get(key);
+            if (group == null) {
+                group = groupAccounts.size();
+                groups.put(key, group);
+                int accountIndex = this.find(key);
+                groupAccounts.add(accountIndex == -1 ? null : get(accountIndex));
+            }
+            groupOf[i] = group;
+        }
 
-        if (pivotIndex <= startIndex)
-            return;
+        int[] results = new int[transactions.length];
+        int appliedCount = 0;
+        long lastRecord = 0;
+        for (int i = 0; i < transactions.length; i++) {
+            Account account = groupAccounts.get(groupOf[i]);
+            long record;
+            if (account == null) {
+                results[i] = Transaction.NOT_FOUND;
+                continue;
+            } else if (transactions[i].getType() == Transaction.DEPOSIT) {
+                record = this.applyDeposit(account, transactions[i].getCents());
+            } else {
+                record = this.applyWithdrawal(account, transactions[i].getCents());
+            }
+            if (record == -1) {
+                results[i] = Transaction.INSUFFICIENT_FUNDS;
+            } else {
+                results[i] = Transaction.APPLIED;
+                appliedCount++;
+                lastRecord = Math.max(lastRecord, record);
+            }
+        }
 
-        Date pivot = accounts[pivotIndex].getOpenDate();
-        Profile pivotProfile = accounts[pivotIndex].getProfile();
-        int smallerIndex = startIndex;
-
-        // For each account, if it is to be ordered before the pivot, swap with the index after the previously ordered account
-        for (int i = startIndex; i < endIndex; i++) {
-            Account account = accounts[i];
-            Date date = account.getOpenDate();
-
-            int dateComparison = date.compareTo(pivot);
-            if (dateComparison < 0) {
-                accounts[i] = accounts[smallerIndex];
-                accounts[smallerIndex] = account;
-                smallerIndex++;
-                // Compares the account names if they were opened on the same day
-            } else if (dateComparison == 0) {
-                int nameComparison = account.getProfile().compareTo(pivotProfile);
-                if (nameComparison < 0) {
-                    accounts[i] = accounts[smallerIndex];
-                    accounts[smallerIndex] = account;
-                    smallerIndex++;
-                }
+        if (appliedCount > 0) {
+            this.incrementVersion();
+            this.awaitRecord(lastRecord);
+        }
+        return results;
+    }
+
+    /**
+     * Adds money to an account in this database and queues its journal record<br>
+     * Every deposit, alone or in a batch, changes the balance here, so ConcurrentAccountDatabase can lock the account
+     * around both steps and the account's records are in the order of its changes
+     * @param stored	the account as it is stored in this database
+     * @param cents		the amount of money to add in cents
+     * @return			the number of the journal record, or 0 if no journal is attached
+     */
+    long applyDeposit(Account stored, long cents) {
+        stored.creditCents(cents);
+        return this.journal == null ? 0 : this.journal.appendDeposit(stored, cents);
+    }
+
+    /**
+     * Removes money from an account in this database if it has enough money, and queues its journal record<br>
+     * Every withdrawal, alone or in a batch, changes the balance here,
+     * so ConcurrentAccountDatabase can lock the account around both steps and the account's records are in the order of its changes
+     * @param stored	the account as it is stored in this database
+     * @param cents		the amount of money to remove in cents
+     * @return			the number of the journal record, 0 if no journal is attached, or -1 if the balance is too low
+     */
+    long applyWithdrawal(Account stored, long cents) {
+        if (!stored.tryDebitCents(cents)) {
+            return -1;
+        }
+        return this.journal == null ? 0 : this.journal.appendWithdrawal(stored, cents);
+    }
+
+    /**
+     * Waits until a journal record queued by applyDeposit or applyWithdrawal is on disk
+     * @param record	the number of the record, or 0 if no journal is attached
+     */
+    private void awaitRecord(long record) {
+        if (this.journal != null && record > 0) {
+            this.journal.awaitRecord(record);
+        }
+    }
+
+    /**
+     * Attaches a journal that every later change to this database is logged to<br>
+     * Changes are logged as they are made and do not return until their record is on disk.
+     * If a record cannot be written, its change throws IllegalStateException but stays made, and every later change
+     * throws before it is made, until the database is rebuilt by opening the journal again
+     * @param _journal	the journal, or null to stop logging
+     */
+    void setJournal(TransactionJournal _journal) {
+        this.journal = _journal;
+    }
+
+    /**
+     * Checks that the journal can still log changes, so no change is made on top of one that is not on disk
+     * @throws IllegalStateException	if the journal failed to write an earlier change or is closed
+     */
+    private void checkJournal() {
+        if (this.journal != null) {
+            this.journal.checkWritable();
+        }
+    }
+
+    /**
+     * Loads accounts into an empty database whose sorted orders are already known<br>
+     * The sorted indexes are built straight from the sorted arrays without comparing any accounts
+     * @param accounts	the accounts in the order they were added, with no two accounts equal
+     * @param byName	the same accounts sorted by AccountSorter.BY_NAME_THEN_TYPE
+     * @param byDate	the same accounts sorted by AccountSorter.BY_DATE_THEN_NAME
+     */
+    void loadSorted(Account[] accounts, Account[] byName, Account[] byDate) {
+        this.checkJournal();
+        if (this.size != 0 || this.slotCount != 0) {
+            throw new IllegalStateException("Accounts can only be loaded into an empty database");
+        }
+        while (this.capacity < accounts.length) {
+            this.grow();
+        }
+
+        for (Account account : accounts) {
+            if (this.index.putIfAbsent(account, this.slotCount) != null) {
+                throw new IllegalArgumentException("Duplicate account " + account.getProfile());
             }
+            set(this.slotCount++, account);
         }
+        this.size = this.slotCount;
+        this.byLastName.addAll(new SortedRun(byName, AccountSorter.BY_NAME_THEN_TYPE));
+        this.byDateOpen.addAll(new SortedRun(byDate, AccountSorter.BY_DATE_THEN_NAME));
+
+        this.incrementVersion();
+        this.structureVersion++;
+        if (this.journal != null) {
+            this.journal.logOpenAll(accounts, accounts.length);
+        }
+    }
 
-        // Swaps the pivot with the index after the previously ordered account
-        Account account = accounts[smallerIndex];
-        accounts[smallerIndex] = accounts[pivotIndex];
-        accounts[pivotIndex] = account;
+    /**
+     * Writes a snapshot of this database to a file<br>
+     * If a journal is attached, the snapshot covers every change logged so far and the journal is emptied,
+     * so reopening the journal with the snapshot only replays changes made after this checkpoint
+     * @param snapshotFile	the file to write the snapshot to
+     * @throws IOException	if the snapshot or journal cannot be written
+     */
+    public void checkpoint(File snapshotFile) throws IOException {
+        // Numbers each slot by its position in the order the accounts were added
+        int[] slotRecords = new int[this.slotCount];
+        Account[] accounts = new Account[this.size];
+        int record = 0;
+        for (Map.Entry<Account, Integer> entry : this.index.entrySet()) {
+            slotRecords[entry.getValue()] = record;
+            accounts[record++] = entry.getKey();
+        }
+        int[] byName = new int[this.size];
+        int[] byDate = new int[this.size];
+        int position = 0;
+        for (Account account : this.byLastName) {
+            byName[position++] = slotRecords[this.index.get(account)];
+        }
+        position = 0;
+        for (Account account : this.byDateOpen) {
+            byDate[position++] = slotRecords[this.index.get(account)];
+        }
 
-        // Sorts the left and right partition of the pivot
-        sortByLastNameHelper(startIndex, smallerIndex);
-        sortByLastNameHelper(smallerIndex + 1, endIndex);
-        return;
+        long generation = this.journal == null ? 0 : this.journal.getGeneration();
+        AccountSnapshot.write(accounts, byName, byDate, generation, snapshotFile);
+        if (this.journal != null) {
+            this.journal.reset(generation + 1);
+        }
     }
 
     /**
-     * Calls sortByDateOpenHelper to recursively sort accounts by date opened
+     * A sorted array presented as a sorted set, so a TreeSet can be built from it in linear time<br>
+     * The set cannot be changed. Its views are ranges of the same array, found by binary search
      */
-    private void sortByDateOpen() {
-        sortByDateOpenHelper(0, size);
+    private static class SortedRun extends AbstractSet<Account> implements SortedSet<Account> {
+        private final Account[] accounts;
+        private final Comparator<Account> order;
+        private final int fromIndex;
+        private final int toIndex;
+
+        /**
+         * Constructs a sorted run of a whole array
+         * @param _accounts	the accounts, already sorted with no two equal in the order
+         * @param _order	the order the accounts are sorted in
+         */
+        SortedRun(Account[] _accounts, Comparator<Account> _order) {
+            this(_accounts, _order, 0, _accounts.length);
+        }
+
+        /**
+         * Constructs a sorted run of part of an array
+         * @param _accounts		the accounts, already sorted with no two equal in the order
+         * @param _order		the order the accounts are sorted in
+         * @param _fromIndex	the index of the first account in the run
+         * @param _toIndex		the index after the last account in the run
+         */
+        private SortedRun(Account[] _accounts, Comparator<Account> _order, int _fromIndex, int _toIndex) {
+            this.accounts = _accounts;
+            this.order = _order;
+            this.fromIndex = _fromIndex;
+            this.toIndex = Math.max(_fromIndex, _toIndex);
+        }
+
+        /**
+         * Finds where an account is or would be in this run
+         * @param account	the account
+         * @return			the index of the account, or of the first account after it in the order
+         */
+        private int indexOf(Account account) {
+            int found = Arrays.binarySearch(this.accounts, this.fromIndex, this.toIndex, account, this.order);
+            return found >= 0 ? found : -found - 1;
+        }
+
+        @Override
+        public Iterator<Account> iterator() {
+            return Arrays.asList(this.accounts).subList(this.fromIndex, this.toIndex).iterator();
+        }
+
+        @Override
+        public int size() {
+            return this.toIndex - this.fromIndex;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof Account
+                    && Arrays.binarySearch(this.accounts, this.fromIndex, this.toIndex, (Account) o, this.order) >= 0;
+        }
+
+        @Override
+        public Comparator<? super Account> comparator() {
+            return this.order;
+        }
+
+        @Override
+        public Account first() {
+            if (this.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            return this.accounts[this.fromIndex];
+        }
+
+        @Override
+        public Account last() {
+            if (this.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            return this.accounts[this.toIndex - 1];
+        }
+
+        @Override
+        public SortedSet<Account> subSet(Account fromElement, Account toElement) {
+            if (this.order.compare(fromElement, toElement) > 0) {
+                throw new IllegalArgumentException("Start of range is after its end");
+            }
+            return new SortedRun(this.accounts, this.order, this.indexOf(fromElement), this.indexOf(toElement));
+        }
+
+        @Override
+        public SortedSet<Account> headSet(Account toElement) {
+            return new SortedRun(this.accounts, this.order, this.fromIndex, this.indexOf(toElement));
+        }
+
+        @Override
+        public SortedSet<Account> tailSet(Account fromElement) {
+            return new SortedRun(this.accounts, this.order, this.indexOf(fromElement), this.toIndex);
+        }
+    }
+
+    /**
+     * Copies this database and every account in it
+     * @return	a new database holding copies of the accounts, in the order they were added
+     */
+    public AccountDatabase snapshot() {
+        AccountDatabase copy = new AccountDatabase(this.size);
+        for (Account account : this.index.keySet()) {
+            copy.add(account.copy());
+        }
+        return copy;
     }
 
     /**
-     * Recursively sorts the accounts by last name<br>
-     * Uses quicksort with the pivot as the last element<br>
-     * Sorts by first name if the last names are the same
-     * @param startIndex	the start index of accounts to start sorting from
-     * @param endIndex		the index after the last index of accounts to sort from
+     * Gets a copy of an account
+     * @param account	an account with the same type and first and last name as the account to get
+     * @return			a copy of the account with its current balance, or null if the account is not found
      */
-    private void sortByLastNameHelper(int startIndex, int endIndex) {
-        int pivotIndex = endIndex - 1;
+    public Account getAccount(Account account) {
+        int accountIndex = this.find(account);
+        if (accountIndex == -1) {
+            return null;
+        }
+        return get(accountIndex).copy();
+    }
 
-        if (pivotIndex <= startIndex)
-            return;
+    /**
+     * Gets all the accounts in the order they were added
+     * @return	a new array of the accounts
+     */
+    public Account[] getAccounts() {
+        return this.index.keySet().toArray(new Account[this.size]);
+    }
+
+    /**
+     * Gets all the accounts sorted in a given order<br>
+     * Equal accounts are kept in the order they were added
+     * @param order	the order to sort the accounts in, such as one of the comparators in AccountSorter
+     * @return		a new array of the sorted accounts
+     */
+    public Account[] getAccounts(Comparator<? super Account> order) {
+        Account[] sortedAccounts = this.getAccounts();
+        AccountSorter.sort(sortedAccounts, order);
+        return sortedAccounts;
+    }
 
-        Profile pivot = accounts[pivotIndex].getProfile();
-        int smallerIndex = startIndex;
+    /**
+     * Gets a number that changes whenever an account is added, removed or has its balance changed by this database<br>
+     * Used by callers holding pages of accounts to tell when to fetch them again
+     * @return	the version of the database
+     */
+    public int getVersion() {
+        return this.version;
+    }
 
-        // For each account, if it is to be ordered before the pivot, swap with the index after the previously ordered account
-        for (int i = startIndex; i < endIndex; i++) {
-            Account account = accounts[i];
-            Profile profile = account.getProfile();
+    /**
+     * Changes the version of the database<br>
+     * Atomic, since a ConcurrentAccountDatabase changes balances while holding only its read lock
+     */
+    private void incrementVersion() {
+        VERSION.getAndAdd(this, 1);
+    }
+
+    /**
+     * Gets a page of accounts by position in an order<br>
+     * The order is taken from the maintained indexes when it is AccountSorter.BY_NAME_THEN_TYPE,
+     * AccountSorter.BY_DATE_THEN_NAME or null for the order accounts were added.
+     * Any other order is sorted once and kept until the database changes
+     * @param order			the order of the accounts, or null for the order they were added
+     * @param startIndex	the position of the first account of the page
+     * @param count			the most accounts to get
+     * @return				a new array of up to count accounts, shorter at the end of the database
+     */
+    public Account[] getPage(Comparator<? super Account> order, int startIndex, int count) {
+        Account[] ordered = this.ordered(order);
+        if (startIndex >= ordered.length) {
+            return new Account[0];
+        }
+        this.pageCacheEnd = Math.min(ordered.length, startIndex + count);
+        return Arrays.copyOfRange(ordered, startIndex, this.pageCacheEnd);
+    }
 
-            int nameComparison = profile.compareTo(pivot);
-            if (nameComparison < 0) {
-                accounts[i] = accounts[smallerIndex];
-                accounts[smallerIndex] = account;
-                smallerIndex++;
+    /**
+     * Gets the page of accounts that come after an account in an order<br>
+     * Pages in index orders are read straight from the index without looking at earlier accounts.
+     * In the order accounts were added, a page after the last page fetched is found without a search
+     * @param order		the order of the accounts, or null for the order they were added
+     * @param after		the account before the page, such as the last account of the previous page
+     * @param count		the most accounts to get
+     * @return			a new array of up to count accounts, shorter at the end of the database
+     */
+    public Account[] getPageAfter(Comparator<? super Account> order, Account after, int count) {
+        TreeSet<Account> orderIndex = this.indexFor(order);
+        if (orderIndex != null) {
+            Account[] page = new Account[Math.min(count, this.size)];
+            int pageSize = 0;
+            for (Account account : orderIndex.tailSet(after, false)) {
+                if (pageSize == page.length) {
+                    break;
+                }
+                page[pageSize++] = account;
             }
+            return pageSize == page.length ? page : Arrays.copyOf(page, pageSize);
         }
 
-        // Swaps the pivot with the index after the previously ordered account
-        Account account = accounts[smallerIndex];
-        accounts[smallerIndex] = accounts[pivotIndex];
-        accounts[pivotIndex] = account;
+        Account[] ordered = this.ordered(order);
+        int afterIndex;
+        if (order == null) {
+            // Paging forward continues from where the last page ended, so the account is only searched for otherwise
+            int lastIndex = this.pageCacheEnd - 1;
+            if (lastIndex >= 0 && lastIndex < ordered.length && ordered[lastIndex] == after) {
+                afterIndex = lastIndex;
+            } else {
+                afterIndex = this.find(after) == -1 ? -1 : Arrays.asList(ordered).indexOf(after);
+            }
+        } else {
+            afterIndex = Arrays.binarySearch(ordered, after, order);
+            if (afterIndex < 0) {
+                // Not in the database, so the page starts where it would have been
+                afterIndex = -afterIndex - 2;
+            }
+        }
+        return this.getPage(order, afterIndex + 1, count);
+    }
 
-        // Sorts the left and right partition of the pivot
-        sortByLastNameHelper(startIndex, smallerIndex);
-        sortByLastNameHelper(smallerIndex + 1, endIndex);
-        return;
+    /**
+     * Gets the maintained index that keeps accounts in an order
+     * @param order	the order
+     * @return		the index, or null if no index keeps that order
+     */
+    private TreeSet<Account> indexFor(Comparator<? super Account> order) {
+        if (order == AccountSorter.BY_NAME_THEN_TYPE) {
+            return this.byLastName;
+        } else if (order == AccountSorter.BY_DATE_THEN_NAME) {
+            return this.byDateOpen;
+        } else {
+            return null;
+        }
     }
 
     /**
-     * Calls sortByLastNameHelper to recursively sort accounts by last name
+     * Gets all the accounts in an order, reusing the last array built for the same order if it is still current<br>
+     * Index orders only go stale when accounts are added or removed, other orders also when balances change
+     * @param order	the order of the accounts, or null for the order they were added
+     * @return		the accounts in order, which must not be modified
      */
-    private void sortByLastName() {
-        sortByLastNameHelper(0, this.size);
+    private Account[] ordered(Comparator<? super Account> order) {
+        boolean isIndexOrder = order == null || this.indexFor(order) != null;
+        int currentVersion = isIndexOrder ? this.structureVersion : this.version;
+        if (this.pageCache != null && this.pageCacheOrder == order && this.pageCacheVersion == currentVersion) {
+            return this.pageCache;
+        }
+
+        Account[] ordered;
+        if (order == null) {
+            ordered = this.getAccounts();
+        } else if (isIndexOrder) {
+            ordered = this.indexFor(order).toArray(new Account[this.size]);
+        } else {
+            ordered = this.getAccounts(order);
+        }
+        this.pageCache = ordered;
+        this.pageCacheOrder = order;
+        this.pageCacheVersion = currentVersion;
+        this.pageCacheEnd = 0;
+        return ordered;
     }
 
     /**
      * Updates an account's balance for a new month with interest and the monthly fee
-     * @param accountIndex	the index of the account to update in accounts
-     * @return				the string that represents this update for the output
-     */
-    private String updateAccount(int accountIndex) {
-        Account account = accounts[accountIndex];
-        double interest = account.monthlyInterest();
-        double fee = account.monthlyFee();
-        double newBalance = account.getBalance() + interest - fee;
-
-        String priceFormat = "$ #.#";
-        DecimalFormat formattedPrice = new DecimalFormat(priceFormat);
-        formattedPrice.setMinimumFractionDigits(2);
-
-        String result = String.format(
-                "\n%s\n-interest: %s\n-fee: %s\n-new balance: %s",
-                account,
-                formattedPrice.format(interest),
-                formattedPrice.format(fee),
-                formattedPrice.format(newBalance)
-        );
-
-        account.credit(interest);
-        account.debit(fee);
+     * @param account	the account to update
+     * @return			the string that represents this update for the output
+     */
+    static String updateAccount(Account account) {
+        long interest = account.monthlyInterestCents();
+        long fee = account.monthlyFeeCents();
+        String result = describeUpdate(account, interest, fee);
+
+        account.creditCents(interest);
+        account.debitCents(fee);
         return result;
     }
 
     /**
-     * Sorts accounts by date opened, updates all the accounts, then outputs them
-     * @return	a string to output to the UI
+     * Gets the string that represents a month end update of an account, before the update is applied
+     * @param account	the account to update
+     * @param interest	the interest to pay in cents
+     * @param fee		the fee to charge in cents
+     * @return			the string that represents this update for the output
      */
-    public String printByDateOpen() {
-        if (size == 0) {
-            return "Database is empty\n";
+    private static String describeUpdate(Account account, long interest, long fee) {
+        long newBalance = account.getBalanceCents() + interest - fee;
+
+        StringBuilder result = new StringBuilder(160);
+        account.appendTo(result.append('\n'));
+        AccountFormat.appendMoney(result.append("\n-interest: "), interest, AccountFormat.SPACED_DOLLARS);
+        AccountFormat.appendMoney(result.append("\n-fee: "), fee, AccountFormat.SPACED_DOLLARS);
+        AccountFormat.appendMoney(result.append("\n-new balance: "), newBalance, AccountFormat.SPACED_DOLLARS);
+        return result.toString();
+    }
+
+    /**
+     * Gets the buffer to build report lines in before they are written out
+     * @param out	where the report is written
+     * @return		out itself if it is a StringBuilder, otherwise a new buffer
+     */
+    private static StringBuilder chunkFor(Appendable out) {
+        if (out instanceof StringBuilder) {
+            return (StringBuilder) out;
         }
+        return new StringBuilder(CHUNK_SIZE * 2);
+    }
 
-        sortByDateOpen();
+    /**
+     * Writes the buffered report lines out once enough have been built up
+     * @param chunk			the buffer of report lines
+     * @param out			where the report is written
+     * @param isLast		true to write the buffer out no matter how full it is
+     * @throws IOException	if out cannot be written to
+     */
+    private static void writeChunk(StringBuilder chunk, Appendable out, boolean isLast) throws IOException {
+        if (chunk != out && (isLast || chunk.length() >= CHUNK_SIZE)) {
+            out.append(chunk);
+            chunk.setLength(0);
+        }
+    }
 
-        String result = "";
-        for (int i = 0; i < this.size; i++) {
-            result += updateAccount(i) + "\n";
+    /**
+     * Projects the balance of every account a number of months ahead without changing any account<br>
+     * Each account is copied, then all of its months are projected in one pass, with accounts projected in parallel
+     * @param months	the number of month ends to project, at least 0
+     * @return			the copied accounts in the order they were added, with their projected balances
+     */
+    public BalanceProjection projectBalances(final int months) {
+        if (months < 0) {
+            throw new IllegalArgumentException("Cannot project " + months + " months");
         }
 
-        return result;
+        final Account[] accounts = this.getAccounts();
+        for (int i = 0; i < accounts.length; i++) {
+            accounts[i] = accounts[i].copy();
+        }
+        long[] balances = new long[accounts.length];
+        Arrays.parallelSetAll(balances, new IntToLongFunction() {
+            @Override
+            public long applyAsLong(int i) {
+                return accounts[i].projectBalanceCents(months);
+            }
+        });
+        return new BalanceProjection(months, accounts, balances);
+    }
+
+    /**
+     * Projects the balance of one account a number of months ahead without changing it
+     * @param account	an account with the same type and first and last name as the account to project
+     * @param months	the number of month ends to project, at least 0
+     * @return			the projected balance in cents, or null if the account is not found
+     */
+    public Long projectBalanceCents(Account account, int months) {
+        if (months < 0) {
+            throw new IllegalArgumentException("Cannot project " + months + " months");
+        }
+
+        int accountIndex = this.find(account);
+        if (accountIndex == -1) {
+            return null;
+        }
+        return get(accountIndex).projectBalanceCents(months);
     }
 
     /**
-     * Sorts accounts by last name, updates all the accounts, then outputs them
+     * Updates every account's balance for a new month with interest and the monthly fee<br>
+     * Each storage segment is updated as a separate task on a fork/join pool
+     * @return	a summary of the accounts updated and the interest and fees applied
+     */
+    public MonthEndSummary applyMonthEnd() {
+        this.checkJournal();
+        this.incrementVersion();
+        long startTime = System.nanoTime();
+        MonthEndSummary summary;
+        if (this.slotCount <= MONTH_END_CUTOFF) {
+            summary = new MonthEndTask(this.segments[0], null, 0, this.slotCount).compute();
+        } else {
+            int segmentCount = (this.slotCount + SEGMENT_MASK) >>> SEGMENT_BITS;
+            MonthEndTask[] tasks = new MonthEndTask[segmentCount];
+            for (int i = 0; i < segmentCount; i++) {
+                int segmentSlots = Math.min(SEGMENT_SIZE, this.slotCount - (i << SEGMENT_BITS));
+                tasks[i] = new MonthEndTask(this.segments[i], null, 0, segmentSlots);
+                tasks[i].fork();
+            }
+            summary = new MonthEndSummary(0, 0, 0, 0);
+            for (MonthEndTask task : tasks) {
+                summary = summary.plus(task.join());
+            }
+        }
+        if (this.journal != null) {
+            this.journal.logMonthEnd();
+        }
+        return summary.withElapsedNanos(System.nanoTime() - startTime);
+    }
+
+    /**
+     * Updates every account for a new month and outputs the updates in an order<br>
+     * Accounts are taken one block at a time, so only one block of descriptions is held in memory
+     * @param accounts		the accounts in the order to output them
+     * @param out			where to write the updates
+     * @throws IOException	if out cannot be written to
+     */
+    private void printMonthEnd(Iterable<Account> accounts, Appendable out) throws IOException {
+        this.checkJournal();
+        this.incrementVersion();
+        Account[] block = new Account[SEGMENT_SIZE];
+        String[] details = new String[SEGMENT_SIZE];
+        StringBuilder chunk = chunkFor(out);
+        int blockSize = 0;
+        for (Account account : accounts) {
+            block[blockSize++] = account;
+            if (blockSize == SEGMENT_SIZE) {
+                printMonthEndBlock(block, details, blockSize, chunk, out);
+                blockSize = 0;
+            }
+        }
+        printMonthEndBlock(block, details, blockSize, chunk, out);
+        if (this.journal != null) {
+            this.journal.logMonthEnd();
+        }
+        writeChunk(chunk, out, true);
+    }
+
+    /**
+     * Updates a block of accounts for a new month, then outputs their updates in order
+     * @param block			the accounts to update
+     * @param details		scratch space for the descriptions of the updates
+     * @param blockSize		the number of accounts in the block
+     * @param chunk			the buffer of report lines
+     * @param out			where to write the updates
+     * @throws IOException	if out cannot be written to
+     */
+    private static void printMonthEndBlock(Account[] block, String[] details, int blockSize, StringBuilder chunk,
+            Appendable out) throws IOException {
+        MonthEndTask task = new MonthEndTask(block, details, 0, blockSize);
+        if (blockSize <= MONTH_END_CUTOFF) {
+            task.compute();
+        } else {
+            ForkJoinPool.commonPool().invoke(task);
+        }
+        for (int i = 0; i < blockSize; i++) {
+            chunk.append(details[i]).append('\n');
+            writeChunk(chunk, out, false);
+        }
+    }
+
+    /**
+     * Updates a range of accounts for a new month, splitting the range in two while it is large
+     */
+    private static class MonthEndTask extends RecursiveTask<MonthEndSummary> {
+        private static final long serialVersionUID = 1L;
+
+        private final Account[] accounts;
+        private final String[] details;
+        private final int startIndex;
+        private final int endIndex;
+
+        /**
+         * Constructs a task to update a range of accounts
+         * @param accounts		the accounts to update, where empty slots are null
+         * @param details		the descriptions to fill in at the same indexes as the accounts, or null
+         * @param startIndex	the first index to update
+         * @param endIndex		the index after the last index to update
+         */
+        MonthEndTask(Account[] accounts, String[] details, int startIndex, int endIndex) {
+            this.accounts = accounts;
+            this.details = details;
+            this.startIndex = startIndex;
+            this.endIndex = endIndex;
+        }
+
+        @Override
+        protected MonthEndSummary compute() {
+            if (endIndex - startIndex > MONTH_END_CUTOFF) {
+                int middleIndex = (startIndex + endIndex) >>> 1;
+                MonthEndTask left = new MonthEndTask(accounts, details, startIndex, middleIndex);
+                MonthEndTask right = new MonthEndTask(accounts, details, middleIndex, endIndex);
+                left.fork();
+                MonthEndSummary rightSummary = right.compute();
+                return left.join().plus(rightSummary);
+            }
+
+            int accountCount = 0;
+            long totalInterest = 0;
+            long totalFees = 0;
+            for (int i = startIndex; i < endIndex; i++) {
+                Account account = accounts[i];
+                if (account == null) {
+                    continue;
+                }
+
+                long interest = account.monthlyInterestCents();
+                long fee = account.monthlyFeeCents();
+                if (details != null) {
+                    details[i] = describeUpdate(account, interest, fee);
+                }
+                account.creditCents(interest);
+                account.debitCents(fee);
+
+                accountCount++;
+                totalInterest += interest;
+                totalFees += fee;
+            }
+            return new MonthEndSummary(accountCount, totalInterest, totalFees, 0);
+        }
+    }
+
+    /**
+     * Updates all the accounts, then outputs them in order of date opened<br>
+     * Accounts opened on the same day are ordered by name
      * @return	a string to output to the UI
      */
-    public String printByLastName() {
+    public String printByDateOpen() {
+        StringBuilder result = new StringBuilder();
+        try {
+            this.printByDateOpen(result);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return result.toString();
+    }
+
+    /**
+     * Updates all the accounts, then writes them in order of date opened<br>
+     * Accounts opened on the same day are ordered by name
+     * @param out			where to write the accounts, such as a Writer
+     * @throws IOException	if out cannot be written to
+     */
+    public void printByDateOpen(Appendable out) throws IOException {
         if (size == 0) {
-            return "Database is empty\n";
+            out.append("Database is empty\n");
+            return;
         }
 
-        sortByLastName();
+        this.printMonthEnd(this.byDateOpen, out);
+    }
+
+    /**
+     * Updates all the accounts, then writes them in order of date opened to a channel as UTF-8
+     * @param channel		where to write the accounts
+     * @throws IOException	if the channel cannot be written to
+     */
+    public void printByDateOpen(WritableByteChannel channel) throws IOException {
+        Writer writer = channelWriter(channel);
+        this.printByDateOpen(writer);
+        writer.flush();
+    }
 
-        String result = "";
-        for (int i = 0; i < this.size; i++) {
-            result += updateAccount(i) + "\n";
+    /**
+     * Updates all the accounts, then outputs them in order of last name, then first name
+     * @return	a string to output to the UI
+     */
+    public String printByLastName() {
+        StringBuilder result = new StringBuilder();
+        try {
+            this.printByLastName(result);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
+        return result.toString();
+    }
 
-        return result;
+    /**
+     * Updates all the accounts, then writes them in order of last name, then first name
+     * @param out			where to write the accounts, such as a Writer
+     * @throws IOException	if out cannot be written to
+     */
+    public void printByLastName(Appendable out) throws IOException {
+        if (size == 0) {
+            out.append("Database is empty\n");
+            return;
+        }
+
+        this.printMonthEnd(this.byLastName, out);
     }
 
     /**
-     * Returns a string of all the accounts
+     * Updates all the accounts, then writes them in order of last name, then first name to a channel as UTF-8
+     * @param channel		where to write the accounts
+     * @throws IOException	if the channel cannot be written to
+     */
+    public void printByLastName(WritableByteChannel channel) throws IOException {
+        Writer writer = channelWriter(channel);
+        this.printByLastName(writer);
+        writer.flush();
+    }
+
+    /**
+     * Returns a string of all the accounts in the order they were added
      * @return	a string to output to the UI
      */
     public String printAccounts() {
+        StringBuilder result = new StringBuilder();
+        try {
+            this.printAccounts(result);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return result.toString();
+    }
+
+    /**
+     * Writes all the accounts in the order they were added
+     * @param out			where to write the accounts, such as a Writer
+     * @throws IOException	if out cannot be written to
+     */
+    public void printAccounts(Appendable out) throws IOException {
         if (size == 0) {
-            return "Database is empty\n";
+            out.append("Database is empty\n");
+            return;
         }
 
-        String result = "";
-        for (int i = 0; i < this.size; i++) {
-            result += accounts[i].toString() + "\n";
+        StringBuilder chunk = chunkFor(out);
+        for (Account account : this.index.keySet()) {
+            account.appendTo(chunk).append('\n');
+            writeChunk(chunk, out, false);
         }
+        writeChunk(chunk, out, true);
+    }
 
-        return result;
+    /**
+     * Writes all the accounts in the order they were added to a channel as UTF-8
+     * @param channel		where to write the accounts
+     * @throws IOException	if the channel cannot be written to
+     */
+    public void printAccounts(WritableByteChannel channel) throws IOException {
+        Writer writer = channelWriter(channel);
+        this.printAccounts(writer);
+        writer.flush();
     }
+
     /**
      * Returns a string of all the accounts in the format for export
      * Format Account Type first letter,first name, last name, balance, date, and boolean or int value
      * @return	a string that is to be used for export to a file
      */
     public String printAccountsForExport() {
-        int sizeOfBooleanAccounts = 5;
-        if (size == 0) {
-            return "Database is empty\n";
+        StringBuilder result = new StringBuilder();
+        try {
+            this.printAccountsForExport(result);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
+        return result.toString();
+    }
 
-        String result = "";
-
-        for (int i = 0; i < this.size; i++) {
-            //gets account type
-            String typeOfAccount = this.accounts[i].getClass().getSimpleName();
-            //tokens to be able to get boolean value from Accounts
-            String[] token = accounts[i].toString().split("\\*",-2);
-
-            //conditionals to print the right format for each account type
-            if(typeOfAccount.substring(0, 1).contains("C")) {
-                if(token.length == sizeOfBooleanAccounts) {
-                    String booleanValue = ",false";
-                    result += typeOfAccount.substring(0, 1) + this.accounts[i].toStringExport() + booleanValue + "\n";
-                }
-                else{
-                    String booleanValue = ",true";
-                    result += typeOfAccount.substring(0, 1) + this.accounts[i].toStringExport() + booleanValue + "\n";
+    /**
+     * Writes all the accounts in the format for export
+     * Format Account Type first letter,first name, last name, balance, date, and boolean or int value
+     * @param out			where to write the accounts, such as a Writer
+     * @throws IOException	if out cannot be written to
+     */
+    public void printAccountsForExport(Appendable out) throws IOException {
+        if (size == 0) {
+            out.append("Database is empty\n");
+            return;
+        }
 
-                }
-            }
-            else if(typeOfAccount.substring(0, 1).contains("S")){
-                if(token.length == sizeOfBooleanAccounts) {
-                    String booleanValue = ",false";
-                    result += typeOfAccount.substring(0, 1) + this.accounts[i].toStringExport() + booleanValue + "\n";
-                }
-                else{
-                    String booleanValue = ",true";
-                    result += typeOfAccount.substring(0, 1) + this.accounts[i].toStringExport() + booleanValue + "\n";
+        StringBuilder chunk = chunkFor(out);
+        for (Account account : this.index.keySet()) {
+            AccountExporter.appendExportLine(chunk, account);
+            writeChunk(chunk, out, false);
+        }
+        writeChunk(chunk, out, true);
+    }
 
-                }
-            }
-            else{
-                String[] array = this.accounts[i].toString().split("\\*",-2);
-                String withdrawals = "," + array[array.length-2].substring(0,1);
-                result += typeOfAccount.substring(0, 1) + this.accounts[i].toStringExport() + withdrawals + "\n";
-            }
+    /**
+     * Writes all the accounts in the format for export to a channel as UTF-8<br>
+     * Each line is encoded straight into a byte buffer without building any text
+     * @param channel		where to write the accounts, such as a FileChannel
+     * @throws IOException	if the channel cannot be written to
+     */
+    public void printAccountsForExport(WritableByteChannel channel) throws IOException {
+        if (size == 0) {
+            channel.write(ByteBuffer.wrap("Database is empty\n".getBytes(StandardCharsets.UTF_8)));
+            return;
         }
 
-        return result;
+        AccountExporter.export(this.index.keySet(), channel);
+    }
+
+    /**
+     * Gets a buffered writer that encodes text to a channel as UTF-8<br>
+     * The writer must be flushed but not closed, so the channel stays open for the caller
+     * @param channel	the channel to write to
+     * @return			the writer
+     */
+    private static Writer channelWriter(WritableByteChannel channel) {
+        return new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), -1));
     }
 
     /**
@@ -483,5 +1464,244 @@ public class AccountDatabase {
         System.out.println(db.printAccounts());
         System.out.println(db.printByLastName());
         System.out.println(db.printByDateOpen());
+
+        // Tests if removed slots are reused and compacted while accounts remain findable
+        for (int i = 1; i < 10; i += 2) {
+            db.remove(new Checking("F" + i, "L" + i));
+        }
+        db.add(new Savings("F1", "L1", 100, 1, 1, 2002, false));
+        if (db.getsize() == 8 && db.deposit(new Checking("F8", "L8"), 1) && !db.deposit(new Checking("F9", "L9"), 1)) {
+            System.out.println("Expected: removed and re-added accounts are found");
+        } else {
+            System.out.println("Unexpected: database has " + db.getsize() + " accounts");
+        }
+        System.out.println(db.printAccounts());
+
+        // Tests if accounts spanning several storage segments can be added and found
+        AccountDatabase largeDb = new AccountDatabase(100);
+        for (int i = 0; i < 3000; i++) {
+            largeDb.add(new Savings("F" + i, "L" + i, 100, 1, 1, 2002, false));
+        }
+        if (largeDb.getsize() == 3000 && largeDb.deposit(new Savings("F2999", "L2999"), 1)) {
+            System.out.println("Expected: added and found 3000 accounts");
+        } else {
+            System.out.println("Unexpected: database has " + largeDb.getsize() + " accounts");
+        }
+        for (int i = 0; i < 3000; i += 3) {
+            largeDb.remove(new Savings("F" + i, "L" + i));
+        }
+        if (largeDb.getsize() == 2000 && largeDb.deposit(new Savings("F2999", "L2999"), 1)
+                && !largeDb.deposit(new Savings("F2997", "L2997"), 1)) {
+            System.out.println("Expected: 2000 accounts left after removing every third account");
+        } else {
+            System.out.println("Unexpected: database has " + largeDb.getsize() + " accounts");
+        }
+
+        // Tests if a parallel month end updates every account the same as updating them one at a time
+        AccountDatabase copyDb = largeDb.snapshot();
+        long expectedInterest = 0;
+        long expectedFees = 0;
+        long expectedBalance = 0;
+        for (Account account : copyDb.getAccounts()) {
+            expectedInterest += account.monthlyInterestCents();
+            expectedFees += account.monthlyFeeCents();
+            updateAccount(account);
+            expectedBalance += account.getBalanceCents();
+        }
+        MonthEndSummary summary = largeDb.applyMonthEnd();
+        long balance = 0;
+        for (Account account : largeDb.getAccounts()) {
+            balance += account.getBalanceCents();
+        }
+        if (summary.getAccountsProcessed() == 2000 && summary.getTotalInterestCents() == expectedInterest
+                && summary.getTotalFeesCents() == expectedFees && balance == expectedBalance
+                && largeDb.printAccounts().equals(copyDb.printAccounts())) {
+            System.out.println("Expected: month end updated 2000 accounts");
+        } else {
+            System.out.println("Unexpected: " + summary);
+        }
+
+        // Tests if a report spanning several blocks matches updating the accounts one at a time
+        StringBuilder expectedReport = new StringBuilder();
+        for (Account account : copyDb.getAccounts(AccountSorter.BY_NAME_THEN_TYPE)) {
+            expectedReport.append(updateAccount(account)).append('\n');
+        }
+        if (largeDb.printByLastName().equals(expectedReport.toString())
+                && largeDb.printAccounts().equals(copyDb.printAccounts())) {
+            System.out.println("Expected: report of 2000 accounts matches");
+        } else {
+            System.out.println("Unexpected: report of 2000 accounts does not match");
+        }
+
+        // Tests if paging through each order, by position or after the last account, gives every account in order
+        boolean isPaged = true;
+        for (Comparator<Account> order : Arrays.asList(null, AccountSorter.BY_NAME_THEN_TYPE,
+                AccountSorter.BY_DATE_THEN_NAME, AccountSorter.BY_BALANCE)) {
+            Account[] expected = order == null ? largeDb.getAccounts() : largeDb.getAccounts(order);
+            java.util.ArrayList<Account> byPosition = new java.util.ArrayList<Account>();
+            java.util.ArrayList<Account> byCursor = new java.util.ArrayList<Account>();
+            Account[] page = largeDb.getPage(order, 0, 300);
+            while (page.length > 0) {
+                byCursor.addAll(Arrays.asList(page));
+                page = largeDb.getPageAfter(order, page[page.length - 1], 300);
+            }
+            for (int start = 0; start < largeDb.getsize(); start += 300) {
+                byPosition.addAll(Arrays.asList(largeDb.getPage(order, start, 300)));
+            }
+            isPaged &= byPosition.equals(Arrays.asList(expected)) && byCursor.equals(Arrays.asList(expected));
+        }
+        if (isPaged) {
+            System.out.println("Expected: pages match the sorted accounts in every order");
+        } else {
+            System.out.println("Unexpected: pages do not match the sorted accounts");
+        }
+
+        // Tests if the ranges of a sorted run match the same ranges of a tree set built from it
+        Account[] sortedByName = largeDb.getAccounts(AccountSorter.BY_NAME_THEN_TYPE);
+        SortedSet<Account> run = new SortedRun(sortedByName, AccountSorter.BY_NAME_THEN_TYPE);
+        TreeSet<Account> tree = new TreeSet<Account>(AccountSorter.BY_NAME_THEN_TYPE);
+        tree.addAll(run);
+        Account low = sortedByName[sortedByName.length / 4];
+        Account high = new Checking("Zz", sortedByName[sortedByName.length / 2].getProfile().getLName());
+        int subSetSize = run.subSet(low, high).size();
+        boolean isSameRange = subSetSize > 0 && subSetSize < sortedByName.length
+                && new ArrayList<Account>(run.subSet(low, high)).equals(new ArrayList<Account>(tree.subSet(low, high)))
+                && new ArrayList<Account>(run.headSet(high)).equals(new ArrayList<Account>(tree.headSet(high)))
+                && new ArrayList<Account>(run.tailSet(low)).equals(new ArrayList<Account>(tree.tailSet(low)))
+                && run.tailSet(low).first() == low && run.contains(high) == tree.contains(high)
+                && run.headSet(sortedByName[0]).isEmpty();
+        if (isSameRange && tree.size() == sortedByName.length) {
+            System.out.println("Expected: sorted run ranges match the tree set built from it");
+        } else {
+            System.out.println("Unexpected: sorted run ranges do not match the tree set built from it");
+        }
+
+        // Tests if projecting months ahead matches running that many month ends, without changing the database
+        AccountDatabase mixedDb = new AccountDatabase();
+        for (int i = 0; i < 600; i++) {
+            mixedDb.add(new Checking("C" + i, "L" + i, 1400 + i % 200, 1, 1, 2000, i % 5 == 0));
+            mixedDb.add(new Savings("S" + i, "L" + i, 250 + i % 100, 1, 1, 2000, i % 2 == 0));
+            mixedDb.add(new MoneyMarket("M" + i, "L" + i, 2450 + i % 100, 1, 1, 2000, i % 9));
+        }
+        String beforeProjection = mixedDb.printAccounts();
+        BalanceProjection projection = mixedDb.projectBalances(18);
+        AccountDatabase monthEndDb = mixedDb.snapshot();
+        for (int i = 0; i < 18; i++) {
+            monthEndDb.applyMonthEnd();
+        }
+        Account[] monthEndAccounts = monthEndDb.getAccounts();
+        boolean isProjected = projection.size() == monthEndAccounts.length && mixedDb.printAccounts().equals(beforeProjection);
+        for (int i = 0; isProjected && i < monthEndAccounts.length; i++) {
+            isProjected = projection.getBalanceCents(i) == monthEndAccounts[i].getBalanceCents()
+                    && projection.getAccount(i).equals(monthEndAccounts[i]);
+        }
+        if (isProjected && mixedDb.projectBalanceCents(monthEndAccounts[2], 18) == monthEndAccounts[2].getBalanceCents()) {
+            System.out.println("Expected: projected 18 months for 1800 accounts");
+        } else {
+            System.out.println("Unexpected: projection does not match 18 month ends");
+        }
+
+        // Tests if writing an export to a channel matches the string export
+        java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+        try {
+            largeDb.printAccountsForExport(Channels.newChannel(bytes));
+        } catch (IOException e) {
+            System.out.println("Unexpected: " + e.getMessage());
+        }
+        if (new String(bytes.toByteArray(), StandardCharsets.UTF_8).equals(largeDb.printAccountsForExport())) {
+            System.out.println("Expected: channel export matches");
+        } else {
+            System.out.println("Unexpected: channel export does not match");
+        }
+
+        // Tests if adding in bulk, both small and large batches with duplicates, matches adding one at a time
+        AccountDatabase oneAtATime = new AccountDatabase();
+        AccountDatabase bulk = new AccountDatabase();
+        ArrayList<Account> batch = new ArrayList<Account>();
+        for (int i = 0; i < 2000; i++) {
+            batch.add(new Checking("B" + i % 1500, "L" + i % 1500 % 13, i, 1 + i % 12, 1 + i % 28, 2000, i % 2 == 0));
+            batch.add(new MoneyMarket("B" + i, "L" + i % 13, i, 1 + i % 12, 1, 2001, i % 5));
+        }
+        oneAtATime.add(new Checking("B1", "L1", 5, 1, 1, 2000, false));
+        bulk.add(new Checking("B1", "L1", 5, 1, 1, 2000, false));
+        oneAtATime.remove(new Checking("B1", "L1"));
+        bulk.remove(new Checking("B1", "L1"));
+        int rejected = 0;
+        for (Account account : batch) {
+            if (!oneAtATime.add(account)) {
+                rejected++;
+            }
+        }
+        ArrayList<Account> copies = new ArrayList<Account>();
+        for (Account account : batch) {
+            copies.add(account.copy());
+        }
+        BulkAddResult large = bulk.addAll(copies);
+        BulkAddResult small = bulk.addAll(Arrays.asList(new Account[] {new Savings("Z", "Z", 1, 1, 1, 2000, true),
+            new Savings("Z", "Z", 2, 1, 1, 2000, true), new MoneyMarket("B7", "L7")}).iterator());
+        oneAtATime.add(new Savings("Z", "Z", 1, 1, 1, 2000, true));
+        if (large.getRejectedCount() == rejected && small.getAddedCount() == 1 && small.getRejectedCount() == 2
+                && bulk.printAccounts().equals(oneAtATime.printAccounts())
+                && bulk.printByLastName().equals(oneAtATime.printByLastName())
+                && bulk.printByDateOpen().equals(oneAtATime.printByDateOpen())) {
+            System.out.println("Expected: bulk add matches adding one at a time, " + large);
+        } else {
+            System.out.println("Unexpected: bulk add does not match adding one at a time");
+        }
+
+        // Tests if a batch of transactions gives the same results and balances as applying them one at a time
+        AccountDatabase batched = oneAtATime.snapshot();
+        Transaction[] transactions = new Transaction[20000];
+        for (int i = 0; i < transactions.length; i++) {
+            int n = i * 7919 % 1600;
+            Account key = i % 3 == 0 ? new Checking("B" + n, "L" + n % 13) : new MoneyMarket("B" + n, "L" + n % 13);
+            transactions[i] = i % 4 == 0 ? Transaction.deposit(key, 1 + n % 50) : Transaction.withdrawalCents(key, 700 + n);
+        }
+        transactions[1] = transactions[0];
+        int[] results = batched.applyTransactions(transactions);
+        boolean isSame = true;
+        int notFound = 0;
+        int insufficient = 0;
+        for (int i = 0; i < transactions.length; i++) {
+            int expected;
+            if (transactions[i].getType() == Transaction.DEPOSIT) {
+                expected = oneAtATime.depositCents(transactions[i].getAccount(), transactions[i].getCents())
+                        ? Transaction.APPLIED : Transaction.NOT_FOUND;
+            } else {
+                expected = oneAtATime.withdrawalCents(transactions[i].getAccount(), transactions[i].getCents());
+            }
+            isSame &= results[i] == expected;
+            notFound += results[i] == Transaction.NOT_FOUND ? 1 : 0;
+            insufficient += results[i] == Transaction.INSUFFICIENT_FUNDS ? 1 : 0;
+        }
+        if (isSame && notFound > 0 && insufficient > 0
+                && batched.printAccountsForExport().equals(oneAtATime.printAccountsForExport())) {
+            System.out.println("Expected: batch of " + transactions.length + " transactions matches one at a time, "
+                    + notFound + " not found, " + insufficient + " without enough balance");
+        } else {
+            System.out.println("Unexpected: batch of transactions does not match one at a time");
+        }
+
+        // Tests if transactions of no money, negative money or an amount that is not finite cannot be made
+        int rejectedCount = 0;
+        for (double amount : new double[] {0, -5, .001, Double.NaN, Double.POSITIVE_INFINITY}) {
+            try {
+                Transaction.deposit(new Checking("B0", "L0"), amount);
+            } catch (IllegalArgumentException e) {
+                rejectedCount++;
+            }
+        }
+        for (long cents : new long[] {0, -500}) {
+            try {
+                Transaction.withdrawalCents(new Checking("B0", "L0"), cents);
+            } catch (IllegalArgumentException e) {
+                rejectedCount++;
+            }
+        }
+        if (rejectedCount == 7) {
+            System.out.println("Expected: transactions must be for more than 0");
+        } else {
+            System.out.println("Unexpected: only " + rejectedCount + " of 7 transactions were rejected");
+        }
     }
 }
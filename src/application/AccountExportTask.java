@@ -0,0 +1,87 @@
+package application;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+import javafx.concurrent.Task;
+
+/**
+ * This class exports the accounts of a database to a file without holding up the JavaFX application thread<br>
+ * The accounts are copied when the task is made, so the database can keep changing while the copies are written
+ * on a worker thread. Lines go to a temporary file a block of accounts at a time, with progress as the share of
+ * accounts written, and the file only replaces the chosen one once every line is written. A cancelled export leaves
+ * the chosen file as it was
+ * @author Steven Nguyen, Julian Romero
+ */
+public class AccountExportTask extends Task<Integer> {
+    private static final int BLOCK_SIZE = 1 << 14;
+
+    private final Account[] accounts;
+    private final File file;
+
+    /**
+     * Constructs a task to export a database<br>
+     * Must be made on the thread that changes the database, such as the application thread
+     * @param db	the database to export
+     * @param _file	the file to write the accounts to
+     */
+    public AccountExportTask(AccountDatabase db, File _file) {
+        this.accounts = db.getAccounts();
+        for (int i = 0; i < this.accounts.length; i++) {
+            this.accounts[i] = this.accounts[i].copy();
+        }
+        this.file = _file;
+    }
+
+    /**
+     * Writes the copied accounts to the file in the export format
+     * @return				the number of accounts written, or null if the export was cancelled
+     * @throws Exception	if the file cannot be written
+     */
+    @Override
+    protected Integer call() throws Exception {
+        File tempFile = new File(this.file.getPath() + ".tmp");
+        List<Account> accountList = Arrays.asList(this.accounts);
+        boolean isWritten = false;
+        FileChannel channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            for (int start = 0; start < this.accounts.length; start += BLOCK_SIZE) {
+                if (isCancelled()) {
+                    return null;
+                }
+                int end = Math.min(start + BLOCK_SIZE, this.accounts.length);
+                AccountExporter.export(accountList.subList(start, end), channel);
+                updateProgress(end, this.accounts.length);
+            }
+            ByteBuffer lineBreak = ByteBuffer.wrap(System.lineSeparator().getBytes());
+            while (lineBreak.hasRemaining()) {
+                channel.write(lineBreak);
+            }
+            isWritten = true;
+        } finally {
+            channel.close();
+            if (!isWritten) {
+                Files.deleteIfExists(tempFile.toPath());
+            }
+        }
+
+        if (isCancelled()) {
+            Files.delete(tempFile.toPath());
+            return null;
+        }
+        try {
+            Files.move(tempFile.toPath(), this.file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        return this.accounts.length;
+    }
+}
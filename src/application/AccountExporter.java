@@ -0,0 +1,192 @@
+package application;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * This class writes accounts in the export format, one line per account<br>
+ * Format: type letter,first name,last name,balance,open date,direct deposit, loyal or withdrawals, such as
+ * "M,John,Doe,1500.00,1/2/2020,3". Each line is written once, straight from the fields of the account,
+ * into a StringBuilder or as UTF-8 into a byte buffer
+ * @author Steven Nguyen, Julian Romero
+ */
+public final class AccountExporter {
+    /**
+     * The most bytes a line takes besides the UTF-8 of the names
+     */
+    private static final int LINE_OVERHEAD = 16 + AccountFormat.MAX_MONEY_LENGTH + AccountFormat.MAX_DATE_LENGTH + 10;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private AccountExporter() {
+    }
+
+    /**
+     * Appends the export line of an account
+     * @param out		where to append the line
+     * @param account	the account
+     * @return			out
+     */
+    public static StringBuilder appendExportLine(StringBuilder out, Account account) {
+        out.append(typeLetter(account)).append(',').append(account.getProfile().getFName()).append(',');
+        out.append(account.getProfile().getLName()).append(',');
+        AccountFormat.appendMoney(out, account.getBalanceCents(), AccountFormat.NO_SYMBOL).append(',');
+        account.getOpenDate().appendTo(out).append(',');
+        if (account instanceof Checking) {
+            out.append(((Checking) account).getIsDirectDeposit());
+        } else if (account instanceof Savings) {
+            out.append(((Savings) account).getIsLoyal());
+        } else {
+            AccountFormat.appendDigits(out, ((MoneyMarket) account).getWithdrawals());
+        }
+        return out.append('\n');
+    }
+
+    /**
+     * Gets the most bytes the export line of an account can take
+     * @param account	the account
+     * @return			the number of bytes
+     */
+    public static int maxExportLength(Account account) {
+        return 3 * (account.getProfile().getFName().length() + account.getProfile().getLName().length())
+                + LINE_OVERHEAD;
+    }
+
+    /**
+     * Writes the export line of an account into a buffer as UTF-8
+     * @param buffer	the buffer, with room for maxExportLength(account) bytes after offset
+     * @param offset	the index to start writing at
+     * @param account	the account
+     * @return			the index after the last byte written
+     */
+    public static int writeExportLine(byte[] buffer, int offset, Account account) {
+        buffer[offset++] = (byte) typeLetter(account);
+        buffer[offset++] = ',';
+        offset = writeText(buffer, offset, account.getProfile().getFName());
+        buffer[offset++] = ',';
+        offset = writeText(buffer, offset, account.getProfile().getLName());
+        buffer[offset++] = ',';
+        offset = AccountFormat.writeMoney(buffer, offset, account.getBalanceCents(), AccountFormat.NO_SYMBOL);
+        buffer[offset++] = ',';
+        offset = account.getOpenDate().writeTo(buffer, offset);
+        buffer[offset++] = ',';
+        if (account instanceof Checking) {
+            offset = writeText(buffer, offset, ((Checking) account).getIsDirectDeposit() ? "true" : "false");
+        } else if (account instanceof Savings) {
+            offset = writeText(buffer, offset, ((Savings) account).getIsLoyal() ? "true" : "false");
+        } else {
+            offset = AccountFormat.writeDigits(buffer, offset, ((MoneyMarket) account).getWithdrawals());
+        }
+        buffer[offset++] = '\n';
+        return offset;
+    }
+
+    /**
+     * Writes the export lines of accounts to a channel<br>
+     * Lines are gathered into one buffer and written out whenever it fills
+     * @param accounts		the accounts to export
+     * @param channel		where to write the lines, such as a FileChannel
+     * @throws IOException	if the channel cannot be written to
+     */
+    public static void export(Iterable<Account> accounts, WritableByteChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        byte[] bytes = buffer.array();
+        for (Account account : accounts) {
+            int needed = maxExportLength(account);
+            if (bytes.length - buffer.position() < needed) {
+                drain(buffer, channel);
+                if (bytes.length < needed) {
+                    // Only a line with extremely long names gets a buffer of its own
+                    buffer = ByteBuffer.allocate(needed);
+                    bytes = buffer.array();
+                }
+            }
+            buffer.position(writeExportLine(bytes, buffer.position(), account));
+        }
+        drain(buffer, channel);
+    }
+
+    /**
+     * Writes out everything in a buffer and empties it
+     * @param buffer		the buffer
+     * @param channel		where to write the buffer
+     * @throws IOException	if the channel cannot be written to
+     */
+    private static void drain(ByteBuffer buffer, WritableByteChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Gets the letter an account type starts with in an export
+     * @param account	the account
+     * @return			'C', 'S' or 'M'
+     */
+    private static char typeLetter(Account account) {
+        if (account instanceof Checking) {
+            return 'C';
+        } else if (account instanceof Savings) {
+            return 'S';
+        } else {
+            return 'M';
+        }
+    }
+
+    /**
+     * Writes text into a buffer as UTF-8, copying ASCII text a byte at a time
+     * @param buffer	the buffer, with room for 3 bytes per character after offset
+     * @param offset	the index to start writing at
+     * @param text		the text
+     * @return			the index after the last byte written
+     */
+    private static int writeText(byte[] buffer, int offset, String text) {
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80) {
+                byte[] encoded = text.getBytes(StandardCharsets.UTF_8);
+                System.arraycopy(encoded, 0, buffer, offset - i, encoded.length);
+                return offset - i + encoded.length;
+            }
+            buffer[offset++] = (byte) c;
+        }
+        return offset;
+    }
+
+    /**
+     * Testmain - tests that export lines carry the account flags and withdrawals and match as text and bytes
+     * @param args	unused
+     */
+    public static void main(String[] args) {
+        Account[] accounts = {
+            new Checking("John", "Doe", 1500, 1, 2, 2020, true),
+            new Savings("Jane", "Doe", -25.5, 12, 31, 1999, false),
+            new MoneyMarket("Jos\u00e9", "Pe\u00f1a", 2500, 3, 4, 2021, 12)
+        };
+        String expected = "C,John,Doe,1500.00,1/2/2020,true\n" + "S,Jane,Doe,-25.50,12/31/1999,false\n"
+                + "M,Jos\u00e9,Pe\u00f1a,2500.00,3/4/2021,12\n";
+
+        StringBuilder text = new StringBuilder();
+        for (Account account : accounts) {
+            appendExportLine(text, account);
+        }
+        java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+        try {
+            export(java.util.Arrays.asList(accounts), java.nio.channels.Channels.newChannel(bytes));
+        } catch (IOException e) {
+            System.out.println("Unexpected: " + e);
+        }
+
+        // Tests if every field is exported, including a withdrawal count with more than one digit
+        if (text.toString().equals(expected)
+                && new String(bytes.toByteArray(), StandardCharsets.UTF_8).equals(expected)) {
+            System.out.println("Expected: export lines match as text and as UTF-8 bytes");
+        } else {
+            System.out.println("Unexpected: export lines were\n" + text + new String(bytes.toByteArray(),
+                    StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package application;
+
+/**
+ * This class writes money and dates as text without creating intermediate objects<br>
+ * Money is written like DecimalFormat "$#.#" with two fraction digits, such as "-$1234.50",
+ * and dates are written as m/d/yyyy. Text can be appended to a StringBuilder or written as ASCII into a byte buffer.
+ * The methods keep no state, so they are safe to call from any number of threads
+ * @author Steven Nguyen, Julian Romero
+ */
+public final class AccountFormat {
+    /**
+     * The currency symbol used in account listings
+     */
+    public static final String DOLLARS = "$";
+
+    /**
+     * No currency symbol, used in exports
+     */
+    public static final String NO_SYMBOL = "";
+
+    /**
+     * The currency symbol used in month end updates
+     */
+    public static final String SPACED_DOLLARS = "$ ";
+
+    /**
+     * The longest text written for an amount of money with a currency symbol of up to 2 characters
+     */
+    public static final int MAX_MONEY_LENGTH = 25;
+
+    /**
+     * The longest text written for a date with a 4 digit year
+     */
+    public static final int MAX_DATE_LENGTH = 10;
+
+    private static final long[] POWERS_OF_TEN = new long[19];
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private AccountFormat() {
+    }
+
+    /**
+     * Counts the decimal digits of a number
+     * @param value	a number that is not negative
+     * @return		the number of digits, at least 1
+     */
+    private static int digitCount(long value) {
+        int digits = 1;
+        while (digits < POWERS_OF_TEN.length && value >= POWERS_OF_TEN[digits]) {
+            digits++;
+        }
+        return digits;
+    }
+
+    /**
+     * Appends an amount of money
+     * @param out		where to append the text
+     * @param cents		the amount in cents
+     * @param symbol	the currency symbol written after the sign, such as DOLLARS
+     * @return			out
+     */
+    public static StringBuilder appendMoney(StringBuilder out, long cents, String symbol) {
+        if (cents < 0) {
+            out.append('-');
+        }
+        out.append(symbol);
+
+        // Works with the magnitude split in two so Long.MIN_VALUE does not overflow
+        long dollars = Math.abs(cents / Money.CENTS_PER_DOLLAR);
+        int fraction = (int) Math.abs(cents % Money.CENTS_PER_DOLLAR);
+        appendDigits(out, dollars);
+        out.append('.');
+        out.append((char) ('0' + fraction / 10));
+        out.append((char) ('0' + fraction % 10));
+        return out;
+    }
+
+    /**
+     * Appends a date
+     * @param out	where to append the text
+     * @param month	the month
+     * @param day	the day
+     * @param year	the year
+     * @return		out
+     */
+    public static StringBuilder appendDate(StringBuilder out, int month, int day, int year) {
+        appendDigits(out, month);
+        out.append('/');
+        appendDigits(out, day);
+        out.append('/');
+        appendDigits(out, year);
+        return out;
+    }
+
+    /**
+     * Appends a whole number
+     * @param out	where to append the text
+     * @param value	the number
+     * @return		out
+     */
+    public static StringBuilder appendDigits(StringBuilder out, long value) {
+        if (value < 0) {
+            out.append('-');
+            // Appends the last digit separately so Long.MIN_VALUE does not overflow
+            appendDigits(out, -(value / 10));
+            return out.append((char) ('0' - value % 10));
+        }
+
+        for (int i = digitCount(value) - 1; i >= 0; i--) {
+            out.append((char) ('0' + value / POWERS_OF_TEN[i] % 10));
+        }
+        return out;
+    }
+
+    /**
+     * Writes an amount of money into a buffer as ASCII
+     * @param buffer	the buffer, with room for MAX_MONEY_LENGTH bytes after offset
+     * @param offset	the index to start writing at
+     * @param cents		the amount in cents
+     * @param symbol	the currency symbol written after the sign, such as DOLLARS
+     * @return			the index after the last byte written
+     */
+    public static int writeMoney(byte[] buffer, int offset, long cents, String symbol) {
+        if (cents < 0) {
+            buffer[offset++] = '-';
+        }
+        for (int i = 0; i < symbol.length(); i++) {
+            buffer[offset++] = (byte) symbol.charAt(i);
+        }
+
+        long dollars = Math.abs(cents / Money.CENTS_PER_DOLLAR);
+        int fraction = (int) Math.abs(cents % Money.CENTS_PER_DOLLAR);
+        offset = writeDigits(buffer, offset, dollars);
+        buffer[offset++] = '.';
+        buffer[offset++] = (byte) ('0' + fraction / 10);
+        buffer[offset++] = (byte) ('0' + fraction % 10);
+        return offset;
+    }
+
+    /**
+     * Writes a date into a buffer as ASCII
+     * @param buffer	the buffer, with room for MAX_DATE_LENGTH bytes after offset
+     * @param offset	the index to start writing at
+     * @param month		the month
+     * @param day		the day
+     * @param year		the year, which must not be negative
+     * @return			the index after the last byte written
+     */
+    public static int writeDate(byte[] buffer, int offset, int month, int day, int year) {
+        offset = writeDigits(buffer, offset, month);
+        buffer[offset++] = '/';
+        offset = writeDigits(buffer, offset, day);
+        buffer[offset++] = '/';
+        return writeDigits(buffer, offset, year);
+    }
+
+    /**
+     * Writes a whole number into a buffer as ASCII
+     * @param buffer	the buffer
+     * @param offset	the index to start writing at
+     * @param value		the number, which must not be negative
+     * @return			the index after the last byte written
+     */
+    public static int writeDigits(byte[] buffer, int offset, long value) {
+        int end = offset + digitCount(value);
+        for (int i = end - 1; i >= offset; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return end;
+    }
+
+    /**
+     * Testmain - tests that the text matches DecimalFormat and String.format
+     * @param args	unused
+     */
+    public static void main(String[] args) {
+        java.text.DecimalFormat decimalFormat = new java.text.DecimalFormat("$#.#");
+        decimalFormat.setMinimumFractionDigits(2);
+        long[] amounts = {0, 5, 50, 100, -1, -50, -2500, 123456789, 999999999999L};
+
+        // Tests if money matches DecimalFormat
+        boolean isSame = true;
+        byte[] buffer = new byte[MAX_MONEY_LENGTH];
+        for (long cents : amounts) {
+            String expected = decimalFormat.format(Money.toDollars(cents));
+            int length = writeMoney(buffer, 0, cents, DOLLARS);
+            isSame &= appendMoney(new StringBuilder(), cents, DOLLARS).toString().equals(expected);
+            isSame &= new String(buffer, 0, length, java.nio.charset.StandardCharsets.US_ASCII).equals(expected);
+        }
+        if (isSame) {
+            System.out.println("Expected: money matches DecimalFormat");
+        } else {
+            System.out.println("Unexpected: money does not match DecimalFormat");
+        }
+
+        // Tests if dates and extreme numbers are written correctly
+        int length = writeDate(buffer, 0, 12, 31, 2021);
+        if (appendDate(new StringBuilder(), 1, 2, 2003).toString().equals("1/2/2003")
+                && new String(buffer, 0, length, java.nio.charset.StandardCharsets.US_ASCII).equals("12/31/2021")
+                && appendDigits(new StringBuilder(), Long.MIN_VALUE).toString().equals(Long.toString(Long.MIN_VALUE))
+                && appendMoney(new StringBuilder(), Long.MIN_VALUE, DOLLARS).toString().equals("-$92233720368547758.08")) {
+            System.out.println("Expected: dates and extreme numbers match");
+        } else {
+            System.out.println("Unexpected: dates or extreme numbers do not match");
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package application;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+
+/**
+ * This class imports a file of accounts into a database without holding up the JavaFX application thread<br>
+ * The file is read and parsed on a worker thread, and the accounts are handed to the application thread in batches,
+ * where each batch is added to the database in one bulk add. A batch that arrives while the one before it is still
+ * waiting is joined onto it, so a busy application thread gets fewer, larger batches. Progress is the share of the
+ * file's bytes read. Cancelling stops the import between batches, and a batch is either added whole or not at all,
+ * so the database only ever holds complete batches
+ * @author Steven Nguyen, Julian Romero
+ */
+public class AccountImportTask extends Task<ImportResult> {
+    private final File file;
+    private final AccountDatabase db;
+    private final Runnable onBatchAdded;
+    private final Object pendingLock = new Object();
+    private ArrayList<Account> pending;
+    private int accountsAdded;
+    private int duplicates;
+
+    /**
+     * Constructs a task to import a file
+     * @param _file			the file, with one account per line in the export format
+     * @param _db			the database to add the accounts to, only ever changed on the application thread
+     * @param _onBatchAdded	what to run on the application thread after each batch is added, such as a table refresh
+     */
+    public AccountImportTask(File _file, AccountDatabase _db, Runnable _onBatchAdded) {
+        this.file = _file;
+        this.db = _db;
+        this.onBatchAdded = _onBatchAdded;
+    }
+
+    /**
+     * Reads the file and hands its accounts to the application thread one chunk at a time
+     * @return				the lines read and the errors found, with every account read counted as added
+     * @throws Exception	if the file cannot be read
+     */
+    @Override
+    protected ImportResult call() throws Exception {
+        updateProgress(0, 1);
+        return AccountImporter.importFile(this.file, new AccountImporter.ChunkHandler() {
+            @Override
+            public boolean accept(List<Account> accounts, long bytesRead, long bytesTotal) {
+                if (isCancelled()) {
+                    return false;
+                }
+                handOff(accounts);
+                updateProgress(bytesRead, bytesTotal);
+                return !isCancelled();
+            }
+        });
+    }
+
+    /**
+     * Queues accounts to be added on the application thread, joining them onto a batch that is still waiting
+     * @param accounts	the accounts, in file order
+     */
+    private void handOff(List<Account> accounts) {
+        boolean isNewBatch;
+        synchronized (this.pendingLock) {
+            isNewBatch = this.pending == null;
+            if (isNewBatch) {
+                this.pending = new ArrayList<Account>(accounts);
+            } else {
+                this.pending.addAll(accounts);
+            }
+        }
+        if (isNewBatch) {
+            Platform.runLater(new Runnable() {
+                @Override
+                public void run() {
+                    addPending();
+                }
+            });
+        }
+    }
+
+    /**
+     * Adds the waiting batch to the database, unless the task was cancelled first<br>
+     * Only runs on the application thread
+     */
+    private void addPending() {
+        ArrayList<Account> batch;
+        synchronized (this.pendingLock) {
+            batch = this.pending;
+            this.pending = null;
+        }
+        if (batch == null || isCancelled()) {
+            return;
+        }
+
+        BulkAddResult result = this.db.addAll(batch);
+        this.accountsAdded += result.getAddedCount();
+        this.duplicates += result.getRejectedCount();
+        if (this.onBatchAdded != null) {
+            this.onBatchAdded.run();
+        }
+    }
+
+    /**
+     * Gets the number of accounts added to the database so far<br>
+     * Only call on the application thread
+     * @return	the number of accounts
+     */
+    public int getAccountsAdded() {
+        return this.accountsAdded;
+    }
+
+    /**
+     * Gets the number of accounts skipped so far since they were already in the file or database<br>
+     * Only call on the application thread
+     * @return	the number of accounts
+     */
+    public int getDuplicates() {
+        return this.duplicates;
+    }
+
+    /**
+     * Gets the result of the import once the task has succeeded<br>
+     * Only call on the application thread, where every batch has been added by the time the task succeeds
+     * @return	the lines read, the accounts added and skipped, and the errors found
+     */
+    public ImportResult getResult() {
+        return getValue().withAdded(this.accountsAdded, this.duplicates);
+    }
+}
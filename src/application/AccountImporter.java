@@ -0,0 +1,573 @@
+package application;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * This class imports accounts from a file in the export format<br>
+ * The file is memory-mapped and split into chunks that end on line breaks, and each chunk is parsed straight from its
+ * bytes as a separate task on a fork/join pool. The parsed accounts are then added in file order in one bulk add,
+ * skipping accounts already in the file or database, or handed to a ChunkHandler a chunk at a time. A line that cannot be read is reported with its line number
+ * and skipped, so one bad line does not stop the rest of the file from loading
+ * @author Steven Nguyen, Julian Romero
+ */
+public final class AccountImporter {
+    private static final int CHUNK_SIZE = 1 << 22;
+    private static final int FIELD_COUNT = 6;
+    private static final int MAX_MONTH_DIGITS = 2;
+    private static final int MAX_DAY_DIGITS = 2;
+    private static final int MAX_YEAR_DIGITS = 4;
+    private static final int MAX_DOLLAR_DIGITS = 15;
+    private static final int MAX_WITHDRAWAL_DIGITS = 9;
+
+    private AccountImporter() {
+    }
+
+    /**
+     * Imports the accounts in a file into a database
+     * @param file			the file, with one account per line in the export format
+     * @param db			the database to add the accounts to
+     * @return				the number of accounts added and skipped, and the errors found
+     * @throws IOException	if the file cannot be read
+     */
+    public static ImportResult importFile(File file, AccountDatabase db) throws IOException {
+        final ArrayList<Account> accounts = new ArrayList<Account>();
+        ImportResult parsed = importFile(file, new ChunkHandler() {
+            @Override
+            public boolean accept(List<Account> chunk, long bytesRead, long bytesTotal) {
+                accounts.addAll(chunk);
+                return true;
+            }
+        });
+        BulkAddResult added = db.addAll(accounts);
+        return parsed.withAdded(added.getAddedCount(), added.getRejectedCount());
+    }
+
+    /**
+     * Reads the accounts in a file and hands them to a handler one chunk at a time, in file order<br>
+     * Chunks are still parsed in parallel; the handler gets each one as soon as it and every chunk before it are
+     * parsed, and can stop the import between chunks
+     * @param file			the file, with one account per line in the export format
+     * @param handler		what to do with the accounts of each chunk
+     * @return				the lines read and the errors found, with every account handed over counted as added
+     * 						and the result marked cancelled if the handler stopped the import
+     * @throws IOException	if the file cannot be read
+     */
+    public static ImportResult importFile(File file, ChunkHandler handler) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            long[] bounds = chunkBounds(channel);
+            long size = bounds[bounds.length - 1];
+            ParseTask[] tasks = new ParseTask[bounds.length - 1];
+            for (int i = 0; i < tasks.length; i++) {
+                tasks[i] = new ParseTask(channel.map(FileChannel.MapMode.READ_ONLY, bounds[i], bounds[i + 1] - bounds[i]));
+            }
+            if (tasks.length > 1) {
+                for (ParseTask task : tasks) {
+                    task.fork();
+                }
+            }
+
+            ArrayList<String> errors = new ArrayList<String>();
+            int linesRead = 0;
+            int accountsRead = 0;
+            int errorCount = 0;
+            for (int i = 0; i < tasks.length; i++) {
+                ParsedChunk chunk = tasks.length == 1 ? tasks[i].compute() : tasks[i].join();
+                for (int j = 0; j < chunk.errorLines.size(); j++) {
+                    if (errors.size() < ImportResult.MAX_ERRORS) {
+                        errors.add("Line " + (linesRead + chunk.errorLines.get(j) + 1) + ": " + chunk.errors.get(j));
+                    }
+                    errorCount++;
+                }
+                linesRead += chunk.lineCount;
+                accountsRead += chunk.accounts.size();
+                if (!handler.accept(chunk.accounts, bounds[i + 1], size)) {
+                    for (int j = i + 1; j < tasks.length; j++) {
+                        tasks[j].cancel(false);
+                    }
+                    return new ImportResult(linesRead, accountsRead, 0, errorCount, errors, true);
+                }
+            }
+            return new ImportResult(linesRead, accountsRead, 0, errorCount, errors, false);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Receives the accounts of an import one chunk at a time, in file order
+     */
+    public interface ChunkHandler {
+        /**
+         * Takes the accounts read from one chunk of the file
+         * @param accounts		the accounts, in file order
+         * @param bytesRead		the number of bytes of the file read so far
+         * @param bytesTotal	the size of the file in bytes
+         * @return				true to go on to the next chunk, or false to stop the import
+         */
+        boolean accept(List<Account> accounts, long bytesRead, long bytesTotal);
+    }
+
+    /**
+     * Splits a file into chunks of about CHUNK_SIZE bytes that each end just after a line break
+     * @param channel		the file
+     * @return				the start of each chunk, followed by the end of the file
+     * @throws IOException	if the file cannot be read
+     */
+    private static long[] chunkBounds(FileChannel channel) throws IOException {
+        long size = channel.size();
+        int chunkCount = (int) Math.max(1, (size + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        long[] bounds = new long[chunkCount + 1];
+        ByteBuffer probe = ByteBuffer.allocate(256);
+        for (int i = 1; i < chunkCount; i++) {
+            long position = Math.max((long) i * CHUNK_SIZE, bounds[i - 1]);
+            bounds[i] = size;
+            // Moves the bound forward to just after the next line break
+            while (position < size && bounds[i] == size) {
+                probe.clear();
+                int read = channel.read(probe, position);
+                if (read <= 0) {
+                    break;
+                }
+                for (int j = 0; j < read; j++) {
+                    if (probe.get(j) == '\n') {
+                        bounds[i] = position + j + 1;
+                        break;
+                    }
+                }
+                position += read;
+            }
+        }
+        bounds[chunkCount] = size;
+        return bounds;
+    }
+
+    /**
+     * The accounts and errors parsed from one chunk of a file
+     */
+    private static class ParsedChunk {
+        private final ArrayList<Account> accounts = new ArrayList<Account>();
+        private final ArrayList<Integer> errorLines = new ArrayList<Integer>();
+        private final ArrayList<String> errors = new ArrayList<String>();
+        private int lineCount;
+    }
+
+    /**
+     * Parses the lines of one chunk of a file straight from its bytes
+     */
+    private static class ParseTask extends RecursiveTask<ParsedChunk> {
+        private static final long serialVersionUID = 1L;
+
+        private final MappedByteBuffer bytes;
+        private byte[] scratch;
+        private String error;
+
+        /**
+         * Constructs a task to parse a chunk
+         * @param _bytes	the chunk, starting at the start of a line
+         */
+        ParseTask(MappedByteBuffer _bytes) {
+            this.bytes = _bytes;
+            this.scratch = new byte[64];
+        }
+
+        /**
+         * Parses every line of the chunk<br>
+         * Empty lines are counted but otherwise skipped
+         * @return	the accounts and errors in the chunk
+         */
+        @Override
+        protected ParsedChunk compute() {
+            ParsedChunk chunk = new ParsedChunk();
+            int limit = this.bytes.limit();
+            int lineStart = 0;
+            while (lineStart < limit) {
+                int lineEnd = lineStart;
+                while (lineEnd < limit && this.bytes.get(lineEnd) != '\n') {
+                    lineEnd++;
+                }
+                int next = lineEnd + 1;
+                if (lineEnd > lineStart && this.bytes.get(lineEnd - 1) == '\r') {
+                    lineEnd--;
+                }
+
+                if (lineEnd > lineStart) {
+                    Account account = this.parseLine(lineStart, lineEnd);
+                    if (account != null) {
+                        chunk.accounts.add(account);
+                    } else {
+                        chunk.errorLines.add(chunk.lineCount);
+                        chunk.errors.add(this.error);
+                    }
+                }
+                chunk.lineCount++;
+                lineStart = next;
+            }
+            return chunk;
+        }
+
+        /**
+         * Parses one line into an account
+         * @param start	the index of the first byte of the line
+         * @param end	the index after the last byte of the line, not counting the line break
+         * @return		the account, or null with error set if the line is not a valid account
+         */
+        private Account parseLine(int start, int end) {
+            int[] fieldEnds = new int[FIELD_COUNT];
+            int fieldCount = 0;
+            for (int i = start; i < end; i++) {
+                if (this.bytes.get(i) == ',') {
+                    if (fieldCount == FIELD_COUNT - 1) {
+                        return this.fail("expected " + FIELD_COUNT + " fields");
+                    }
+                    fieldEnds[fieldCount++] = i;
+                }
+            }
+            if (fieldCount != FIELD_COUNT - 1) {
+                return this.fail("expected " + FIELD_COUNT + " fields");
+            }
+            fieldEnds[fieldCount] = end;
+
+            byte type = this.bytes.get(start);
+            if (fieldEnds[0] != start + 1 || (type != 'C' && type != 'S' && type != 'M')) {
+                return this.fail("invalid account type");
+            }
+            String firstName = this.parseName(fieldEnds[0] + 1, fieldEnds[1]);
+            if (firstName == null) {
+                return this.fail("invalid first name");
+            }
+            String lastName = this.parseName(fieldEnds[1] + 1, fieldEnds[2]);
+            if (lastName == null) {
+                return this.fail("invalid last name");
+            }
+            long balance = this.parseCents(fieldEnds[2] + 1, fieldEnds[3]);
+            if (this.error != null) {
+                return this.fail("invalid balance");
+            }
+            Date dateOpen = this.parseDate(fieldEnds[3] + 1, fieldEnds[4]);
+            if (dateOpen == null) {
+                return this.fail("invalid date");
+            }
+
+            Profile holder = new Profile(firstName, lastName);
+            int lastStart = fieldEnds[4] + 1;
+            int lastEnd = fieldEnds[5];
+            if (type == 'M') {
+                int withdrawals = this.parseDigits(lastStart, lastEnd, MAX_WITHDRAWAL_DIGITS);
+                if (withdrawals < 0) {
+                    return this.fail("invalid withdrawals");
+                }
+                return new MoneyMarket(holder, balance, dateOpen, withdrawals);
+            }
+
+            int flag = this.parseBoolean(lastStart, lastEnd);
+            if (flag < 0) {
+                return this.fail(type == 'C' ? "invalid direct deposit" : "invalid loyal customer");
+            }
+            if (type == 'C') {
+                return new Checking(holder, balance, dateOpen, flag == 1);
+            }
+            return new Savings(holder, balance, dateOpen, flag == 1);
+        }
+
+        /**
+         * Records why a line could not be parsed
+         * @param message	the reason
+         * @return			null
+         */
+        private Account fail(String message) {
+            this.error = message;
+            return null;
+        }
+
+        /**
+         * Parses a name, which must be letters only
+         * @param start	the index of the first byte
+         * @param end	the index after the last byte
+         * @return		the name, or null if it is empty or not all letters
+         */
+        private String parseName(int start, int end) {
+            if (start == end) {
+                return null;
+            }
+            if (end - start > this.scratch.length) {
+                this.scratch = new byte[end - start];
+            }
+            for (int i = start; i < end; i++) {
+                byte letter = this.bytes.get(i);
+                if (!((letter >= 'a' && letter <= 'z') || (letter >= 'A' && letter <= 'Z'))) {
+                    return null;
+                }
+                this.scratch[i - start] = letter;
+            }
+            return new String(this.scratch, 0, end - start, StandardCharsets.US_ASCII);
+        }
+
+        /**
+         * Parses an amount of money, such as "-1234.5"<br>
+         * Amounts with more than two fraction digits or in other forms are rounded like a typed in amount
+         * @param start	the index of the first byte
+         * @param end	the index after the last byte
+         * @return		the amount in cents, with error set if it is not a number
+         */
+        private long parseCents(int start, int end) {
+            this.error = null;
+            int i = start;
+            boolean isNegative = i < end && this.bytes.get(i) == '-';
+            if (isNegative) {
+                i++;
+            }
+            long dollars = 0;
+            int dollarDigits = 0;
+            while (i < end && this.isDigit(i) && dollarDigits < MAX_DOLLAR_DIGITS) {
+                dollars = dollars * 10 + (this.bytes.get(i++) - '0');
+                dollarDigits++;
+            }
+            long cents = 0;
+            int fractionDigits = 0;
+            boolean hasPoint = i < end && this.bytes.get(i) == '.';
+            if (hasPoint) {
+                i++;
+                while (i < end && this.isDigit(i) && fractionDigits < 2) {
+                    cents = cents * 10 + (this.bytes.get(i++) - '0');
+                    fractionDigits++;
+                }
+            }
+
+            if (i == end && dollarDigits + fractionDigits > 0) {
+                cents = dollars * Money.CENTS_PER_DOLLAR + (fractionDigits == 1 ? cents * 10 : cents);
+                // The same limit as a typed in amount, so a file cannot hold a balance the UI would reject
+                if (cents > Money.MAX_DOLLARS * Money.CENTS_PER_DOLLAR) {
+                    this.error = "invalid balance";
+                    return 0;
+                }
+                return isNegative ? -cents : cents;
+            }
+            try {
+                String text = new String(this.copy(start, end), 0, end - start, StandardCharsets.US_ASCII);
+                return Money.toCents(Double.parseDouble(text));
+            } catch (IllegalArgumentException e) {
+                this.error = "invalid balance";
+                return 0;
+            }
+        }
+
+        /**
+         * Parses a date in the form m/d/yyyy
+         * @param start	the index of the first byte
+         * @param end	the index after the last byte
+         * @return		the date, or null if it is not a valid date
+         */
+        private Date parseDate(int start, int end) {
+            int firstSlash = this.indexOf('/', start, end);
+            int secondSlash = this.indexOf('/', firstSlash + 1, end);
+            if (secondSlash == end) {
+                return null;
+            }
+            int month = this.parseDigits(start, firstSlash, MAX_MONTH_DIGITS);
+            int day = this.parseDigits(firstSlash + 1, secondSlash, MAX_DAY_DIGITS);
+            int year = this.parseDigits(secondSlash + 1, end, MAX_YEAR_DIGITS);
+            if (month < 0 || day < 0 || year < 0 || !Date.isValid(month, day, year)) {
+                return null;
+            }
+            return new Date(month, day, year);
+        }
+
+        /**
+         * Parses a whole number that is not negative
+         * @param start		the index of the first byte
+         * @param end		the index after the last byte
+         * @param maxDigits	the most digits allowed
+         * @return			the number, or -1 if it is empty, too long or not all digits
+         */
+        private int parseDigits(int start, int end, int maxDigits) {
+            if (start >= end || end - start > maxDigits) {
+                return -1;
+            }
+            int value = 0;
+            for (int i = start; i < end; i++) {
+                if (!this.isDigit(i)) {
+                    return -1;
+                }
+                value = value * 10 + (this.bytes.get(i) - '0');
+            }
+            return value;
+        }
+
+        /**
+         * Parses "true" or "false", ignoring case
+         * @param start	the index of the first byte
+         * @param end	the index after the last byte
+         * @return		1 for true, 0 for false, or -1 for anything else
+         */
+        private int parseBoolean(int start, int end) {
+            String text = new String(this.copy(start, end), 0, end - start, StandardCharsets.US_ASCII);
+            if (text.equalsIgnoreCase("true")) {
+                return 1;
+            } else if (text.equalsIgnoreCase("false")) {
+                return 0;
+            }
+            return -1;
+        }
+
+        /**
+         * Gets if a byte is an ASCII digit
+         * @param i	the index of the byte
+         * @return	true if the byte is 0 through 9
+         */
+        private boolean isDigit(int i) {
+            byte digit = this.bytes.get(i);
+            return digit >= '0' && digit <= '9';
+        }
+
+        /**
+         * Finds a byte in a range
+         * @param value	the byte to find
+         * @param start	the index to start at
+         * @param end	the index to stop at
+         * @return		the index of the byte, or end if it is not in the range
+         */
+        private int indexOf(char value, int start, int end) {
+            for (int i = start; i < end; i++) {
+                if (this.bytes.get(i) == value) {
+                    return i;
+                }
+            }
+            return end;
+        }
+
+        /**
+         * Copies a range of bytes into the scratch buffer
+         * @param start	the index of the first byte
+         * @param end	the index after the last byte
+         * @return		the scratch buffer, holding the bytes from index 0
+         */
+        private byte[] copy(int start, int end) {
+            if (end - start > this.scratch.length) {
+                this.scratch = new byte[end - start];
+            }
+            this.bytes.get(start, this.scratch, 0, end - start);
+            return this.scratch;
+        }
+    }
+
+    /**
+     * Testmain - tests importing good, bad and duplicate lines, and a file large enough to be split into chunks
+     * @param args	unused
+     */
+    public static void main(String[] args) {
+        try {
+            testImport();
+        } catch (IOException e) {
+            System.out.println("Unexpected: " + e);
+        }
+    }
+
+    /**
+     * Tests importing good, bad and duplicate lines, and a file large enough to be split into chunks
+     * @throws IOException	if the test file cannot be used
+     */
+    private static void testImport() throws IOException {
+        File file = File.createTempFile("accounts", ".txt");
+        file.deleteOnExit();
+        String lines = "C,John,Doe,1500.00,1/2/2020,true\n"
+                + "S,Jane,Doe,-25.5,12/31/1999,FALSE\r\n"
+                + "M,Ann,Lee,2500,3/4/2021,12\n"
+                + "\n"
+                + "C,John,Doe,1,1/1/2000,false\n"
+                + "X,Bad,Type,1,1/1/2000,true\n"
+                + "C,Bad1,Name,1,1/1/2000,true\n"
+                + "C,Bad,Date,1,2/30/2001,true\n"
+                + "C,Bad,Money,1.2.3,1/1/2000,true\n"
+                + "M,Bad,Count,1,1/1/2000,x\n"
+                + "C,Too,Few,1,1/1/2000\n"
+                + "S,Too,Rich,999999999999999.99,1/1/2000,false\n"
+                + "S,Just,Rich,-1000000000000,1/1/2000,false\n"
+                + "C,Odd,Money,1.005,2/29/2024,true";
+        java.nio.file.Files.write(file.toPath(), lines.getBytes(StandardCharsets.US_ASCII));
+
+        AccountDatabase db = new AccountDatabase();
+        db.add(new MoneyMarket("Ann", "Lee", 1, 1, 1, 2000));
+        ImportResult result = importFile(file, db);
+        if (result.getLinesRead() == 14 && result.getAccountsAdded() == 4 && result.getDuplicates() == 2
+                && result.getErrorCount() == 7 && result.getErrors().get(0).equals("Line 6: invalid account type")
+                && result.getErrors().get(6).equals("Line 12: invalid balance")
+                && db.printAccountsForExport().equals("M,Ann,Lee,1.00,1/1/2000,0\n"
+                        + "C,John,Doe,1500.00,1/2/2020,true\n" + "S,Jane,Doe,-25.50,12/31/1999,false\n"
+                        + "S,Just,Rich,-1000000000000.00,1/1/2000,false\n" + "C,Odd,Money,1.01,2/29/2024,true\n")) {
+            System.out.println("Expected: good lines imported, bad lines reported, duplicates skipped");
+        } else {
+            System.out.println("Unexpected: import gave " + result + db.printAccountsForExport());
+        }
+
+        // Tests if a file split into several chunks imports every account once
+        AccountDatabase source = new AccountDatabase();
+        for (int i = 0; i < 200000; i++) {
+            source.add(new Checking("F" + toLetters(i), "L" + toLetters(i % 97), i, 1 + i % 12, 1 + i % 28,
+                    1990 + i % 30, i % 2 == 0));
+            source.add(new MoneyMarket("F" + toLetters(i), "L" + toLetters(i % 97), i * 3, 1, 1, 2000, i % 11));
+        }
+        FileChannel output = FileChannel.open(file.toPath(), StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        source.printAccountsForExport(output);
+        output.close();
+        long startTime = System.nanoTime();
+        AccountDatabase imported = new AccountDatabase();
+        result = importFile(file, imported);
+        long elapsedMillis = (System.nanoTime() - startTime) / 1000000;
+        if (file.length() > CHUNK_SIZE && result.getAccountsAdded() == source.getsize()
+                && imported.printAccountsForExport().equals(source.printAccountsForExport())) {
+            System.out.println("Expected: " + result.getAccountsAdded() + " accounts imported from "
+                    + (file.length() / CHUNK_SIZE + 1) + " chunks in " + elapsedMillis + " ms");
+        } else {
+            System.out.println("Unexpected: chunked import gave " + result);
+        }
+
+        // Tests if a handler gets the chunks in order with progress, and can stop the import after the first one
+        final long[] progress = new long[2];
+        final ArrayList<Account> handed = new ArrayList<Account>();
+        result = importFile(file, new ChunkHandler() {
+            @Override
+            public boolean accept(List<Account> accounts, long bytesRead, long bytesTotal) {
+                handed.addAll(accounts);
+                progress[0] = bytesRead;
+                progress[1] = bytesTotal;
+                return false;
+            }
+        });
+        Account[] expected = source.getAccounts();
+        boolean isPrefix = handed.size() > 0 && handed.size() < expected.length;
+        for (int i = 0; isPrefix && i < handed.size(); i++) {
+            isPrefix = handed.get(i).equals(expected[i]);
+        }
+        if (result.isCancelled() && isPrefix && result.getAccountsAdded() == handed.size()
+                && progress[0] < progress[1] && progress[1] == file.length()
+                && result.toString().startsWith("Import cancelled after " + result.getLinesRead() + " lines")) {
+            System.out.println("Expected: import stopped after the first chunk of " + handed.size() + " accounts");
+        } else {
+            System.out.println("Unexpected: stopped import gave " + result);
+        }
+    }
+
+    /**
+     * Spells a number with letters, since names cannot hold digits
+     * @param number	a number that is not negative
+     * @return			the number written with the letters a through j
+     */
+    private static String toLetters(int number) {
+        StringBuilder letters = new StringBuilder();
+        AccountFormat.appendDigits(letters, number);
+        for (int i = 0; i < letters.length(); i++) {
+            letters.setCharAt(i, (char) (letters.charAt(i) - '0' + 'a'));
+        }
+        return letters.toString();
+    }
+}
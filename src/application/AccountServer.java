@@ -0,0 +1,493 @@
+package application;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * This class lets other processes on the same computer run account commands over TCP<br>
+ * Clients send the commands of the batch processor, one per line, and get back one line for each, starting with OK
+ * or ERR, such as "OK Checking Account, John Doe, has been added.". The print commands are not available, since
+ * their output takes many lines, and blank lines are skipped. A connection stays open for any number of commands,
+ * and a client may send many commands without waiting for answers: the answers come back in the order the commands
+ * were sent, and are only flushed once every command received so far has been answered. Each connection is served
+ * by its own thread, a virtual thread when the JVM has them, and every connection shares one
+ * ConcurrentAccountDatabase, so deposits and withdrawals on different connections do not wait for each other.
+ * The server only listens on the loopback address
+ * @author Steven Nguyen, Julian Romero
+ */
+public class AccountServer implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 13;
+    private static final int BACKLOG = 128;
+    private static final int IDLE_TIMEOUT = 60000;
+
+    private final ConcurrentAccountDatabase db;
+    private final ServerSocket serverSocket;
+    private final ExecutorService connectionExecutor;
+    private final boolean isVirtual;
+    private final Set<Socket> connections;
+    private final Thread acceptThread;
+    private volatile boolean isClosed;
+    private volatile DatabaseFiles files;
+
+    /**
+     * Constructs a server listening on the loopback address<br>
+     * The server takes no connections until it is started
+     * @param _db			the database to run the commands against
+     * @param port			the port to listen on, or 0 for any free port
+     * @throws IOException	if the port cannot be listened on
+     */
+    public AccountServer(ConcurrentAccountDatabase _db, int port) throws IOException {
+        this.db = _db;
+        this.serverSocket = new ServerSocket(port, BACKLOG, InetAddress.getLoopbackAddress());
+        ExecutorService virtualExecutor = newVirtualExecutor();
+        this.isVirtual = virtualExecutor != null;
+        if (virtualExecutor != null) {
+            this.connectionExecutor = virtualExecutor;
+        } else {
+            this.connectionExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "account-connection");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        this.connections = ConcurrentHashMap.newKeySet();
+        this.acceptThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                acceptConnections();
+            }
+        }, "account-server");
+    }
+
+    /**
+     * Gets an executor that runs each task on a new virtual thread
+     * @return	the executor, or null if the JVM has no virtual threads
+     */
+    private static ExecutorService newVirtualExecutor() {
+        try {
+            // Looked up by name so the server still runs on JVMs from before virtual threads
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Runs a server from the command line until the process is stopped<br>
+     * Arguments: optionally --data and the path of the files the database is kept in, optionally the port,
+     * and a file of accounts in the export format to import before listening.
+     * With --data the server starts from the saved accounts, and its files are closed when the process is stopped
+     * @param args	the command line arguments
+     * @return		1 if the arguments or files could not be used, otherwise the server never returns
+     */
+    public static int run(String[] args) {
+        File dataPath = DatabaseFiles.dataOption(args);
+        args = DatabaseFiles.withoutDataOption(args);
+        if (args.length > 2 || (args.length > 0 && !InputValidator.isValidInteger(args[0]))) {
+            System.err.println("Arguments: [--data <path>] [port] [accounts file]");
+            return 1;
+        }
+
+        ConcurrentAccountDatabase db = new ConcurrentAccountDatabase();
+        DatabaseFiles files = null;
+        try {
+            if (dataPath != null) {
+                files = DatabaseFiles.open(dataPath, db);
+                System.out.println("Restored " + db.getsize() + " accounts from " + files.getSnapshotFile() + " and "
+                        + files.getJournalFile());
+            }
+            if (args.length == 2) {
+                System.out.print(AccountImporter.importFile(new File(args[1]), db));
+            }
+            AccountServer server = new AccountServer(db, args.length > 0 ? Integer.parseInt(args[0]) : 0);
+            server.setFiles(files);
+            Runtime.getRuntime().addShutdownHook(new Thread(shutdown(server, files), "account-server-shutdown"));
+            server.start();
+            System.out.println("Listening on " + InetAddress.getLoopbackAddress().getHostAddress() + ":"
+                    + server.getPort() + (server.isVirtual() ? " with virtual threads" : " with platform threads"));
+            server.acceptThread.join();
+            return 0;
+        } catch (IOException e) {
+            System.err.println("Cannot start server: " + e.getMessage());
+            closeFiles(files);
+            return 1;
+        } catch (InterruptedException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Gets the work to do when the process is stopped: stop taking commands, then save every change made
+     * @param server	the server
+     * @param files		the files the database is kept in, or null if it is not kept in files
+     * @return			the work, for a shutdown hook
+     */
+    private static Runnable shutdown(final AccountServer server, final DatabaseFiles files) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                server.close();
+                closeFiles(files);
+            }
+        };
+    }
+
+    /**
+     * Closes the files a database is kept in, reporting an error since the process is ending either way
+     * @param files	the files, or null if the database is not kept in files
+     */
+    private static void closeFiles(DatabaseFiles files) {
+        if (files == null) {
+            return;
+        }
+        try {
+            files.close();
+        } catch (IOException e) {
+            System.err.println("Cannot save accounts: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Sets the files the database is kept in, so the server takes a checkpoint whenever enough changes are logged
+     * @param _files	the files, or null if the database is not kept in files
+     */
+    void setFiles(DatabaseFiles _files) {
+        this.files = _files;
+    }
+
+    /**
+     * Starts taking connections
+     */
+    public void start() {
+        this.acceptThread.start();
+    }
+
+    /**
+     * Gets the port the server listens on
+     * @return	the port
+     */
+    public int getPort() {
+        return this.serverSocket.getLocalPort();
+    }
+
+    /**
+     * Gets if connections are served by virtual threads
+     * @return	true for virtual threads, false for pooled platform threads
+     */
+    public boolean isVirtual() {
+        return this.isVirtual;
+    }
+
+    /**
+     * Stops taking connections and closes every open connection
+     */
+    @Override
+    public void close() {
+        this.isClosed = true;
+        try {
+            this.serverSocket.close();
+        } catch (IOException e) {
+            // The server socket is being thrown away either way
+        }
+        for (Socket socket : this.connections) {
+            closeQuietly(socket);
+        }
+        this.connectionExecutor.shutdown();
+    }
+
+    /**
+     * Takes connections until the server is closed, serving each one on its own thread
+     */
+    private void acceptConnections() {
+        while (!this.isClosed) {
+            final Socket socket;
+            try {
+                socket = this.serverSocket.accept();
+            } catch (IOException e) {
+                // Accepting only fails for good once the server socket is closed
+                if (this.serverSocket.isClosed()) {
+                    return;
+                }
+                continue;
+            }
+            this.connections.add(socket);
+            try {
+                this.connectionExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        serve(socket);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // The server was closed while the connection was being taken
+                this.connections.remove(socket);
+                closeQuietly(socket);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Runs the commands sent on a connection until the client closes it or it is idle too long
+     * @param socket	the connection
+     */
+    private void serve(Socket socket) {
+        try {
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(IDLE_TIMEOUT);
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                    StandardCharsets.UTF_8), BUFFER_SIZE);
+            Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8),
+                    BUFFER_SIZE);
+            BatchProcessor processor = new BatchProcessor(this.db);
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (!line.trim().isEmpty()) {
+                    try {
+                        out.write(processor.runLine(line) ? "OK " : "ERR ");
+                        out.write(processor.getMessage());
+                    } catch (RuntimeException e) {
+                        // One failed command must not drop the commands sent after it on the same connection
+                        out.write("ERR Command failed: ");
+                        out.write(String.valueOf(e));
+                    }
+                    out.write('\n');
+                    this.checkpointIfNeeded();
+                }
+                // Answers to commands sent together go out together
+                if (!in.ready()) {
+                    out.flush();
+                }
+            }
+            out.flush();
+        } catch (IOException e) {
+            // The client went away or was idle too long, so there is no one left to answer
+        } finally {
+            this.connections.remove(socket);
+            closeQuietly(socket);
+        }
+    }
+
+    /**
+     * Takes a checkpoint if enough changes were logged since the last one<br>
+     * A failed checkpoint is reported here, since the command that triggered it already succeeded.
+     * If the journal failed too, later changes are answered with ERR
+     */
+    private void checkpointIfNeeded() {
+        DatabaseFiles databaseFiles = this.files;
+        if (databaseFiles == null) {
+            return;
+        }
+        try {
+            databaseFiles.checkpointIfNeeded();
+        } catch (IOException e) {
+            System.err.println("Cannot save checkpoint: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Closes a connection, ignoring any error since it is being thrown away
+     * @param socket	the connection
+     */
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Nothing more can be done with the connection
+        }
+    }
+
+    /**
+     * Testmain - tests the answers to each kind of command, then load tests the server with clients that each send
+     * all their commands without waiting for answers
+     * @param args	unused
+     */
+    public static void main(String[] args) {
+        ConcurrentAccountDatabase db = new ConcurrentAccountDatabase();
+        AccountServer server;
+        try {
+            server = new AccountServer(db, 0);
+        } catch (IOException e) {
+            System.out.println("Unexpected: " + e);
+            return;
+        }
+        server.start();
+
+        try {
+            // Tests if every command gets exactly one line back, in order, on one connection
+            String[] answers = send(server.getPort(), "OC John Doe 500 1/2/2020 true\n\nDC John Doe 25\n"
+                    + "WC John Doe 1000\nQC John Doe\nPA\nOC J0hn Doe 1 1/1/2000 true\nME\n");
+            if (answers.length == 7 && answers[0].equals("OK Checking Account, John Doe, has been added.")
+                    && answers[1].equals("OK Successfully deposited $25.00 to Checking Account, John Doe!")
+                    && answers[2].equals("ERR Checking Account, John Doe, does not have enough balance.")
+                    && answers[3].equals("OK *Checking*John Doe* $525.00*1/2/2020*direct deposit account*")
+                    && answers[4].equals("ERR Invalid command!")
+                    && answers[5].equals("ERR First name cannot have numbers or symbols!")
+                    && answers[6].startsWith("OK Month end: 1 accounts")) {
+                System.out.println("Expected: each command answered on one line, in order");
+            } else {
+                System.out.println("Unexpected: answers were " + java.util.Arrays.toString(answers));
+            }
+
+            failureTest();
+            loadTest(server);
+        } catch (Exception e) {
+            System.out.println("Unexpected: " + e);
+        } finally {
+            server.close();
+        }
+    }
+
+    /**
+     * Tests if a command that throws is answered with ERR and the commands sent after it on the connection still run
+     * @throws Exception	if a client cannot talk to the server
+     */
+    private static void failureTest() throws Exception {
+        AccountServer server = new AccountServer(new ConcurrentAccountDatabase() {
+            @Override
+            public boolean depositCents(Account account, long cents) {
+                throw new IllegalStateException("journal cannot be written");
+            }
+        }, 0);
+        server.start();
+        try {
+            String[] answers = send(server.getPort(), "OC John Doe 5 1/1/2000 true\nDC John Doe 5\nQC John Doe\n");
+            if (answers.length == 3 && answers[0].startsWith("OK ")
+                    && answers[1].equals("ERR Command failed: " + new IllegalStateException("journal cannot be written"))
+                    && answers[2].equals("OK *Checking*John Doe* $5.00*1/1/2000*direct deposit account*")) {
+                System.out.println("Expected: a command that throws is answered with ERR and later commands still run");
+            } else {
+                System.out.println("Unexpected: answers were " + java.util.Arrays.toString(answers));
+            }
+        } finally {
+            server.close();
+        }
+    }
+
+    /**
+     * Load tests a server with several clients at once, each on its own connection
+     * @param server		the server, with no accounts named like the test accounts
+     * @throws Exception	if a client cannot talk to the server
+     */
+    private static void loadTest(final AccountServer server) throws Exception {
+        final int clientCount = 8;
+        final int accountsPerClient = 500;
+        final int depositsPerAccount = 10;
+        final int[] okCounts = new int[clientCount];
+        final Exception[] errors = new Exception[clientCount];
+        Thread[] clients = new Thread[clientCount];
+        for (int c = 0; c < clientCount; c++) {
+            final int client = c;
+            clients[c] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    StringBuilder commands = new StringBuilder();
+                    String last = "L" + (char) ('a' + client);
+                    for (int i = 0; i < accountsPerClient; i++) {
+                        String first = "F" + (char) ('a' + i % 26) + (char) ('a' + i / 26 % 26);
+                        commands.append("OS ").append(first).append(' ').append(last).append(" 0 1/1/2020 false\n");
+                    }
+                    for (int d = 0; d < depositsPerAccount; d++) {
+                        for (int i = 0; i < accountsPerClient; i++) {
+                            String first = "F" + (char) ('a' + i % 26) + (char) ('a' + i / 26 % 26);
+                            commands.append("DS ").append(first).append(' ').append(last).append(" 2\n");
+                            commands.append("WS ").append(first).append(' ').append(last).append(" 1\n");
+                        }
+                    }
+                    try {
+                        for (String answer : send(server.getPort(), commands.toString())) {
+                            if (answer.startsWith("OK ")) {
+                                okCounts[client]++;
+                            }
+                        }
+                    } catch (Exception e) {
+                        errors[client] = e;
+                    }
+                }
+            });
+        }
+
+        long startTime = System.nanoTime();
+        for (Thread client : clients) {
+            client.start();
+        }
+        for (Thread client : clients) {
+            client.join();
+        }
+        long elapsedNanos = System.nanoTime() - startTime;
+
+        int expectedOk = accountsPerClient * (1 + 2 * depositsPerAccount);
+        boolean isCorrect = true;
+        for (int c = 0; c < clientCount; c++) {
+            isCorrect &= errors[c] == null && okCounts[c] == expectedOk;
+        }
+        Account account = server.db.getAccount(new Savings("Fbt", "Lc"));
+        long commandCount = (long) clientCount * expectedOk;
+        if (isCorrect && account != null && account.getBalanceCents() == depositsPerAccount * 100) {
+            System.out.println("Expected: " + clientCount + " pipelined clients ran " + commandCount + " commands at "
+                    + (long) (commandCount * 1e9 / elapsedNanos) + " commands per second on "
+                    + (server.isVirtual() ? "virtual" : "platform") + " threads");
+        } else {
+            System.out.println("Unexpected: load test answered " + java.util.Arrays.toString(okCounts) + " "
+                    + java.util.Arrays.toString(errors));
+        }
+    }
+
+    /**
+     * Sends commands on a new connection without waiting for answers, then reads every answer
+     * @param port			the port of the server
+     * @param commands		the commands, one per line
+     * @return				the answers, one per command that is not blank
+     * @throws Exception	if the server cannot be reached
+     */
+    private static String[] send(int port, final String commands) throws Exception {
+        final Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        try {
+            // Sending from another thread keeps both sides from waiting on full socket buffers
+            Thread sender = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(),
+                                StandardCharsets.UTF_8), BUFFER_SIZE);
+                        out.write(commands);
+                        out.flush();
+                        socket.shutdownOutput();
+                    } catch (IOException e) {
+                        closeQuietly(socket);
+                    }
+                }
+            });
+            sender.start();
+            java.util.ArrayList<String> answers = new java.util.ArrayList<String>();
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                    StandardCharsets.UTF_8), BUFFER_SIZE);
+            String line;
+            while ((line = in.readLine()) != null) {
+                answers.add(line);
+            }
+            sender.join();
+            return answers.toArray(new String[0]);
+        } finally {
+            socket.close();
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package application;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.zip.CRC32;
+
+/**
+ * This class writes and reads a whole account database as one binary file<br>
+ * The file holds a header, a dictionary of the names used, one fixed-width record per account laid out like a
+ * record of MappedAccountDatabase, the record numbers in name order and in date order,
+ * and ends with a CRC32 checksum of everything before it.
+ * Reading takes the file in one bulk read, decodes the records straight from the buffer
+ * and rebuilds the sorted indexes from the saved orders without comparing accounts.
+ * A snapshot also records the journal generation it covers, so it can serve as a checkpoint for a TransactionJournal
+ * @author Steven Nguyen, Julian Romero
+ */
+public final class AccountSnapshot {
+    private static final int MAGIC = 0x41435350;
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 32;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int ACCOUNT_COUNT_OFFSET = 8;
+    private static final int NAME_COUNT_OFFSET = 12;
+    private static final int GENERATION_OFFSET = 16;
+    private static final int NAMES_LENGTH_OFFSET = 24;
+
+    private static final int RECORD_SIZE = 32;
+    private static final int TYPE_OFFSET = 0;
+    private static final int FLAGS_OFFSET = 1;
+    private static final int FIRST_NAME_OFFSET = 4;
+    private static final int LAST_NAME_OFFSET = 8;
+    private static final int OPEN_DATE_OFFSET = 12;
+    private static final int WITHDRAWALS_OFFSET = 16;
+    private static final int BALANCE_OFFSET = 24;
+
+    private static final int CHECKSUM_SIZE = 4;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private AccountSnapshot() {
+    }
+
+    /**
+     * Writes a snapshot of accounts, replacing the file only once the snapshot is completely on disk
+     * @param accounts		the accounts in the order they were added
+     * @param byName		the indexes of the accounts in order of last name, then first name
+     * @param byDate		the indexes of the accounts in order of date opened
+     * @param generation	the journal generation the snapshot covers, or 0 if there is no journal
+     * @param snapshotFile	the file to write
+     * @throws IOException	if the file cannot be written
+     */
+    static void write(Account[] accounts, int[] byName, int[] byDate, long generation, File snapshotFile)
+            throws IOException {
+        // Gives each distinct name an id, in the order the names are first used
+        HashMap<String, Integer> nameIds = new HashMap<String, Integer>();
+        ArrayList<byte[]> names = new ArrayList<byte[]>();
+        int namesLength = 0;
+        for (Account account : accounts) {
+            for (String name : new String[] {account.getProfile().getFName(), account.getProfile().getLName()}) {
+                if (!nameIds.containsKey(name)) {
+                    byte[] encoded = name.getBytes(StandardCharsets.UTF_8);
+                    nameIds.put(name, names.size());
+                    names.add(encoded);
+                    namesLength += 4 + encoded.length;
+                }
+            }
+        }
+
+        File tempFile = new File(snapshotFile.getPath() + ".tmp");
+        FileOutputStream output = new FileOutputStream(tempFile);
+        try {
+            FileChannel channel = output.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            CRC32 checksum = new CRC32();
+
+            buffer.putInt(MAGIC_OFFSET, MAGIC);
+            buffer.putInt(VERSION_OFFSET, VERSION);
+            buffer.putInt(ACCOUNT_COUNT_OFFSET, accounts.length);
+            buffer.putInt(NAME_COUNT_OFFSET, names.size());
+            buffer.putLong(GENERATION_OFFSET, generation);
+            buffer.putInt(NAMES_LENGTH_OFFSET, namesLength);
+            buffer.position(HEADER_SIZE);
+
+            for (byte[] name : names) {
+                drain(channel, buffer, checksum, 4);
+                buffer.putInt(name.length);
+                for (int offset = 0; offset < name.length; ) {
+                    drain(channel, buffer, checksum, 1);
+                    int length = Math.min(buffer.remaining(), name.length - offset);
+                    buffer.put(name, offset, length);
+                    offset += length;
+                }
+            }
+
+            for (Account account : accounts) {
+                drain(channel, buffer, checksum, RECORD_SIZE);
+                int start = buffer.position();
+                buffer.put(start + TYPE_OFFSET, ColumnarAccountDatabase.typeOf(account));
+                buffer.put(start + FLAGS_OFFSET, ColumnarAccountDatabase.flagsOf(account));
+                buffer.putShort(start + FLAGS_OFFSET + 1, (short) 0);
+                buffer.putInt(start + FIRST_NAME_OFFSET, nameIds.get(account.getProfile().getFName()));
+                buffer.putInt(start + LAST_NAME_OFFSET, nameIds.get(account.getProfile().getLName()));
+                buffer.putInt(start + OPEN_DATE_OFFSET, account.getOpenDate().toPacked());
+                buffer.putInt(start + WITHDRAWALS_OFFSET,
+                        account instanceof MoneyMarket ? ((MoneyMarket) account).getWithdrawals() : 0);
+                buffer.putInt(start + WITHDRAWALS_OFFSET + 4, 0);
+                buffer.putLong(start + BALANCE_OFFSET, account.getBalanceCents());
+                buffer.position(start + RECORD_SIZE);
+            }
+            for (int[] order : new int[][] {byName, byDate}) {
+                for (int record : order) {
+                    drain(channel, buffer, checksum, 4);
+                    buffer.putInt(record);
+                }
+            }
+
+            drain(channel, buffer, checksum, BUFFER_SIZE);
+            buffer.putInt((int) checksum.getValue());
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        } finally {
+            output.close();
+        }
+
+        try {
+            Files.move(tempFile.toPath(), snapshotFile.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Writes out the buffer if it has less room than needed, adding what is written to the checksum
+     * @param channel		where to write the buffer
+     * @param buffer		the buffer
+     * @param checksum		the checksum of everything written so far
+     * @param needed		the number of bytes about to be put in the buffer
+     * @throws IOException	if the buffer cannot be written
+     */
+    private static void drain(FileChannel channel, ByteBuffer buffer, CRC32 checksum, int needed)
+            throws IOException {
+        if (buffer.remaining() >= needed) {
+            return;
+        }
+        buffer.flip();
+        checksum.update(buffer.duplicate());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Reads a snapshot into an empty database
+     * @param snapshotFile	the snapshot file
+     * @param db			the empty database to load the accounts into
+     * @return				the journal generation the snapshot covers
+     * @throws IOException	if the file cannot be read or is not a whole snapshot
+     */
+    public static long read(File snapshotFile, AccountDatabase db) throws IOException {
+        FileInputStream input = new FileInputStream(snapshotFile);
+        ByteBuffer buffer;
+        try {
+            FileChannel channel = input.getChannel();
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE + CHECKSUM_SIZE || fileSize > Integer.MAX_VALUE) {
+                throw new IOException("Not an account snapshot: " + snapshotFile);
+            }
+            buffer = ByteBuffer.allocate((int) fileSize);
+            while (buffer.hasRemaining() && channel.read(buffer) != -1) {
+                // Reads the whole file in as few reads as the channel allows
+            }
+        } finally {
+            input.close();
+        }
+
+        int end = buffer.capacity() - CHECKSUM_SIZE;
+        CRC32 checksum = new CRC32();
+        checksum.update(buffer.array(), 0, end);
+        if (buffer.getInt(MAGIC_OFFSET) != MAGIC || buffer.getInt(VERSION_OFFSET) != VERSION) {
+            throw new IOException("Not an account snapshot: " + snapshotFile);
+        }
+        if (buffer.getInt(end) != (int) checksum.getValue()) {
+            throw new IOException("Account snapshot is damaged: " + snapshotFile);
+        }
+
+        int accountCount = buffer.getInt(ACCOUNT_COUNT_OFFSET);
+        int nameCount = buffer.getInt(NAME_COUNT_OFFSET);
+        int namesLength = buffer.getInt(NAMES_LENGTH_OFFSET);
+        if ((long) HEADER_SIZE + namesLength + (long) accountCount * (RECORD_SIZE + 8) != end) {
+            throw new IOException("Account snapshot is damaged: " + snapshotFile);
+        }
+
+        String[] names = new String[nameCount];
+        int position = HEADER_SIZE;
+        for (int i = 0; i < nameCount; i++) {
+            int length = buffer.getInt(position);
+            names[i] = new String(buffer.array(), position + 4, length, StandardCharsets.UTF_8);
+            position += 4 + length;
+        }
+
+        // Accounts opened on the same day share one date, since dates are never changed
+        HashMap<Integer, Date> dates = new HashMap<Integer, Date>();
+        Account[] accounts = new Account[accountCount];
+        for (int i = 0; i < accountCount; i++, position += RECORD_SIZE) {
+            Profile holder = new Profile(names[buffer.getInt(position + FIRST_NAME_OFFSET)],
+                    names[buffer.getInt(position + LAST_NAME_OFFSET)]);
+            int packedDate = buffer.getInt(position + OPEN_DATE_OFFSET);
+            Date dateOpen = dates.get(packedDate);
+            if (dateOpen == null) {
+                dateOpen = Date.fromPacked(packedDate);
+                dates.put(packedDate, dateOpen);
+            }
+            long balance = buffer.getLong(position + BALANCE_OFFSET);
+            byte flags = buffer.get(position + FLAGS_OFFSET);
+            switch (buffer.get(position + TYPE_OFFSET)) {
+                case ColumnarAccountDatabase.CHECKING:
+                    accounts[i] = new Checking(holder, balance, dateOpen,
+                            (flags & ColumnarAccountDatabase.DIRECT_DEPOSIT) != 0);
+                    break;
+                case ColumnarAccountDatabase.SAVINGS:
+                    accounts[i] = new Savings(holder, balance, dateOpen, (flags & ColumnarAccountDatabase.LOYAL) != 0);
+                    break;
+                default:
+                    accounts[i] = new MoneyMarket(holder, balance, dateOpen,
+                            buffer.getInt(position + WITHDRAWALS_OFFSET));
+                    break;
+            }
+        }
+
+        Account[] byName = new Account[accountCount];
+        Account[] byDate = new Account[accountCount];
+        for (int i = 0; i < accountCount; i++, position += 4) {
+            byName[i] = accounts[buffer.getInt(position)];
+        }
+        for (int i = 0; i < accountCount; i++, position += 4) {
+            byDate[i] = accounts[buffer.getInt(position)];
+        }
+
+        db.loadSorted(accounts, byName, byDate);
+        return buffer.getLong(GENERATION_OFFSET);
+    }
+
+    /**
+     * Testmain - tests that a snapshot reads back the same database
+     * @param args	unused
+     */
+    public static void main(String[] args) {
+        try {
+            testRoundTrip();
+        } catch (IOException e) {
+            System.out.println("Unexpected: " + e);
+        }
+    }
+
+    /**
+     * Tests that a snapshot reads back the same database, quickly, and that a damaged snapshot is rejected
+     * @throws IOException	if the test files cannot be used
+     */
+    private static void testRoundTrip() throws IOException {
+        File snapshotFile = File.createTempFile("accounts", ".snapshot");
+        snapshotFile.deleteOnExit();
+
+        int accountCount = 1000000;
+        AccountDatabase db = new AccountDatabase(accountCount);
+        java.util.Random random = new java.util.Random(18);
+        for (int i = 0; i < accountCount; i++) {
+            String firstName = "F" + i;
+            String lastName = "L" + i % 1000;
+            int month = 1 + random.nextInt(12);
+            int day = 1 + random.nextInt(28);
+            int year = 1990 + random.nextInt(30);
+            switch (i % 3) {
+                case 0:
+                    db.add(new Checking(firstName, lastName, random.nextInt(5000), month, day, year, i % 2 == 0));
+                    break;
+                case 1:
+                    db.add(new Savings(firstName, lastName, random.nextInt(5000), month, day, year, i % 4 == 1));
+                    break;
+                default:
+                    db.add(new MoneyMarket(firstName, lastName, random.nextInt(5000), month, day, year, i % 9));
+                    break;
+            }
+        }
+        db.remove(new Checking("F0", "L0"));
+        db.withdrawal(new MoneyMarket("F2", "L2"), 1);
+        db.checkpoint(snapshotFile);
+
+        long startTime = System.nanoTime();
+        AccountDatabase loaded = new AccountDatabase();
+        read(snapshotFile, loaded);
+        long elapsedMillis = (System.nanoTime() - startTime) / 1000000;
+        if (loaded.printAccountsForExport().equals(db.printAccountsForExport())
+                && loaded.printByLastName().equals(db.printByLastName())) {
+            System.out.println("Expected: snapshot of " + loaded.getsize() + " accounts loaded in " + elapsedMillis
+                    + " ms matches the database");
+        } else {
+            System.out.println("Unexpected: snapshot does not match the database");
+        }
+
+        // Tests if a damaged snapshot is rejected
+        java.io.RandomAccessFile damaged = new java.io.RandomAccessFile(snapshotFile, "rw");
+        damaged.seek(HEADER_SIZE + 10);
+        int damagedByte = damaged.read();
+        damaged.seek(HEADER_SIZE + 10);
+        damaged.write(damagedByte ^ 1);
+        damaged.close();
+        try {
+            read(snapshotFile, new AccountDatabase());
+            System.out.println("Unexpected: damaged snapshot was read");
+        } catch (IOException e) {
+            System.out.println("Expected: damaged snapshot is rejected");
+        }
+    }
+}
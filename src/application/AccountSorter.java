@@ -0,0 +1,315 @@
+package application;
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * This class sorts accounts for reports<br>
+ * Uses a stable merge sort that splits large inputs across a fork/join pool,
+ * falls back to a sequential sort on small ranges and skips merging ranges that are already in order
+ * @author Steven Nguyen, Julian Romero
+ */
+public class AccountSorter {
+    /**
+     * Orders accounts by last name, then first name
+     */
+    public static final Comparator<Account> BY_NAME = new Comparator<Account>() {
+        @Override
+        public int compare(Account a, Account b) {
+            return a.getProfile().compareTo(b.getProfile());
+        }
+    };
+
+    /**
+     * Orders accounts by account type: checking, then money market, then savings<br>
+     * Subclasses, such as the views of a columnar database, sort with the type they extend
+     */
+    public static final Comparator<Account> BY_TYPE = new Comparator<Account>() {
+        @Override
+        public int compare(Account a, Account b) {
+            return Integer.compare(typeRank(a), typeRank(b));
+        }
+    };
+
+    /**
+     * Orders accounts by open date
+     */
+    public static final Comparator<Account> BY_DATE = new Comparator<Account>() {
+        @Override
+        public int compare(Account a, Account b) {
+            return a.getOpenDate().compareTo(b.getOpenDate());
+        }
+    };
+
+    /**
+     * Orders accounts by balance
+     */
+    public static final Comparator<Account> BY_BALANCE_ONLY = new Comparator<Account>() {
+        @Override
+        public int compare(Account a, Account b) {
+            return Long.compare(a.getBalanceCents(), b.getBalanceCents());
+        }
+    };
+
+    /**
+     * Orders accounts by name, then account type<br>
+     * No two accounts in a database compare equal
+     */
+    public static final Comparator<Account> BY_NAME_THEN_TYPE = BY_NAME.thenComparing(BY_TYPE);
+
+    /**
+     * Orders accounts by open date, then name, then account type
+     */
+    public static final Comparator<Account> BY_DATE_THEN_NAME = BY_DATE.thenComparing(BY_NAME_THEN_TYPE);
+
+    /**
+     * Orders accounts by balance, then name, then account type
+     */
+    public static final Comparator<Account> BY_BALANCE = BY_BALANCE_ONLY.thenComparing(BY_NAME_THEN_TYPE);
+
+    private static final int SEQUENTIAL_CUTOFF = 1 << 13;
+    private static final int INSERTION_CUTOFF = 32;
+
+    /**
+     * Gets the position of an account's type in BY_TYPE<br>
+     * The ranks keep the order reports and saved snapshots have always used, alphabetical by type name
+     * @param account	the account
+     * @return			0 for checking, 1 for money market and 2 for savings
+     */
+    static int typeRank(Account account) {
+        if (account instanceof Checking) {
+            return 0;
+        } else if (account instanceof MoneyMarket) {
+            return 1;
+        } else {
+            return 2;
+        }
+    }
+
+    /**
+     * Sorts an array of accounts
+     * @param accounts	the accounts to sort
+     * @param order		the order to sort the accounts in
+     */
+    public static void sort(Account[] accounts, Comparator<? super Account> order) {
+        sort(accounts, 0, accounts.length, order);
+    }
+
+    /**
+     * Sorts a range of an array of accounts
+     * @param accounts		the accounts to sort
+     * @param startIndex	the first index to sort
+     * @param endIndex		the index after the last index to sort
+     * @param order			the order to sort the accounts in
+     */
+    public static void sort(Account[] accounts, int startIndex, int endIndex, Comparator<? super Account> order) {
+        if (endIndex - startIndex < 2) {
+            return;
+        }
+
+        Account[] buffer = new Account[endIndex - startIndex];
+        if (endIndex - startIndex <= SEQUENTIAL_CUTOFF) {
+            mergeSort(accounts, buffer, startIndex, startIndex, endIndex, order);
+        } else {
+            ForkJoinPool.commonPool().invoke(new SortTask(accounts, buffer, startIndex, startIndex, endIndex, order));
+        }
+    }
+
+    /**
+     * Sorts a range of accounts on the current thread
+     * @param accounts		the accounts to sort
+     * @param buffer		scratch space shared by the whole sort
+     * @param base			the index of accounts that the start of buffer corresponds to
+     * @param startIndex	the first index to sort
+     * @param endIndex		the index after the last index to sort
+     * @param order			the order to sort the accounts in
+     */
+    private static void mergeSort(Account[] accounts, Account[] buffer, int base, int startIndex, int endIndex,
+            Comparator<? super Account> order) {
+        if (endIndex - startIndex <= INSERTION_CUTOFF) {
+            insertionSort(accounts, startIndex, endIndex, order);
+            return;
+        }
+
+        int middleIndex = (startIndex + endIndex) >>> 1;
+        mergeSort(accounts, buffer, base, startIndex, middleIndex, order);
+        mergeSort(accounts, buffer, base, middleIndex, endIndex, order);
+        merge(accounts, buffer, base, startIndex, middleIndex, endIndex, order);
+    }
+
+    /**
+     * Sorts a small range of accounts with insertion sort
+     * @param accounts		the accounts to sort
+     * @param startIndex	the first index to sort
+     * @param endIndex		the index after the last index to sort
+     * @param order			the order to sort the accounts in
+     */
+    private static void insertionSort(Account[] accounts, int startIndex, int endIndex, Comparator<? super Account> order) {
+        for (int i = startIndex + 1; i < endIndex; i++) {
+            Account account = accounts[i];
+            int j = i - 1;
+            // Only moves past strictly greater accounts so equal accounts keep their order
+            while (j >= startIndex && order.compare(accounts[j], account) > 0) {
+                accounts[j + 1] = accounts[j];
+                j--;
+            }
+            accounts[j + 1] = account;
+        }
+    }
+
+    /**
+     * Merges two adjacent sorted ranges of accounts<br>
+     * Takes from the left range when accounts are equal so the sort is stable
+     * @param accounts		the accounts to merge
+     * @param buffer		scratch space shared by the whole sort
+     * @param base			the index of accounts that the start of buffer corresponds to
+     * @param startIndex	the first index of the left range
+     * @param middleIndex	the first index of the right range
+     * @param endIndex		the index after the last index of the right range
+     * @param order			the order to sort the accounts in
+     */
+    private static void merge(Account[] accounts, Account[] buffer, int base, int startIndex, int middleIndex, int endIndex,
+            Comparator<? super Account> order) {
+        // Already in order, which is the usual case when a sorted report is printed again
+        if (order.compare(accounts[middleIndex - 1], accounts[middleIndex]) <= 0) {
+            return;
+        }
+
+        // The left range is copied to the part of the buffer that mirrors this range, so concurrent merges never overlap
+        int bufferStart = startIndex - base;
+        int leftLength = middleIndex - startIndex;
+        System.arraycopy(accounts, startIndex, buffer, bufferStart, leftLength);
+
+        int left = bufferStart;
+        int leftEnd = bufferStart + leftLength;
+        int right = middleIndex;
+        int destination = startIndex;
+        while (left < leftEnd && right < endIndex) {
+            if (order.compare(accounts[right], buffer[left]) < 0) {
+                accounts[destination++] = accounts[right++];
+            } else {
+                accounts[destination++] = buffer[left++];
+            }
+        }
+        System.arraycopy(buffer, left, accounts, destination, leftEnd - left);
+    }
+
+    /**
+     * Sorts one range of accounts in a fork/join pool, splitting it in two while it is large
+     */
+    private static class SortTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Account[] accounts;
+        private final Account[] buffer;
+        private final int base;
+        private final int startIndex;
+        private final int endIndex;
+        private final Comparator<? super Account> order;
+
+        /**
+         * Constructs a task to sort a range of accounts
+         * @param accounts		the accounts to sort
+         * @param buffer		scratch space shared by the whole sort
+         * @param base			the index of accounts that the start of buffer corresponds to
+         * @param startIndex	the first index to sort
+         * @param endIndex		the index after the last index to sort
+         * @param order			the order to sort the accounts in
+         */
+        SortTask(Account[] accounts, Account[] buffer, int base, int startIndex, int endIndex,
+                Comparator<? super Account> order) {
+            this.accounts = accounts;
+            this.buffer = buffer;
+            this.base = base;
+            this.startIndex = startIndex;
+            this.endIndex = endIndex;
+            this.order = order;
+        }
+
+        @Override
+        protected void compute() {
+            if (endIndex - startIndex <= SEQUENTIAL_CUTOFF) {
+                mergeSort(accounts, buffer, base, startIndex, endIndex, order);
+                return;
+            }
+
+            int middleIndex = (startIndex + endIndex) >>> 1;
+            invokeAll(
+                    new SortTask(accounts, buffer, base, startIndex, middleIndex, order),
+                    new SortTask(accounts, buffer, base, middleIndex, endIndex, order)
+            );
+            merge(accounts, buffer, base, startIndex, middleIndex, endIndex, order);
+        }
+    }
+
+    /**
+     * Testmain - tests the methods in this class
+     * @param args	unused
+     */
+    public static void main(String[] args) {
+        java.util.Random random = new java.util.Random(213);
+
+        // Tests if a large input is sorted in parallel and equal balances keep their original order
+        Account[] accounts = new Account[100000];
+        for (int i = 0; i < accounts.length; i++) {
+            accounts[i] = new Checking("F" + i, "L" + random.nextInt(1000), random.nextInt(50), 1, 1, 2000, false);
+        }
+        Account[] original = accounts.clone();
+        sort(accounts, BY_BALANCE_ONLY);
+
+        java.util.HashMap<Account, Integer> originalIndex = new java.util.HashMap<Account, Integer>();
+        for (int i = 0; i < original.length; i++) {
+            originalIndex.put(original[i], i);
+        }
+        boolean isSorted = true;
+        for (int i = 1; i < accounts.length; i++) {
+            int comparison = BY_BALANCE_ONLY.compare(accounts[i - 1], accounts[i]);
+            if (comparison > 0 || (comparison == 0 && originalIndex.get(accounts[i - 1]) > originalIndex.get(accounts[i]))) {
+                isSorted = false;
+            }
+        }
+        if (isSorted) {
+            System.out.println("Expected: 100000 accounts sorted stably by balance");
+        } else {
+            System.out.println("Unexpected: accounts are not sorted stably by balance");
+        }
+
+        // Tests if sorting an already sorted input keeps it sorted
+        sort(accounts, BY_NAME_THEN_TYPE);
+        sort(accounts, BY_NAME_THEN_TYPE);
+        isSorted = true;
+        for (int i = 1; i < accounts.length; i++) {
+            if (BY_NAME_THEN_TYPE.compare(accounts[i - 1], accounts[i]) > 0) {
+                isSorted = false;
+            }
+        }
+        if (isSorted) {
+            System.out.println("Expected: sorted input stays sorted by name");
+        } else {
+            System.out.println("Unexpected: sorted input is not sorted by name");
+        }
+
+        // Tests if the views of a columnar database sort by type the same as the accounts they were made from
+        Account[] types = {
+            new Savings("A", "A", 1, 1, 1, 2000, false),
+            new MoneyMarket("A", "A", 1, 1, 1, 2000),
+            new Checking("A", "A", 1, 1, 1, 2000, false)
+        };
+        ColumnarAccountDatabase columnarDb = new ColumnarAccountDatabase();
+        for (Account account : types) {
+            columnarDb.add(account);
+        }
+        Account[] views = columnarDb.getAccounts();
+        sort(types, BY_TYPE);
+        sort(views, BY_TYPE);
+        boolean isSameOrder = types.length == views.length;
+        for (int i = 0; isSameOrder && i < types.length; i++) {
+            isSameOrder = types[i].equals(views[i]) && typeRank(types[i]) == i;
+        }
+        if (isSameOrder) {
+            System.out.println("Expected: views sort as checking, money market, then savings");
+        } else {
+            System.out.println("Unexpected: views sort in a different order than their accounts");
+        }
+    }
+}
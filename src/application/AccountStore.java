@@ -0,0 +1,139 @@
+package application;
+import java.io.IOException;
+
+/**
+ * This interface is the set of account operations every database supports<br>
+ * Code that only opens, closes, deposits into, withdraws from and prints accounts, such as BatchProcessor,
+ * can run against any of them, whether the accounts are kept as objects or in columns
+ * @author Steven Nguyen, Julian Romero
+ */
+public interface AccountStore {
+    /**
+     * Gets the number of accounts
+     * @return	the number of accounts
+     */
+    int getsize();
+
+    /**
+     * Adds an account to the database
+     * @param account	the account to add to the database
+     * @return			true if successfully added, false otherwise
+     */
+    boolean add(Account account);
+
+    /**
+     * Removes an account from the database
+     * @param account	an account with the same first and last name as the account to remove
+     * @return			true if the account was successfully removed, false otherwise
+     */
+    boolean remove(Account account);
+
+    /**
+     * Deposits money into an account
+     * @param account	an account with the same first and last name as the account to add to
+     * @param amount	the amount of money to add to the account
+     * @return			true if the money is successfully deposited, false otherwise
+     */
+    boolean deposit(Account account, double amount);
+
+    /**
+     * Deposits money into an account
+     * @param account	an account with the same first and last name as the account to add to
+     * @param cents		the amount of money to add to the account in cents
+     * @return			true if the money is successfully deposited, false otherwise
+     */
+    boolean depositCents(Account account, long cents);
+
+    /**
+     * Withdraws money from an account
+     * @param account	an account with the same first and last name as the account to withdraw from
+     * @param amount	the amount of money to withdraw
+     * @return			-1 if the account is not found, 1 if the account doesn't have enough money to withdraw,<br>
+     * and 0 if successfully withdrawn
+     */
+    int withdrawal(Account account, double amount);
+
+    /**
+     * Withdraws money from an account
+     * @param account	an account with the same first and last name as the account to withdraw from
+     * @param cents		the amount of money to withdraw in cents
+     * @return			-1 if the account is not found, 1 if the account doesn't have enough money to withdraw,<br>
+     * and 0 if successfully withdrawn
+     */
+    int withdrawalCents(Account account, long cents);
+
+    /**
+     * Gets the account with a given account type and First and Last name
+     * @param account	an account with the same type and first and last name as the account to get
+     * @return			the stored account, or null if it is not in the database
+     */
+    Account getAccount(Account account);
+
+    /**
+     * Gets all the accounts
+     * @return	a new array of the accounts
+     */
+    Account[] getAccounts();
+
+    /**
+     * Updates every account's balance for a new month with interest and the monthly fee
+     * @return	a summary of the accounts updated and the interest and fees applied
+     */
+    MonthEndSummary applyMonthEnd();
+
+    /**
+     * Updates all the accounts, then outputs them in order of date opened<br>
+     * Accounts opened on the same day are ordered by name
+     * @return	a string to output to the UI
+     */
+    String printByDateOpen();
+
+    /**
+     * Updates all the accounts, then writes them in order of date opened<br>
+     * Accounts opened on the same day are ordered by name
+     * @param out			where to write the accounts, such as a Writer
+     * @throws IOException	if out cannot be written to
+     */
+    void printByDateOpen(Appendable out) throws IOException;
+
+    /**
+     * Updates all the accounts, then outputs them in order of last name, then first name
+     * @return	a string to output to the UI
+     */
+    String printByLastName();
+
+    /**
+     * Updates all the accounts, then writes them in order of last name, then first name
+     * @param out			where to write the accounts, such as a Writer
+     * @throws IOException	if out cannot be written to
+     */
+    void printByLastName(Appendable out) throws IOException;
+
+    /**
+     * Returns a string of all the accounts
+     * @return	a string to output to the UI
+     */
+    String printAccounts();
+
+    /**
+     * Writes all the accounts
+     * @param out			where to write the accounts, such as a Writer
+     * @throws IOException	if out cannot be written to
+     */
+    void printAccounts(Appendable out) throws IOException;
+
+    /**
+     * Returns a string of all the accounts in the format for export
+     * Format Account Type first letter,first name, last name, balance, date, and boolean or int value
+     * @return	a string that is to be used for export to a file
+     */
+    String printAccountsForExport();
+
+    /**
+     * Writes all the accounts in the format for export
+     * Format Account Type first letter,first name, last name, balance, date, and boolean or int value
+     * @param out			where to write the accounts, such as a Writer
+     * @throws IOException	if out cannot be written to
+     */
+    void printAccountsForExport(Appendable out) throws IOException;
+}
@@ -0,0 +1,95 @@
+package application;
+
+import java.util.Comparator;
+
+import javafx.collections.ObservableListBase;
+
+/**
+ * This class lists the accounts of a database for a TableView without copying them all<br>
+ * Only the page of accounts around the rows being shown is held, and pages are fetched from the database as the table
+ * scrolls. Scrolling forward in a sorted order continues from the last account of the current page, while jumping, or
+ * scrolling in the order accounts were added, fetches a page by position.
+ * The list reflects the database when it was created, so a new list should be made once the database version changes
+ * @author Steven Nguyen, Julian Romero
+ */
+public class AccountTableItems extends ObservableListBase<Account> {
+    private static final int PAGE_SIZE = 128;
+
+    private final AccountDatabase db;
+    private final Comparator<? super Account> order;
+    private final int size;
+    private final int version;
+    private Account[] page;
+    private int pageStart;
+
+    /**
+     * Constructs a list of the accounts in a database
+     * @param _db		the database
+     * @param _order	the order to list the accounts in, or null for the order they were added
+     */
+    public AccountTableItems(AccountDatabase _db, Comparator<? super Account> _order) {
+        this.db = _db;
+        this.order = _order;
+        this.size = _db.getsize();
+        this.version = _db.getVersion();
+        this.page = new Account[0];
+        this.pageStart = 0;
+    }
+
+    /**
+     * Gets the version of the database this list was made from
+     * @return	the database version
+     */
+    public int getVersion() {
+        return this.version;
+    }
+
+    /**
+     * Gets the order of this list
+     * @return	the order, or null for the order accounts were added
+     */
+    public Comparator<? super Account> getOrder() {
+        return this.order;
+    }
+
+    /**
+     * Gets the account at a row, fetching its page if it is not the current page
+     * @param row	the row
+     * @return		the account, or null if the database no longer has that many accounts
+     */
+    @Override
+    public Account get(int row) {
+        if (row < 0 || row >= this.size) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + this.size);
+        }
+
+        int pageEnd = this.pageStart + this.page.length;
+        if (row < this.pageStart || row >= pageEnd) {
+            if (row == pageEnd && this.page.length > 0 && this.order != null) {
+                this.page = this.db.getPageAfter(this.order, this.page[this.page.length - 1], PAGE_SIZE);
+                this.pageStart = row;
+            } else if (row == this.pageStart - 1) {
+                // Scrolling up, so the page ends at this row
+                this.pageStart = Math.max(0, row - PAGE_SIZE + 1);
+                this.page = this.db.getPage(this.order, this.pageStart, PAGE_SIZE);
+            } else {
+                this.page = this.db.getPage(this.order, row, PAGE_SIZE);
+                this.pageStart = row;
+            }
+        }
+
+        if (row - this.pageStart >= this.page.length) {
+            return null;
+        }
+        return this.page[row - this.pageStart];
+    }
+
+    /**
+     * Gets the number of rows
+     * @return	the number of accounts in the database when this list was made
+     */
+    @Override
+    public int size() {
+        return this.size;
+    }
+}
@@ -0,0 +1,79 @@
+package application;
+
+/**
+ * This class holds the balances of a set of accounts projected a number of months ahead<br>
+ * The accounts are copies taken when the projection was made, so they show the balances the projection started from
+ * @author Steven Nguyen, Julian Romero
+ */
+public class BalanceProjection {
+    private final int months;
+    private final Account[] accounts;
+    private final long[] balances;
+
+    /**
+     * Constructs a projection
+     * @param _months	the number of months projected
+     * @param _accounts	the copied accounts
+     * @param _balances	the projected balance of each account in cents
+     */
+    BalanceProjection(int _months, Account[] _accounts, long[] _balances) {
+        this.months = _months;
+        this.accounts = _accounts;
+        this.balances = _balances;
+    }
+
+    /**
+     * Gets the number of months projected
+     * @return	the number of months
+     */
+    public int getMonths() {
+        return this.months;
+    }
+
+    /**
+     * Gets the number of accounts projected
+     * @return	the number of accounts
+     */
+    public int size() {
+        return this.accounts.length;
+    }
+
+    /**
+     * Gets a projected account as it was when the projection was made
+     * @param i	the index of the account
+     * @return	the account
+     */
+    public Account getAccount(int i) {
+        return this.accounts[i];
+    }
+
+    /**
+     * Gets the projected balance of an account
+     * @param i	the index of the account
+     * @return	the projected balance in cents
+     */
+    public long getBalanceCents(int i) {
+        return this.balances[i];
+    }
+
+    /**
+     * Gets the projected balance of an account
+     * @param i	the index of the account
+     * @return	the projected balance in dollars
+     */
+    public double getBalance(int i) {
+        return Money.toDollars(this.balances[i]);
+    }
+
+    /**
+     * Gets the total of all the projected balances
+     * @return	the total in cents
+     */
+    public long getTotalCents() {
+        long total = 0;
+        for (long balance : this.balances) {
+            total += balance;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,20 @@
+package application;
+
+/**
+ * This class runs a file of account commands without the UI<br>
+ * Nothing here uses JavaFX, so a batch can run on a machine without it, such as
+ * java -cp bin application.BatchMain commands.txt results.txt accounts.txt
+ * @author Steven Nguyen, Julian Romero
+ */
+public final class BatchMain {
+    private BatchMain() {
+    }
+
+    /**
+     * Runs a batch and exits with 0 if it ran, or 1 if the arguments or files could not be used
+     * @param args	the commands file, the results file, and optionally a file of accounts to import first
+     */
+    public static void main(String[] args) {
+        System.exit(BatchProcessor.run(args));
+    }
+}
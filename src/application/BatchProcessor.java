@@ -0,0 +1,579 @@
+package application;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+
+/**
+ * This class runs a file of account commands without the UI<br>
+ * Each line is one command, checked with the same rules as the UI, and the message for each command is written
+ * to a buffered results file. The commands are read one line at a time, so a file of millions of commands never has
+ * to fit in memory. Fields are separated by spaces or tabs, and blank lines and lines starting with # are skipped:
+ * <pre>
+ * OC first last balance month/day/year directDeposit	opens a checking account
+ * OS first last balance month/day/year loyal			opens a savings account
+ * OM first last balance month/day/year					opens a money market account
+ * CC first last										closes an account, also CS and CM
+ * DC first last amount									deposits into an account, also DS and DM
+ * WC first last amount									withdraws from an account, also WS and WM
+ * QC first last										outputs an account, also QS and QM
+ * ME													updates every account for a new month
+ * PA, PD or PN											outputs the accounts, or the statements by date opened or last name
+ * </pre>
+ * @author Steven Nguyen, Julian Romero
+ */
+public class BatchProcessor {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int MAX_FIELDS = 6;
+
+    private final AccountStore db;
+    private final String[] fields = new String[MAX_FIELDS + 1];
+    private final StringBuilder message = new StringBuilder(128);
+    private long commandCount;
+    private long failedCount;
+    private DatabaseFiles files;
+
+    /**
+     * Constructs a batch processor
+     * @param _db	the database to run the commands against, such as an AccountDatabase or ColumnarAccountDatabase
+     */
+    public BatchProcessor(AccountStore _db) {
+        this.db = _db;
+    }
+
+    /**
+     * Sets the files the database is kept in, so a long batch takes a checkpoint whenever enough changes are logged
+     * @param _files	the files, or null if the database is not kept in files
+     */
+    void setFiles(DatabaseFiles _files) {
+        this.files = _files;
+    }
+
+    /**
+     * Runs a batch from the command line and prints how fast it ran<br>
+     * Arguments: optionally --data and the path of the files the database is kept in, the commands file,
+     * the results file, and optionally a file of accounts in the export format to import before the commands are run.
+     * With --data the batch starts from the accounts saved by earlier runs and its changes are saved for later ones
+     * @param args	the command line arguments
+     * @return		0 if the batch ran, or 1 if the arguments or files could not be used
+     */
+    public static int run(String[] args) {
+        File dataPath = DatabaseFiles.dataOption(args);
+        args = DatabaseFiles.withoutDataOption(args);
+        if (args.length < 2 || args.length > 3) {
+            System.err.println("Arguments: [--data <path>] <commands file> <results file> [accounts file]");
+            return 1;
+        }
+
+        AccountDatabase db = new AccountDatabase();
+        try (DatabaseFiles files = dataPath == null ? null : DatabaseFiles.open(dataPath, db)) {
+            if (files != null) {
+                System.out.println("Restored " + db.getsize() + " accounts from " + files.getSnapshotFile() + " and "
+                        + files.getJournalFile());
+            }
+            if (args.length == 3) {
+                System.out.print(AccountImporter.importFile(new File(args[2]), db));
+            }
+            long startTime = System.nanoTime();
+            BatchProcessor processor = new BatchProcessor(db);
+            processor.setFiles(files);
+            try (BufferedReader in = Files.newBufferedReader(new File(args[0]).toPath(), StandardCharsets.UTF_8);
+                    Writer out = new BufferedWriter(Files.newBufferedWriter(new File(args[1]).toPath(),
+                            StandardCharsets.UTF_8), BUFFER_SIZE)) {
+                processor.process(in, out);
+            }
+            System.out.println(processor.getSummary(System.nanoTime() - startTime));
+            return 0;
+        } catch (NoSuchFileException e) {
+            System.err.println("File not found: " + e.getFile());
+            return 1;
+        } catch (IOException e) {
+            System.err.println("Cannot read or write file: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    /**
+     * Runs every command read and writes the message for each one
+     * @param in			where to read the commands from
+     * @param out			where to write the messages
+     * @throws IOException	if in cannot be read or out cannot be written to
+     */
+    public void process(BufferedReader in, Writer out) throws IOException {
+        String line;
+        while ((line = in.readLine()) != null) {
+            int fieldCount = this.split(line);
+            if (fieldCount == 0 || this.fields[0].charAt(0) == '#') {
+                continue;
+            }
+
+            this.commandCount++;
+            this.message.setLength(0);
+            if (!this.runCommand(fieldCount, out)) {
+                this.failedCount++;
+            }
+            out.append(this.message);
+            if (this.files != null) {
+                this.files.checkpointIfNeeded();
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Runs one command whose message is a single line<br>
+     * The print commands are rejected, since their output takes many lines
+     * @param line	the command
+     * @return		true if the command succeeded, false if it was rejected
+     */
+    boolean runLine(String line) {
+        this.message.setLength(0);
+        int fieldCount = this.split(line);
+        boolean isSucceeded;
+        try {
+            isSucceeded = fieldCount == 0 ? this.fail("Invalid command!\n") : this.runCommand(fieldCount, null);
+        } catch (IOException e) {
+            // Cannot happen, since nothing is written without a writer
+            throw new IllegalStateException(e);
+        }
+        this.commandCount++;
+        if (!isSucceeded) {
+            this.failedCount++;
+        }
+        return isSucceeded;
+    }
+
+    /**
+     * Gets the message of the last command run by runLine
+     * @return	the message, without its line break
+     */
+    String getMessage() {
+        int length = this.message.length();
+        return this.message.substring(0, length > 0 && this.message.charAt(length - 1) == '\n' ? length - 1 : length);
+    }
+
+    /**
+     * Splits a line into fields separated by spaces or tabs
+     * @param line	the line
+     * @return		the number of fields, up to one more than MAX_FIELDS if there are too many
+     */
+    private int split(String line) {
+        int fieldCount = 0;
+        int length = line.length();
+        int i = 0;
+        while (i < length && fieldCount <= MAX_FIELDS) {
+            while (i < length && (line.charAt(i) == ' ' || line.charAt(i) == '\t')) {
+                i++;
+            }
+            int start = i;
+            while (i < length && line.charAt(i) != ' ' && line.charAt(i) != '\t') {
+                i++;
+            }
+            if (i > start) {
+                this.fields[fieldCount++] = line.substring(start, i);
+            }
+        }
+        return fieldCount;
+    }
+
+    /**
+     * Runs one command
+     * @param fieldCount	the number of fields in the command
+     * @param out			where the accounts are written for a print command, or null to reject print commands
+     * @return				true if the command succeeded, false if it was rejected
+     * @throws IOException	if out cannot be written to
+     */
+    private boolean runCommand(int fieldCount, Writer out) throws IOException {
+        String command = this.fields[0];
+        if (fieldCount == 1 && out == null && command.length() == 2 && command.charAt(0) == 'P') {
+            return this.fail("Invalid command!\n");
+        } else if (fieldCount == 1) {
+            switch (command) {
+                case "ME":
+                    this.message.append(this.db.applyMonthEnd()).append('\n');
+                    return true;
+                case "PA":
+                    this.db.printAccounts(out);
+                    return true;
+                case "PD":
+                    this.db.printByDateOpen(out);
+                    return true;
+                case "PN":
+                    this.db.printByLastName(out);
+                    return true;
+                default:
+                    break;
+            }
+        }
+
+        char type = command.length() == 2 ? command.charAt(1) : ' ';
+        if (type != 'C' && type != 'S' && type != 'M') {
+            return this.fail("Invalid command!\n");
+        }
+        switch (command.charAt(0)) {
+            case 'O':
+                return this.open(type, fieldCount);
+            case 'C':
+                return fieldCount == 3 ? this.close(type) : this.fail("Invalid command!\n");
+            case 'Q':
+                return fieldCount == 3 ? this.query(type) : this.fail("Invalid command!\n");
+            case 'D':
+            case 'W':
+                return fieldCount == 4 ? this.changeBalance(command.charAt(0) == 'D', type)
+                        : this.fail("Invalid command!\n");
+            default:
+                return this.fail("Invalid command!\n");
+        }
+    }
+
+    /**
+     * Opens an account
+     * @param type			the type of account, C, S or M
+     * @param fieldCount	the number of fields in the command
+     * @return				true if the account was opened
+     */
+    private boolean open(char type, int fieldCount) {
+        if (fieldCount != (type == 'M' ? 5 : 6)) {
+            return this.fail("Invalid command!\n");
+        }
+        String nameError = InputValidator.checkNames(this.fields[1], this.fields[2]);
+        if (nameError != null) {
+            return this.fail(nameError);
+        }
+        String date = this.fields[4];
+        if (!InputValidator.isValidDate(date)) {
+            return this.fail("Not a valid Date!\n");
+        }
+        double amount;
+        try {
+            amount = Double.parseDouble(this.fields[3]);
+        } catch (NumberFormatException e) {
+            return this.fail("Amount must be entered and be a double!\n");
+        }
+        if (!InputValidator.isValidBalance(amount)) {
+            return this.fail("Amount is out of range!\n");
+        }
+        boolean flag = false;
+        if (type != 'M') {
+            if (this.fields[5].equalsIgnoreCase("true")) {
+                flag = true;
+            } else if (!this.fields[5].equalsIgnoreCase("false")) {
+                return this.fail(type == 'C' ? "Direct deposit must be true or false!\n"
+                        : "Loyal customer must be true or false!\n");
+            }
+        }
+
+        int firstSlash = date.indexOf('/');
+        int secondSlash = date.indexOf('/', firstSlash + 1);
+        int month = Integer.parseInt(date.substring(0, firstSlash));
+        int day = Integer.parseInt(date.substring(firstSlash + 1, secondSlash));
+        int year = Integer.parseInt(date.substring(secondSlash + 1));
+        Account account;
+        if (type == 'C') {
+            account = new Checking(this.fields[1], this.fields[2], amount, month, day, year, flag);
+        } else if (type == 'S') {
+            account = new Savings(this.fields[1], this.fields[2], amount, month, day, year, flag);
+        } else {
+            account = new MoneyMarket(this.fields[1], this.fields[2], amount, month, day, year);
+        }
+
+        if (this.db.add(account)) {
+            this.appendAccount(account, " Account, ").append(", has been added.\n");
+            return true;
+        }
+        this.appendAccount(account, " Account has not been added: ").append(".\n");
+        return false;
+    }
+
+    /**
+     * Closes an account
+     * @param type	the type of account, C, S or M
+     * @return		true if the account was closed
+     */
+    private boolean close(char type) {
+        String nameError = InputValidator.checkNames(this.fields[1], this.fields[2]);
+        if (nameError != null) {
+            return this.fail(nameError);
+        }
+
+        Account account = this.template(type);
+        if (this.db.remove(account)) {
+            this.appendAccount(account, " Account, ").append(", has been closed.\n");
+            return true;
+        }
+        this.appendAccount(account, " Account has not been closed: ").append(".\n");
+        return false;
+    }
+
+    /**
+     * Outputs an account with its current balance
+     * @param type	the type of account, C, S or M
+     * @return		true if the account was found
+     */
+    private boolean query(char type) {
+        String nameError = InputValidator.checkNames(this.fields[1], this.fields[2]);
+        if (nameError != null) {
+            return this.fail(nameError);
+        }
+
+        Account template = this.template(type);
+        Account account = this.db.getAccount(template);
+        if (account == null) {
+            this.appendAccount(template, " Account not found: ").append(".\n");
+            return false;
+        }
+        this.message.append(account).append('\n');
+        return true;
+    }
+
+    /**
+     * Deposits into or withdraws from an account
+     * @param isDeposit	true to deposit, false to withdraw
+     * @param type		the type of account, C, S or M
+     * @return			true if the balance was changed
+     */
+    private boolean changeBalance(boolean isDeposit, char type) {
+        String nameError = InputValidator.checkNames(this.fields[1], this.fields[2]);
+        if (nameError != null) {
+            return this.fail(nameError);
+        }
+        double amount;
+        try {
+            amount = Double.parseDouble(this.fields[3]);
+        } catch (NumberFormatException e) {
+            return this.fail("Amount must be a double!\n");
+        }
+        if (!(amount > 0)) {
+            return this.fail("Amount must be greater than 0!\n");
+        }
+        if (!InputValidator.isValidAmount(amount)) {
+            return this.fail("Amount is out of range!\n");
+        }
+
+        Account account = this.template(type);
+        long cents = Money.toCents(amount);
+        int status = isDeposit ? (this.db.depositCents(account, cents) ? 0 : -1)
+                : this.db.withdrawalCents(account, cents);
+        if (status == 0) {
+            this.message.append(isDeposit ? "Successfully deposited " : "Successfully withdrew ");
+            AccountFormat.appendMoney(this.message, cents, AccountFormat.DOLLARS);
+            this.appendAccount(account, isDeposit ? " to " : " from ", " Account, ").append("!\n");
+            return true;
+        } else if (status == 1) {
+            this.appendAccount(account, " Account, ").append(", does not have enough balance.\n");
+        } else {
+            this.appendAccount(account, " Account not found: ").append(".\n");
+        }
+        return false;
+    }
+
+    /**
+     * Gets an account with no balance to look up an account by type and name
+     * @param type	the type of account, C, S or M
+     * @return		the account
+     */
+    private Account template(char type) {
+        if (type == 'C') {
+            return new Checking(this.fields[1], this.fields[2]);
+        } else if (type == 'S') {
+            return new Savings(this.fields[1], this.fields[2]);
+        } else {
+            return new MoneyMarket(this.fields[1], this.fields[2]);
+        }
+    }
+
+    /**
+     * Appends the type of an account, then text, then the account holder's name to the message
+     * @param account	the account
+     * @param between	the text between the type and the name
+     * @return			the message
+     */
+    private StringBuilder appendAccount(Account account, String between) {
+        return this.appendAccount(account, "", between);
+    }
+
+    /**
+     * Appends text, then the type of an account, then more text, then the account holder's name to the message
+     * @param account	the account
+     * @param before	the text before the type
+     * @param between	the text between the type and the name
+     * @return			the message
+     */
+    private StringBuilder appendAccount(Account account, String before, String between) {
+        this.message.append(before).append(typeName(account)).append(between);
+        return this.message.append(account.getProfile().getFName()).append(' ').append(account.getProfile().getLName());
+    }
+
+    /**
+     * Gets the name of an account's type as the UI shows it<br>
+     * The class name is not used, so the views a columnar database hands out are named the same as other accounts
+     * @param account	the account
+     * @return			Checking, Savings or MoneyMarket
+     */
+    private static String typeName(Account account) {
+        if (account instanceof Checking) {
+            return "Checking";
+        } else if (account instanceof Savings) {
+            return "Savings";
+        } else {
+            return "MoneyMarket";
+        }
+    }
+
+    /**
+     * Sets the message for a rejected command
+     * @param text	the message
+     * @return		false
+     */
+    private boolean fail(String text) {
+        this.message.append(text);
+        return false;
+    }
+
+    /**
+     * Gets the number of commands run
+     * @return	the number of commands, not counting blank lines and comments
+     */
+    public long getCommandCount() {
+        return this.commandCount;
+    }
+
+    /**
+     * Gets the number of commands rejected
+     * @return	the number of commands that were not valid or could not be carried out
+     */
+    public long getFailedCount() {
+        return this.failedCount;
+    }
+
+    /**
+     * Gets a summary of the commands run and how fast they ran<br>
+     * Format: "Processed [Commands] commands in [Time] ms ([Rate] commands per second): [Succeeded] succeeded,
+     * [Failed] failed"
+     * @param elapsedNanos	how long the commands took to run
+     * @return				the summary
+     */
+    public String getSummary(long elapsedNanos) {
+        long elapsedMillis = elapsedNanos / 1000000;
+        long rate = elapsedNanos == 0 ? 0 : (long) (this.commandCount * 1e9 / elapsedNanos);
+        StringBuilder summary = new StringBuilder(96);
+        AccountFormat.appendDigits(summary.append("Processed "), this.commandCount).append(" commands in ");
+        AccountFormat.appendDigits(summary, elapsedMillis).append(" ms (");
+        AccountFormat.appendDigits(summary, rate).append(" commands per second): ");
+        AccountFormat.appendDigits(summary, this.commandCount - this.failedCount).append(" succeeded, ");
+        return AccountFormat.appendDigits(summary, this.failedCount).append(" failed").toString();
+    }
+
+    /**
+     * Testmain - tests each command, the validation shared with the UI, and the speed of a large batch
+     * @param args	unused
+     */
+    public static void main(String[] args) {
+        String commands = "# opening accounts\n"
+                + "OC John Doe 500 1/2/2020 true\n"
+                + "OS Jane Doe 1000\t12/31/1999 FALSE\n"
+                + "OM Ann Lee 2500 3/4/2021\n"
+                + "\n"
+                + "OC John Doe 1 1/1/2000 false\n"
+                + "OC J0hn Doe 1 1/1/2000 false\n"
+                + "OC Bad Date 1 2/30/2001 true\n"
+                + "OC Bad Flag 1 1/1/2000 yes\n"
+                + "DC John Doe 100.5\n"
+                + "WS Jane Doe 2000\n"
+                + "WM Ann Lee 500\n"
+                + "DC Nobody Here 5\n"
+                + "DC John Doe -5\n"
+                + "OC John Doe Infinity 1/1/2000 true\n"
+                + "DC Ann Lee 1e300\n"
+                + "QC John Doe\n"
+                + "QS Nobody Here\n"
+                + "CM Ann Lee\n"
+                + "CM Ann Lee\n"
+                + "XX\n"
+                + "PA\n";
+        String expected = "Checking Account, John Doe, has been added.\n"
+                + "Savings Account, Jane Doe, has been added.\n"
+                + "MoneyMarket Account, Ann Lee, has been added.\n"
+                + "Checking Account has not been added: John Doe.\n"
+                + "First name cannot have numbers or symbols!\n"
+                + "Not a valid Date!\n"
+                + "Direct deposit must be true or false!\n"
+                + "Successfully deposited $100.50 to Checking Account, John Doe!\n"
+                + "Savings Account, Jane Doe, does not have enough balance.\n"
+                + "Successfully withdrew $500.00 from MoneyMarket Account, Ann Lee!\n"
+                + "Checking Account not found: Nobody Here.\n"
+                + "Amount must be greater than 0!\n"
+                + "Amount is out of range!\n"
+                + "Amount is out of range!\n"
+                + "*Checking*John Doe* $600.50*1/2/2020*direct deposit account*\n"
+                + "Savings Account not found: Nobody Here.\n"
+                + "MoneyMarket Account, Ann Lee, has been closed.\n"
+                + "MoneyMarket Account has not been closed: Ann Lee.\n"
+                + "Invalid command!\n";
+
+        AccountDatabase db = new AccountDatabase();
+        BatchProcessor processor = new BatchProcessor(db);
+        StringWriter out = new StringWriter();
+        try {
+            processor.process(new BufferedReader(new StringReader(commands)), out);
+        } catch (IOException e) {
+            System.out.println("Unexpected: " + e);
+        }
+
+        // Tests if every command gives the same message as the UI, and comments and blank lines are skipped
+        if (out.toString().equals(expected + db.printAccounts()) && processor.getCommandCount() == 20
+                && processor.getFailedCount() == 12) {
+            System.out.println("Expected: each command gives its message and the accounts are printed");
+        } else {
+            System.out.println("Unexpected: batch gave\n" + out);
+        }
+
+        // Tests if the same commands give the same messages against a columnar database
+        ColumnarAccountDatabase columnarDb = new ColumnarAccountDatabase();
+        processor = new BatchProcessor(columnarDb);
+        out = new StringWriter();
+        try {
+            processor.process(new BufferedReader(new StringReader(commands)), out);
+        } catch (IOException e) {
+            System.out.println("Unexpected: " + e);
+        }
+        if (out.toString().equals(expected + columnarDb.printAccounts()) && columnarDb.getsize() == 2) {
+            System.out.println("Expected: a columnar database runs the batch the same way");
+        } else {
+            System.out.println("Unexpected: columnar batch gave\n" + out);
+        }
+
+        // Tests the speed of a large batch of opens, deposits, withdrawals and closes
+        StringBuilder batch = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            String name = "F" + (char) ('a' + i % 26) + (char) ('a' + i / 26 % 26) + (char) ('a' + i / 676 % 26)
+                    + (char) ('a' + i / 17576 % 26) + " L";
+            batch.append("OC ").append(name).append(" 100 1/1/2000 true\n");
+            batch.append("DC ").append(name).append(" 25.50\n");
+            batch.append("WC ").append(name).append(" 10\n");
+            if (i % 2 == 0) {
+                batch.append("CC ").append(name).append('\n');
+            }
+        }
+        batch.append("ME\n");
+        processor = new BatchProcessor(new AccountDatabase());
+        long startTime = System.nanoTime();
+        try {
+            processor.process(new BufferedReader(new StringReader(batch.toString())),
+                    new BufferedWriter(new StringWriter(), BUFFER_SIZE));
+        } catch (IOException e) {
+            System.out.println("Unexpected: " + e);
+        }
+        if (processor.getCommandCount() == 350001 && processor.getFailedCount() == 0) {
+            System.out.println("Expected: " + processor.getSummary(System.nanoTime() - startTime));
+        } else {
+            System.out.println("Unexpected: " + processor.getSummary(System.nanoTime() - startTime));
+        }
+    }
+}
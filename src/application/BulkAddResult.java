@@ -0,0 +1,58 @@
+package application;
+
+/**
+ * This class reports the outcome of adding many accounts at once<br>
+ * Holds only the count of accounts added and the accounts that were rejected
+ * @author Steven Nguyen, Julian Romero
+ */
+public class BulkAddResult {
+    private final int added;
+    private final Account[] rejected;
+
+    /**
+     * Constructs a bulk add result
+     * @param _added	the number of accounts added
+     * @param _rejected	the accounts rejected as duplicates, in the order they were given
+     */
+    BulkAddResult(int _added, Account[] _rejected) {
+        this.added = _added;
+        this.rejected = _rejected;
+    }
+
+    /**
+     * Gets the number of accounts added
+     * @return	the number of accounts
+     */
+    public int getAddedCount() {
+        return this.added;
+    }
+
+    /**
+     * Gets the number of accounts rejected
+     * @return	the number of accounts
+     */
+    public int getRejectedCount() {
+        return this.rejected.length;
+    }
+
+    /**
+     * Gets the accounts rejected since an account with the same name and type was already in the database
+     * or earlier in the batch
+     * @return	a new array of the rejected accounts, in the order they were given
+     */
+    public Account[] getRejected() {
+        return this.rejected.clone();
+    }
+
+    /**
+     * Gets the string representation of this result<br>
+     * Format: "[Added] accounts added, [Rejected] duplicates rejected"
+     * @return	the string representation
+     */
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder(48);
+        AccountFormat.appendDigits(result, this.added).append(" accounts added, ");
+        return AccountFormat.appendDigits(result, this.rejected.length).append(" duplicates rejected").toString();
+    }
+}
@@ -1,14 +1,17 @@
 package application;
 /**
  * This class represents a checking account<br>
- * Checking accounts have a monthly fee of 25, a minimum balance of 1500 or direct deposit to waive the fee, and an annual interest rate of .05%
+ * Checking accounts have a monthly fee of 25, a minimum balance of 1500 or direct deposit to waive the fee, and an annual interest rate of .05%<br>
+ * Amounts are in cents and rates are out of Money.RATE_SCALE
  * @author Steven Nguyen, Julian Romero
  */
 public class Checking extends Account {
 	private boolean directDeposit;
-	private static final double monthlyFee = 25;
-	private static final double waiveBalanceMinimum = 1500;
-	private static final double annualInterestRate = .0005;
+	static final long monthlyFee = 2500;
+	static final long waiveBalanceMinimum = 150000;
+	static final long annualInterestRate = 5;
+
+	private static final int typeHash = 1;
 
 	private static final int fillerBalance = 0;
 	private static final int fillerMonth = 1;
@@ -31,6 +34,18 @@ public class Checking extends Account {
 		this.directDeposit = _directDeposit;
 	}
 	
+	/**
+	 * Constructs a checking account from an existing profile and open date
+	 * @param _holder			the profile
+	 * @param _balance			the initial balance in cents
+	 * @param _dateOpen			the open date
+	 * @param _directDeposit	if the account has direct deposit enabled
+	 */
+	Checking(Profile _holder, long _balance, Date _dateOpen, boolean _directDeposit) {
+		super(_holder, _balance, _dateOpen);
+		this.directDeposit = _directDeposit;
+	}
+	
 	/**
 	 * Constructs a temporary checking account used for comparisons
 	 * @param _fname	the first name of the profile
@@ -41,20 +56,74 @@ public class Checking extends Account {
 		this.directDeposit = fillerDirectDeposit;
 	}
 	
+	/**
+	 * Copies this checking account, including its current balance
+	 * @return	a new checking account
+	 */
+	@Override
+	Checking copy() {
+		return new Checking(this.getProfile(), this.getBalanceCents(), this.getOpenDate(), this.getIsDirectDeposit());
+	}
+	
 	/**
 	 * Calculate the monthly interest for this account
+	 * @return	the monthly interest in cents
 	 */
 	@Override
-	public double monthlyInterest() {
-		return this.getBalance() * (annualInterestRate / 12);
+	public long monthlyInterestCents() {
+		return interestFor(this.getBalanceCents());
 	}
 	
 	/**
 	 * Calculate the monthly fee for this account
+	 * @return	the monthly fee in cents
 	 */
 	@Override
-	public double monthlyFee() {
-		if (this.getBalance() >= waiveBalanceMinimum || this.directDeposit) {
+	public long monthlyFeeCents() {
+		return feeFor(this.getBalanceCents(), this.getIsDirectDeposit());
+	}
+	
+	/**
+	 * Calculate the balance of this account after a number of month ends
+	 * @param months	the number of months to project
+	 * @return			the projected balance in cents
+	 */
+	@Override
+	public long projectBalanceCents(int months) {
+		return projectBalance(this.getBalanceCents(), this.getIsDirectDeposit(), months);
+	}
+	
+	/**
+	 * Calculate the balance of a checking account after a number of month ends
+	 * @param balance		the balance in cents
+	 * @param directDeposit	if the account has direct deposit enabled
+	 * @param months		the number of months to project
+	 * @return				the projected balance in cents
+	 */
+	static long projectBalance(long balance, boolean directDeposit, int months) {
+		for (int i = 0; i < months; i++) {
+			balance += interestFor(balance) - feeFor(balance, directDeposit);
+		}
+		return balance;
+	}
+	
+	/**
+	 * Calculate the monthly interest for a checking account
+	 * @param balance	the balance in cents
+	 * @return			the monthly interest in cents
+	 */
+	static long interestFor(long balance) {
+		return Money.monthlyInterest(balance, annualInterestRate);
+	}
+	
+	/**
+	 * Calculate the monthly fee for a checking account
+	 * @param balance		the balance in cents
+	 * @param directDeposit	if the account has direct deposit enabled
+	 * @return				the monthly fee in cents
+	 */
+	static long feeFor(long balance, boolean directDeposit) {
+		if (balance >= waiveBalanceMinimum || directDeposit) {
 			return 0;
 		} else {
 			return monthlyFee;
@@ -70,18 +139,19 @@ public class Checking extends Account {
 	}
 	
 	/**
-	 * Gets the string representation of this checking account<br>
+	 * Appends the string representation of this checking account<br>
 	 * Format: "*Checking*[Profile Name]* $[Balance]*[Open Date]*"<br>
 	 * "direct deposit account*" is appended if the account has direct deposit enabled
-	 * @return	the string representation
+	 * @param out	where to append the text
+	 * @return		out
 	 */
 	@Override
-	public String toString() {
-		if (this.directDeposit) {
-			return String.format("*%s%s*%s*", "Checking", super.toString(), "direct deposit account");
-		} else {
-			return String.format("*%s%s", "Checking", super.toString());
+	StringBuilder appendTo(StringBuilder out) {
+		super.appendTo(out.append("*Checking"));
+		if (this.getIsDirectDeposit()) {
+			out.append("*direct deposit account*");
 		}
+		return out;
 	}
 	
 	/**
@@ -96,4 +166,13 @@ public class Checking extends Account {
 			return false;
 		}
 	}
+	
+	/**
+	 * Gets the hash code of this checking account, consistent with equals
+	 * @return	the hash code of the profile combined with the account type
+	 */
+	@Override
+	public int hashCode() {
+		return 31 * super.hashCode() + typeHash;
+	}
 }
\ No newline at end of file
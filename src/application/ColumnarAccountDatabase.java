@@ -0,0 +1,1159 @@
+package application;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+
+/**
+ * This class handles storing and handling accounts in columns of primitives<br>
+ * Each account is a row: its type, flags, open date, balance in cents and withdrawals are stored in parallel arrays,
+ * and first and last names are stored once in a dictionary and referred to by id<br>
+ * Accounts handed out by this database are views of their row, so changes made through them change the database.
+ * A view is only valid while its account is in the database
+ * @author Steven Nguyen, Julian Romero
+ */
+public class ColumnarAccountDatabase implements AccountStore {
+    static final byte EMPTY = 0;
+    static final byte CHECKING = 1;
+    static final byte SAVINGS = 2;
+    static final byte MONEY_MARKET = 3;
+
+    static final byte DIRECT_DEPOSIT = 1;
+    static final byte LOYAL = 2;
+
+    private static final int INITIAL_ROWS = 16;
+    private static final int INITIAL_INDEX_SLOTS = 32;
+
+    private byte[] types;
+    private byte[] flags;
+    private int[] firstNames;
+    private int[] lastNames;
+    private int[] openDates;
+    private long[] balances;
+    private int[] withdrawals;
+
+    private int rowCount;
+    private int size;
+    private int[] freeRows;
+    private int freeCount;
+
+    private ArrayList<String> names;
+    private HashMap<String, Integer> nameIds;
+
+    private long[] indexKeys;
+    private int[] indexRows;
+
+    /**
+     * Constructs a default columnar account database with 0 accounts
+     */
+    public ColumnarAccountDatabase() {
+        this(INITIAL_ROWS);
+    }
+
+    /**
+     * Constructs a columnar account database with 0 accounts and room for an expected number of accounts
+     * @param expectedSize	the number of accounts expected to be loaded, used to preallocate the columns
+     */
+    public ColumnarAccountDatabase(int expectedSize) {
+        int rows = Math.max(expectedSize, INITIAL_ROWS);
+        this.types = new byte[rows];
+        this.flags = new byte[rows];
+        this.firstNames = new int[rows];
+        this.lastNames = new int[rows];
+        this.openDates = new int[rows];
+        this.balances = new long[rows];
+        this.withdrawals = new int[rows];
+
+        this.rowCount = 0;
+        this.size = 0;
+        this.freeRows = new int[INITIAL_ROWS];
+        this.freeCount = 0;
+
+        this.names = new ArrayList<String>();
+        this.nameIds = new HashMap<String, Integer>();
+
+        int indexSlots = INITIAL_INDEX_SLOTS;
+        while (indexSlots < rows * 2) {
+            indexSlots *= 2;
+        }
+        this.indexKeys = new long[indexSlots];
+        this.indexRows = new int[indexSlots];
+    }
+
+    public int getsize() {
+        return this.size;
+    }
+
+    /**
+     * Gets the number of rows in use, including rows emptied by removed accounts
+     * @return	the number of rows
+     */
+    int getRowCount() {
+        return this.rowCount;
+    }
+
+    /**
+     * Sets the number of rows in use
+     * @param rowCount	the number of rows
+     */
+    void setRowCount(int rowCount) {
+        this.rowCount = rowCount;
+    }
+
+    /**
+     * Makes sure the columns have room for a number of rows
+     * @param rows	the number of rows needed
+     */
+    void ensureRows(int rows) {
+        if (rows <= this.types.length) {
+            return;
+        }
+
+        int expandedRows = Math.max(rows, this.types.length * 2);
+        this.types = Arrays.copyOf(this.types, expandedRows);
+        this.flags = Arrays.copyOf(this.flags, expandedRows);
+        this.firstNames = Arrays.copyOf(this.firstNames, expandedRows);
+        this.lastNames = Arrays.copyOf(this.lastNames, expandedRows);
+        this.openDates = Arrays.copyOf(this.openDates, expandedRows);
+        this.balances = Arrays.copyOf(this.balances, expandedRows);
+        this.withdrawals = Arrays.copyOf(this.withdrawals, expandedRows);
+    }
+
+    byte getType(int row) {
+        return this.types[row];
+    }
+
+    void setType(int row, byte type) {
+        this.types[row] = type;
+    }
+
+    byte getFlags(int row) {
+        return this.flags[row];
+    }
+
+    int getFirstName(int row) {
+        return this.firstNames[row];
+    }
+
+    int getLastName(int row) {
+        return this.lastNames[row];
+    }
+
+    int getOpenDate(int row) {
+        return this.openDates[row];
+    }
+
+    long getBalance(int row) {
+        return this.balances[row];
+    }
+
+    void setBalance(int row, long balance) {
+        this.balances[row] = balance;
+    }
+
+    int getWithdrawals(int row) {
+        return this.withdrawals[row];
+    }
+
+    void setWithdrawals(int row, int withdrawalCount) {
+        this.withdrawals[row] = withdrawalCount;
+    }
+
+    /**
+     * Writes every column of a row
+     * @param row				the row to write
+     * @param type				the account type tag
+     * @param flagBits			the direct deposit and loyal flags
+     * @param firstName			the id of the first name
+     * @param lastName			the id of the last name
+     * @param openDate			the packed open date
+     * @param balance			the balance in cents
+     * @param withdrawalCount	the number of withdrawals
+     */
+    void writeRow(int row, byte type, byte flagBits, int firstName, int lastName, int openDate, long balance,
+            int withdrawalCount) {
+        this.types[row] = type;
+        this.flags[row] = flagBits;
+        this.firstNames[row] = firstName;
+        this.lastNames[row] = lastName;
+        this.openDates[row] = openDate;
+        this.balances[row] = balance;
+        this.withdrawals[row] = withdrawalCount;
+    }
+
+    /**
+     * Gets a name from the dictionary
+     * @param nameId	the id of the name
+     * @return			the name
+     */
+    String getName(int nameId) {
+        return this.names.get(nameId);
+    }
+
+    /**
+     * Gets the number of names in the dictionary
+     * @return	the number of names, one more than the largest name id
+     */
+    int getNameCount() {
+        return this.names.size();
+    }
+
+    /**
+     * Gets the profile of the account stored in a row
+     * @param row	a row that is not empty
+     * @return		a new profile with the first and last name of the row
+     */
+    Profile getProfile(int row) {
+        return new Profile(this.getName(this.getFirstName(row)), this.getName(this.getLastName(row)));
+    }
+
+    /**
+     * Gets the id of a name in the dictionary
+     * @param name	the name to look up
+     * @return		the id of the name, or -1 if the name is not in the dictionary
+     */
+    int findName(String name) {
+        Integer nameId = this.nameIds.get(name);
+        if (nameId == null) {
+            return -1;
+        }
+        return nameId;
+    }
+
+    /**
+     * Adds a name to the dictionary
+     * @param name	a name that is not in the dictionary yet
+     * @return		the id of the new name
+     */
+    int addName(String name) {
+        int nameId = this.names.size();
+        this.names.add(name);
+        this.nameIds.put(name, nameId);
+        return nameId;
+    }
+
+    /**
+     * Gets the id of a name, adding it to the dictionary if needed
+     * @param name	the name
+     * @return		the id of the name
+     */
+    private int nameId(String name) {
+        int nameId = this.findName(name);
+        if (nameId == -1) {
+            nameId = this.addName(name);
+        }
+        return nameId;
+    }
+
+    /**
+     * Gets the type tag of an account
+     * @param account	the account
+     * @return			CHECKING, SAVINGS or MONEY_MARKET
+     */
+    static byte typeOf(Account account) {
+        if (account instanceof Checking) {
+            return CHECKING;
+        } else if (account instanceof Savings) {
+            return SAVINGS;
+        } else {
+            return MONEY_MARKET;
+        }
+    }
+
+    /**
+     * Gets the flags of an account
+     * @param account	the account
+     * @return			DIRECT_DEPOSIT and LOYAL set if they apply to the account
+     */
+    static byte flagsOf(Account account) {
+        if (account instanceof Checking && ((Checking) account).getIsDirectDeposit()) {
+            return DIRECT_DEPOSIT;
+        } else if (account instanceof Savings && ((Savings) account).getIsLoyal()) {
+            return LOYAL;
+        }
+        return 0;
+    }
+
+    /**
+     * Gets the key that identifies an account in the row index
+     * @param type		the account type tag
+     * @param firstName	the id of the first name
+     * @param lastName	the id of the last name
+     * @return			the key, which is never 0
+     */
+    private static long key(byte type, int firstName, int lastName) {
+        return ((long) type << 62) | ((long) lastName << 31) | firstName;
+    }
+
+    /**
+     * Gets the index slot a key is stored in, or the empty slot it would be stored in
+     * @param key	the key
+     * @return		the index slot
+     */
+    private int indexSlot(long key) {
+        int mask = this.indexKeys.length - 1;
+        int slot = home(key, mask);
+        while (this.indexKeys[slot] != 0 && this.indexKeys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Gets the first index slot a key is probed at
+     * @param key	the key
+     * @param mask	the number of index slots minus 1
+     * @return		the index slot
+     */
+    private static int home(long key, int mask) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+
+    /**
+     * Adds a row to the row index, doubling the index when it is half full
+     * @param key	the key of the row's account
+     * @param row	the row
+     */
+    private void index(long key, int row) {
+        if ((this.size + 1) * 2 > this.indexKeys.length) {
+            long[] oldKeys = this.indexKeys;
+            int[] oldRows = this.indexRows;
+            this.indexKeys = new long[oldKeys.length * 2];
+            this.indexRows = new int[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    int slot = this.indexSlot(oldKeys[i]);
+                    this.indexKeys[slot] = oldKeys[i];
+                    this.indexRows[slot] = oldRows[i];
+                }
+            }
+        }
+
+        int slot = this.indexSlot(key);
+        this.indexKeys[slot] = key;
+        this.indexRows[slot] = row;
+    }
+
+    /**
+     * Removes a key from the row index<br>
+     * Later keys in the same probe run are shifted back so lookups never stop early at the hole
+     * @param key	the key to remove
+     */
+    private void unindex(long key) {
+        int mask = this.indexKeys.length - 1;
+        int hole = this.indexSlot(key);
+        if (this.indexKeys[hole] == 0) {
+            return;
+        }
+
+        int next = (hole + 1) & mask;
+        while (this.indexKeys[next] != 0) {
+            int nextHome = home(this.indexKeys[next], mask);
+            if (((next - nextHome) & mask) >= ((next - hole) & mask)) {
+                this.indexKeys[hole] = this.indexKeys[next];
+                this.indexRows[hole] = this.indexRows[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        this.indexKeys[hole] = 0;
+    }
+
+    /**
+     * Searches for the row of an account with a given account type and First and Last name
+     * @param account	an account with the same type and first and last name as the account to find
+     * @return			the row of the found account or -1
+     */
+    private int find(Account account) {
+        int firstName = this.findName(account.getProfile().getFName());
+        int lastName = this.findName(account.getProfile().getLName());
+        if (firstName == -1 || lastName == -1) {
+            return -1;
+        }
+
+        int slot = this.indexSlot(key(typeOf(account), firstName, lastName));
+        if (this.indexKeys[slot] == 0) {
+            return -1;
+        }
+        return this.indexRows[slot];
+    }
+
+    /**
+     * Rebuilds the size, free list and row index from rows that are already stored
+     */
+    void rebuildIndex() {
+        this.size = 0;
+        this.freeCount = 0;
+        Arrays.fill(this.indexKeys, 0);
+        for (int row = 0; row < this.rowCount; row++) {
+            byte type = this.getType(row);
+            if (type == EMPTY) {
+                this.releaseRow(row);
+            } else {
+                this.index(key(type, this.getFirstName(row), this.getLastName(row)), row);
+                this.size++;
+            }
+        }
+    }
+
+    /**
+     * Adds an emptied row to the free list
+     * @param row	the emptied row
+     */
+    private void releaseRow(int row) {
+        if (this.freeCount == this.freeRows.length) {
+            this.freeRows = Arrays.copyOf(this.freeRows, this.freeCount * 2);
+        }
+        this.freeRows[this.freeCount++] = row;
+    }
+
+    /**
+     * Adds an account to the database
+     * @param account	the account to add to the database
+     * @return			true if successfully added, false otherwise
+     */
+    public boolean add(Account account) {
+        if (this.find(account) != -1) {
+            return false;
+        }
+
+        byte type = typeOf(account);
+        int firstName = this.nameId(account.getProfile().getFName());
+        int lastName = this.nameId(account.getProfile().getLName());
+        int withdrawalCount = 0;
+        if (account instanceof MoneyMarket) {
+            withdrawalCount = ((MoneyMarket) account).getWithdrawals();
+        }
+
+        int row;
+        if (this.freeCount > 0) {
+            row = this.freeRows[--this.freeCount];
+        } else {
+            row = this.rowCount;
+            this.ensureRows(row + 1);
+            this.setRowCount(row + 1);
+        }
+
+        this.writeRow(row, type, flagsOf(account), firstName, lastName, account.getOpenDate().toPacked(),
+                account.getBalanceCents(), withdrawalCount);
+        this.index(key(type, firstName, lastName), row);
+        this.size++;
+        return true;
+    }
+
+    /**
+     * Removes an account from the database
+     * @param account	an account with the same first and last name as the account to remove
+     * @return			true if the account was successfully removed, false otherwise
+     */
+    public boolean remove(Account account) {
+        int row = this.find(account);
+        if (row == -1) {
+            return false;
+        }
+
+        this.unindex(key(this.getType(row), this.getFirstName(row), this.getLastName(row)));
+        this.setType(row, EMPTY);
+        this.releaseRow(row);
+        this.size--;
+        return true;
+    }
+
+    /**
+     * Deposits money into an account
+     * @param account	an account with the same first and last name as the account to add to
+     * @param amount	the amount of money to add to the account
+     * @return			true if the money is successfully deposited, false otherwise
+     */
+    public boolean deposit(Account account, double amount) {
+        return this.depositCents(account, Money.toCents(amount));
+    }
+
+    /**
+     * Deposits money into an account
+     * @param account	an account with the same first and last name as the account to add to
+     * @param cents		the amount of money to add to the account in cents
+     * @return			true if the money is successfully deposited, false otherwise
+     */
+    public boolean depositCents(Account account, long cents) {
+        int row = this.find(account);
+        if (row == -1) {
+            return false;
+        }
+
+        this.setBalance(row, this.getBalance(row) + cents);
+        return true;
+    }
+
+    /**
+     * Withdraws money from an account
+     * @param account	an account with the same first and last name as the account to withdraw from
+     * @param amount	the amount of money to withdraw
+     * @return			-1 if the account is not found, 1 if the account doesn't have enough money to withdraw,<br>
+     * and 0 if successfully withdrawn
+     */
+    public int withdrawal(Account account, double amount) {
+        return this.withdrawalCents(account, Money.toCents(amount));
+    }
+
+    /**
+     * Withdraws money from an account
+     * @param account	an account with the same first and last name as the account to withdraw from
+     * @param cents		the amount of money to withdraw in cents
+     * @return			-1 if the account is not found, 1 if the account doesn't have enough money to withdraw,<br>
+     * and 0 if successfully withdrawn
+     */
+    public int withdrawalCents(Account account, long cents) {
+        int row = this.find(account);
+        if (row == -1) {
+            return -1;
+        }
+
+        if (this.getBalance(row) - cents < 0) {
+            return 1;
+        }
+
+        if (this.getType(row) == MONEY_MARKET) {
+            this.setWithdrawals(row, this.getWithdrawals(row) + 1);
+        }
+        this.setBalance(row, this.getBalance(row) - cents);
+        return 0;
+    }
+
+    /**
+     * Gets the account with a given account type and First and Last name
+     * @param account	an account with the same type and first and last name as the account to get
+     * @return			a view of the stored account, or null if it is not in the database
+     */
+    public Account getAccount(Account account) {
+        int row = this.find(account);
+        if (row == -1) {
+            return null;
+        }
+        return this.view(row);
+    }
+
+    /**
+     * Gets all the accounts in the order they are stored
+     * @return	a new array of views of the accounts
+     */
+    public Account[] getAccounts() {
+        Account[] accounts = new Account[this.size];
+        int accountIndex = 0;
+        for (int row = 0; row < this.rowCount; row++) {
+            if (this.getType(row) != EMPTY) {
+                accounts[accountIndex++] = this.view(row);
+            }
+        }
+        return accounts;
+    }
+
+    /**
+     * Updates every account's balance for a new month with interest and the monthly fee<br>
+     * The balances and flags of each account type are gathered into their own arrays, run through MonthEndKernel,
+     * then written back, so no account objects are created
+     * @return	a summary of the accounts updated and the interest and fees applied
+     */
+    public MonthEndSummary applyMonthEnd() {
+        long startTime = System.nanoTime();
+        int[] typeCounts = new int[MONEY_MARKET + 1];
+        for (int row = 0; row < this.rowCount; row++) {
+            typeCounts[this.getType(row)]++;
+        }
+
+        int[][] rows = new int[MONEY_MARKET + 1][];
+        long[][] typeBalances = new long[MONEY_MARKET + 1][];
+        for (byte type = CHECKING; type <= MONEY_MARKET; type++) {
+            rows[type] = new int[typeCounts[type]];
+            typeBalances[type] = new long[typeCounts[type]];
+        }
+        boolean[] directDeposits = new boolean[typeCounts[CHECKING]];
+        boolean[] loyalties = new boolean[typeCounts[SAVINGS]];
+        int[] withdrawalCounts = new int[typeCounts[MONEY_MARKET]];
+
+        // Gathers each type's columns into dense arrays
+        int[] next = new int[MONEY_MARKET + 1];
+        for (int row = 0; row < this.rowCount; row++) {
+            byte type = this.getType(row);
+            if (type == EMPTY) {
+                continue;
+            }
+
+            int i = next[type]++;
+            rows[type][i] = row;
+            typeBalances[type][i] = this.getBalance(row);
+            if (type == CHECKING) {
+                directDeposits[i] = (this.getFlags(row) & DIRECT_DEPOSIT) != 0;
+            } else if (type == SAVINGS) {
+                loyalties[i] = (this.getFlags(row) & LOYAL) != 0;
+            } else {
+                withdrawalCounts[i] = this.getWithdrawals(row);
+            }
+        }
+
+        MonthEndSummary summary = MonthEndKernel.checking(typeBalances[CHECKING], directDeposits, typeCounts[CHECKING])
+                .plus(MonthEndKernel.savings(typeBalances[SAVINGS], loyalties, typeCounts[SAVINGS]))
+                .plus(MonthEndKernel.moneyMarket(typeBalances[MONEY_MARKET], withdrawalCounts, typeCounts[MONEY_MARKET]));
+
+        // Scatters the new balances back into the columns
+        for (byte type = CHECKING; type <= MONEY_MARKET; type++) {
+            for (int i = 0; i < typeCounts[type]; i++) {
+                this.setBalance(rows[type][i], typeBalances[type][i]);
+            }
+        }
+        for (int i = 0; i < typeCounts[MONEY_MARKET]; i++) {
+            this.setWithdrawals(rows[MONEY_MARKET][i], withdrawalCounts[i]);
+        }
+        return summary.withElapsedNanos(System.nanoTime() - startTime);
+    }
+
+    /**
+     * Projects the balance of every account a number of months ahead straight from the columns, without changing them
+     * @param months	the number of month ends to project, at least 0
+     * @return			the projected balances in cents, in the same order as getAccounts
+     */
+    public long[] projectBalances(int months) {
+        if (months < 0) {
+            throw new IllegalArgumentException("Cannot project " + months + " months");
+        }
+
+        long[] projected = new long[this.size];
+        int accountIndex = 0;
+        for (int row = 0; row < this.rowCount; row++) {
+            switch (this.getType(row)) {
+                case CHECKING:
+                    projected[accountIndex++] = Checking.projectBalance(this.getBalance(row),
+                            (this.getFlags(row) & DIRECT_DEPOSIT) != 0, months);
+                    break;
+                case SAVINGS:
+                    projected[accountIndex++] = Savings.projectBalance(this.getBalance(row),
+                            (this.getFlags(row) & LOYAL) != 0, months);
+                    break;
+                case MONEY_MARKET:
+                    projected[accountIndex++] = MoneyMarket.projectBalance(this.getBalance(row),
+                            this.getWithdrawals(row), months);
+                    break;
+                default:
+                    break;
+            }
+        }
+        return projected;
+    }
+
+    /**
+     * Gets a view of the account stored in a row
+     * @param row	a row that is not empty
+     * @return		the view
+     */
+    private Account view(int row) {
+        switch (this.getType(row)) {
+            case CHECKING:
+                return new CheckingView(this, row);
+            case SAVINGS:
+                return new SavingsView(this, row);
+            default:
+                return new MoneyMarketView(this, row);
+        }
+    }
+
+    /**
+     * Updates all the accounts, then outputs them in order of date opened<br>
+     * Accounts opened on the same day are ordered by name
+     * @return	a string to output to the UI
+     */
+    public String printByDateOpen() {
+        StringBuilder result = new StringBuilder();
+        try {
+            this.printByDateOpen(result);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return result.toString();
+    }
+
+    /**
+     * Updates all the accounts, then writes them in order of date opened<br>
+     * Accounts opened on the same day are ordered by name
+     * @param out			where to write the accounts, such as a Writer
+     * @throws IOException	if out cannot be written to
+     */
+    public void printByDateOpen(Appendable out) throws IOException {
+        this.printUpdated(AccountSorter.BY_DATE_THEN_NAME, out);
+    }
+
+    /**
+     * Updates all the accounts, then outputs them in order of last name, then first name
+     * @return	a string to output to the UI
+     */
+    public String printByLastName() {
+        StringBuilder result = new StringBuilder();
+        try {
+            this.printByLastName(result);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return result.toString();
+    }
+
+    /**
+     * Updates all the accounts, then writes them in order of last name, then first name
+     * @param out			where to write the accounts, such as a Writer
+     * @throws IOException	if out cannot be written to
+     */
+    public void printByLastName(Appendable out) throws IOException {
+        this.printUpdated(AccountSorter.BY_NAME_THEN_TYPE, out);
+    }
+
+    /**
+     * Updates all the accounts, then writes them in a given order
+     * @param order			the order to output the accounts in
+     * @param out			where to write the accounts
+     * @throws IOException	if out cannot be written to
+     */
+    private void printUpdated(Comparator<Account> order, Appendable out) throws IOException {
+        if (size == 0) {
+            out.append("Database is empty\n");
+            return;
+        }
+
+        Account[] accounts = this.getAccounts();
+        AccountSorter.sort(accounts, order);
+
+        for (Account account : accounts) {
+            out.append(AccountDatabase.updateAccount(account)).append('\n');
+        }
+    }
+
+    /**
+     * Returns a string of all the accounts in the order they are stored
+     * @return	a string to output to the UI
+     */
+    public String printAccounts() {
+        StringBuilder result = new StringBuilder();
+        try {
+            this.printAccounts(result);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return result.toString();
+    }
+
+    /**
+     * Writes all the accounts in the order they are stored
+     * @param out			where to write the accounts, such as a Writer
+     * @throws IOException	if out cannot be written to
+     */
+    public void printAccounts(Appendable out) throws IOException {
+        if (size == 0) {
+            out.append("Database is empty\n");
+            return;
+        }
+
+        StringBuilder line = new StringBuilder(64);
+        for (Account account : this.getAccounts()) {
+            line.setLength(0);
+            out.append(account.appendTo(line).append('\n'));
+        }
+    }
+
+    /**
+     * Returns a string of all the accounts in the format for export
+     * Format Account Type first letter,first name, last name, balance, date, and boolean or int value
+     * @return	a string that is to be used for export to a file
+     */
+    public String printAccountsForExport() {
+        StringBuilder result = new StringBuilder();
+        try {
+            this.printAccountsForExport(result);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return result.toString();
+    }
+
+    /**
+     * Writes all the accounts in the format for export
+     * Format Account Type first letter,first name, last name, balance, date, and boolean or int value
+     * @param out			where to write the accounts, such as a Writer
+     * @throws IOException	if out cannot be written to
+     */
+    public void printAccountsForExport(Appendable out) throws IOException {
+        if (size == 0) {
+            out.append("Database is empty\n");
+            return;
+        }
+
+        StringBuilder line = new StringBuilder(64);
+        for (Account account : this.getAccounts()) {
+            line.setLength(0);
+            AccountExporter.appendExportLine(line, account);
+            out.append(line);
+        }
+    }
+
+    /**
+     * The row of a columnar database that a view reads and writes<br>
+     * The name and open date of a row never change, so they are only read the first time they are needed.
+     * A columnar database is used from one thread, so the balance is updated without atomic operations
+     */
+    private static final class Row {
+        private final ColumnarAccountDatabase columns;
+        private final int row;
+        private Profile holder;
+        private Date dateOpen;
+
+        /**
+         * Constructs a reference to a row
+         * @param columns	the database holding the row
+         * @param row		the row
+         */
+        Row(ColumnarAccountDatabase columns, int row) {
+            this.columns = columns;
+            this.row = row;
+        }
+
+        /**
+         * Gets the balance of the row
+         * @return	the balance in cents
+         */
+        long getBalanceCents() {
+            return this.columns.getBalance(this.row);
+        }
+
+        /**
+         * Adds to the balance of the row
+         * @param cents	the amount to add in cents, negative to remove money
+         */
+        void addCents(long cents) {
+            this.columns.setBalance(this.row, this.columns.getBalance(this.row) + cents);
+        }
+
+        /**
+         * Removes money from the balance of the row if it has enough money
+         * @param cents	the amount of money to remove in cents
+         * @return		true if the money was removed, false if the balance is too low
+         */
+        boolean tryDebitCents(long cents) {
+            long current = this.columns.getBalance(this.row);
+            if (current - cents < 0) {
+                return false;
+            }
+            this.columns.setBalance(this.row, current - cents);
+            return true;
+        }
+
+        /**
+         * Gets the flags of the row
+         * @return	the flags
+         */
+        byte getFlags() {
+            return this.columns.getFlags(this.row);
+        }
+
+        /**
+         * Gets the withdrawals of the row
+         * @return	the number of withdrawals
+         */
+        int getWithdrawals() {
+            return this.columns.getWithdrawals(this.row);
+        }
+
+        /**
+         * Adds one to the withdrawals of the row
+         */
+        void countWithdrawal() {
+            this.columns.setWithdrawals(this.row, this.columns.getWithdrawals(this.row) + 1);
+        }
+
+        /**
+         * Gets the profile of the row
+         * @return	the profile, made the first time it is needed
+         */
+        Profile getProfile() {
+            if (this.holder == null) {
+                this.holder = this.columns.getProfile(this.row);
+            }
+            return this.holder;
+        }
+
+        /**
+         * Gets the open date of the row
+         * @return	the open date, made the first time it is needed
+         */
+        Date getOpenDate() {
+            if (this.dateOpen == null) {
+                this.dateOpen = Date.fromPacked(this.columns.getOpenDate(this.row));
+            }
+            return this.dateOpen;
+        }
+    }
+
+    /**
+     * A checking account whose state is stored in a row of a columnar database<br>
+     * Every field of the account it extends is left empty, and all of its state is read from the row
+     */
+    private static class CheckingView extends Checking {
+        private final Row row;
+
+        /**
+         * Constructs a view of a row
+         * @param columns	the database holding the row
+         * @param row		the row of a checking account
+         */
+        CheckingView(ColumnarAccountDatabase columns, int row) {
+            super(null, 0, null, false);
+            this.row = new Row(columns, row);
+        }
+
+        @Override
+        public long getBalanceCents() {
+            return this.row.getBalanceCents();
+        }
+
+        @Override
+        public void creditCents(long cents) {
+            this.row.addCents(cents);
+        }
+
+        @Override
+        public void debitCents(long cents) {
+            this.row.addCents(-cents);
+        }
+
+        @Override
+        public boolean tryDebitCents(long cents) {
+            return this.row.tryDebitCents(cents);
+        }
+
+        @Override
+        public Profile getProfile() {
+            return this.row.getProfile();
+        }
+
+        @Override
+        public Date getOpenDate() {
+            return this.row.getOpenDate();
+        }
+
+        @Override
+        public boolean getIsDirectDeposit() {
+            return (this.row.getFlags() & DIRECT_DEPOSIT) != 0;
+        }
+    }
+
+    /**
+     * A savings account whose state is stored in a row of a columnar database<br>
+     * Every field of the account it extends is left empty, and all of its state is read from the row
+     */
+    private static class SavingsView extends Savings {
+        private final Row row;
+
+        /**
+         * Constructs a view of a row
+         * @param columns	the database holding the row
+         * @param row		the row of a savings account
+         */
+        SavingsView(ColumnarAccountDatabase columns, int row) {
+            super(null, 0, null, false);
+            this.row = new Row(columns, row);
+        }
+
+        @Override
+        public long getBalanceCents() {
+            return this.row.getBalanceCents();
+        }
+
+        @Override
+        public void creditCents(long cents) {
+            this.row.addCents(cents);
+        }
+
+        @Override
+        public void debitCents(long cents) {
+            this.row.addCents(-cents);
+        }
+
+        @Override
+        public boolean tryDebitCents(long cents) {
+            return this.row.tryDebitCents(cents);
+        }
+
+        @Override
+        public Profile getProfile() {
+            return this.row.getProfile();
+        }
+
+        @Override
+        public Date getOpenDate() {
+            return this.row.getOpenDate();
+        }
+
+        @Override
+        public boolean getIsLoyal() {
+            return (this.row.getFlags() & LOYAL) != 0;
+        }
+    }
+
+    /**
+     * A money market account whose state is stored in a row of a columnar database<br>
+     * Every field of the account it extends is left empty, and all of its state, including the withdrawals,
+     * is read from the row
+     */
+    private static class MoneyMarketView extends MoneyMarket {
+        private final Row row;
+
+        /**
+         * Constructs a view of a row
+         * @param columns	the database holding the row
+         * @param row		the row of a money market account
+         */
+        MoneyMarketView(ColumnarAccountDatabase columns, int row) {
+            super(null, 0, null, 0);
+            this.row = new Row(columns, row);
+        }
+
+        @Override
+        public long getBalanceCents() {
+            return this.row.getBalanceCents();
+        }
+
+        @Override
+        public void creditCents(long cents) {
+            this.row.addCents(cents);
+        }
+
+        @Override
+        public void debitCents(long cents) {
+            this.row.countWithdrawal();
+            this.row.addCents(-cents);
+        }
+
+        @Override
+        public boolean tryDebitCents(long cents) {
+            if (!this.row.tryDebitCents(cents)) {
+                return false;
+            }
+            this.row.countWithdrawal();
+            return true;
+        }
+
+        @Override
+        public Profile getProfile() {
+            return this.row.getProfile();
+        }
+
+        @Override
+        public Date getOpenDate() {
+            return this.row.getOpenDate();
+        }
+
+        @Override
+        public int getWithdrawals() {
+            return this.row.getWithdrawals();
+        }
+    }
+
+    /**
+     * Testmain - tests that this database behaves the same as AccountDatabase
+     * @param args	unused
+     */
+    public static void main(String[] args) {
+        AccountDatabase db = new AccountDatabase();
+        ColumnarAccountDatabase columnarDb = new ColumnarAccountDatabase();
+        java.util.Random random = new java.util.Random(213);
+
+        // Runs the same random operations on both databases
+        boolean isSame = true;
+        for (int i = 0; i < 20000; i++) {
+            int person = random.nextInt(300);
+            Account account;
+            switch (random.nextInt(3)) {
+                case 0:
+                    account = new Checking("F" + person, "L" + person % 7, random.nextInt(3000), 1 + person % 12,
+                            1 + person % 28, 2000 + person % 5, person % 2 == 0);
+                    break;
+                case 1:
+                    account = new Savings("F" + person, "L" + person % 7, random.nextInt(3000), 1 + person % 12,
+                            1 + person % 28, 2000 + person % 5, person % 2 == 0);
+                    break;
+                default:
+                    account = new MoneyMarket("F" + person, "L" + person % 7, random.nextInt(3000), 1 + person % 12,
+                            1 + person % 28, 2000 + person % 5);
+                    break;
+            }
+
+            switch (random.nextInt(4)) {
+                case 0:
+                    isSame &= db.add(account) == columnarDb.add(account);
+                    break;
+                case 1:
+                    isSame &= db.remove(account) == columnarDb.remove(account);
+                    break;
+                case 2:
+                    isSame &= db.deposit(account, 10) == columnarDb.deposit(account, 10);
+                    break;
+                default:
+                    isSame &= db.withdrawal(account, 100) == columnarDb.withdrawal(account, 100);
+                    break;
+            }
+        }
+
+        if (isSame && db.getsize() == columnarDb.getsize()) {
+            System.out.println("Expected: both databases have " + db.getsize() + " accounts");
+        } else {
+            System.out.println("Unexpected: databases differ");
+        }
+
+        // Tests if reports are the same, including the month end updates they apply
+        if (db.printByLastName().equals(columnarDb.printByLastName())
+                && db.printByDateOpen().equals(columnarDb.printByDateOpen())) {
+            System.out.println("Expected: reports match");
+        } else {
+            System.out.println("Unexpected: reports differ");
+        }
+
+        // Tests if the month end kernel matches the account by account month end
+        MonthEndSummary summary = columnarDb.applyMonthEnd();
+        MonthEndSummary expectedSummary = db.applyMonthEnd();
+        if (summary.getAccountsProcessed() == expectedSummary.getAccountsProcessed()
+                && summary.getTotalInterestCents() == expectedSummary.getTotalInterestCents()
+                && summary.getTotalFeesCents() == expectedSummary.getTotalFeesCents()
+                && columnarDb.printByLastName().equals(db.printByLastName())) {
+            System.out.println("Expected: month end kernel matches " + summary.getAccountsProcessed() + " accounts");
+        } else {
+            System.out.println("Unexpected: month end kernel does not match");
+        }
+
+        // Tests if views change the database
+        Account view = columnarDb.getAccount(new MoneyMarket("F1", "L1"));
+        if (view == null) {
+            view = columnarDb.getAccount(new Checking("F1", "L1"));
+        }
+        if (view != null) {
+            long balance = view.getBalanceCents();
+            view.credit(5);
+            // The name and open date are read from the row once, then kept by the view
+            if (columnarDb.getAccount(view).getBalanceCents() == balance + 500
+                    && view.getOpenDate() == view.getOpenDate() && view.getProfile() == view.getProfile()) {
+                System.out.println("Expected: crediting a view changed the database");
+            } else {
+                System.out.println("Unexpected: crediting a view did not change the database");
+            }
+        }
+
+        // Tests if projecting from the columns matches projecting each account
+        long[] projected = columnarDb.projectBalances(24);
+        Account[] accounts = columnarDb.getAccounts();
+        boolean isProjected = projected.length == accounts.length;
+        for (int i = 0; isProjected && i < accounts.length; i++) {
+            isProjected = projected[i] == accounts[i].projectBalanceCents(24);
+        }
+        if (isProjected) {
+            System.out.println("Expected: column projection matches " + accounts.length + " accounts");
+        } else {
+            System.out.println("Unexpected: column projection does not match");
+        }
+    }
+}
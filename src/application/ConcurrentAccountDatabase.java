@@ -0,0 +1,553 @@
+package application;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * This class handles storing and handling accounts from many threads at once<br>
+ * Deposits and withdrawals share a read lock on the database and lock one of a set of stripes
+ * chosen by the account holder's profile, so transactions on different accounts run in parallel
+ * and transactions on the same account run one at a time, in the order they took the stripe.
+ * Adding and removing accounts and the month end lock the whole database.
+ * Reports print a copy of the database so they only lock it while it is copied, and the month end reports
+ * apply the month end in the same locked step
+ * @author Steven Nguyen, Julian Romero
+ */
+public class ConcurrentAccountDatabase extends AccountDatabase {
+    private static final int STRIPE_COUNT = 64;
+
+    private final ReentrantReadWriteLock databaseLock;
+    private final ReentrantLock[] stripes;
+
+    /**
+     * Constructs a default concurrent account database with 0 accounts
+     */
+    public ConcurrentAccountDatabase() {
+        this(0);
+    }
+
+    /**
+     * Constructs a concurrent account database with 0 accounts and room for an expected number of accounts
+     * @param expectedSize	the number of accounts expected to be loaded, used to preallocate storage
+     */
+    public ConcurrentAccountDatabase(int expectedSize) {
+        super(expectedSize);
+        this.databaseLock = new ReentrantReadWriteLock();
+        this.stripes = new ReentrantLock[STRIPE_COUNT];
+        for (int i = 0; i < STRIPE_COUNT; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Gets the stripe lock that guards an account
+     * @param account	the account
+     * @return			the lock for the account's profile
+     */
+    private ReentrantLock stripeFor(Account account) {
+        int hash = account.getProfile().hashCode();
+        hash ^= hash >>> 16;
+        return this.stripes[hash & (STRIPE_COUNT - 1)];
+    }
+
+    @Override
+    public int getsize() {
+        this.databaseLock.readLock().lock();
+        try {
+            return super.getsize();
+        } finally {
+            this.databaseLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean add(Account account) {
+        this.databaseLock.writeLock().lock();
+        try {
+            return super.add(account);
+        } finally {
+            this.databaseLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public BulkAddResult addAll(Collection<? extends Account> accounts) {
+        this.databaseLock.writeLock().lock();
+        try {
+            return super.addAll(accounts);
+        } finally {
+            this.databaseLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds many accounts to the database at once<br>
+     * The accounts are taken from the iterator before the database is locked
+     * @param accounts	the accounts to add, in the order they should be added
+     * @return			the number of accounts added and the accounts rejected as duplicates
+     */
+    @Override
+    public BulkAddResult addAll(Iterator<? extends Account> accounts) {
+        ArrayList<Account> batch = new ArrayList<Account>();
+        while (accounts.hasNext()) {
+            batch.add(accounts.next());
+        }
+        return this.addAll(batch);
+    }
+
+    @Override
+    public boolean remove(Account account) {
+        this.databaseLock.writeLock().lock();
+        try {
+            return super.remove(account);
+        } finally {
+            this.databaseLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean depositCents(Account account, long cents) {
+        this.databaseLock.readLock().lock();
+        try {
+            return super.depositCents(account, cents);
+        } finally {
+            this.databaseLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Withdraws money from an account<br>
+     * The balance check and the withdrawal happen while holding the account's stripe lock
+     * @param account	an account with the same first and last name as the account to withdraw from
+     * @param cents		the amount of money to withdraw in cents
+     * @return			-1 if the account is not found, 1 if the account doesn't have enough money to withdraw,<br>
+     * and 0 if successfully withdrawn
+     */
+    @Override
+    public int withdrawalCents(Account account, long cents) {
+        this.databaseLock.readLock().lock();
+        try {
+            return super.withdrawalCents(account, cents);
+        } finally {
+            this.databaseLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Applies a batch of deposits and withdrawals<br>
+     * Holds only the read lock for the whole batch, so no account in the batch can be closed while it is applied,
+     * and each transaction locks its account's stripe on its own, so a batch never holds two stripes at once
+     * @param transactions	the transactions, in the order to apply them
+     * @return				the result of each transaction
+     */
+    @Override
+    public int[] applyTransactions(Transaction[] transactions) {
+        this.databaseLock.readLock().lock();
+        try {
+            return super.applyTransactions(transactions);
+        } finally {
+            this.databaseLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds money to an account and queues its journal record while holding its stripe lock
+     * @param stored	the account as it is stored in this database
+     * @param cents		the amount of money to add in cents
+     * @return			the number of the journal record, or 0 if no journal is attached
+     */
+    @Override
+    long applyDeposit(Account stored, long cents) {
+        ReentrantLock stripe = this.stripeFor(stored);
+        stripe.lock();
+        try {
+            return super.applyDeposit(stored, cents);
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * Removes money from an account if it has enough money and queues its journal record, while holding its stripe lock
+     * @param stored	the account as it is stored in this database
+     * @param cents		the amount of money to remove in cents
+     * @return			the number of the journal record, 0 if no journal is attached, or -1 if the balance is too low
+     */
+    @Override
+    long applyWithdrawal(Account stored, long cents) {
+        ReentrantLock stripe = this.stripeFor(stored);
+        stripe.lock();
+        try {
+            return super.applyWithdrawal(stored, cents);
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * Attaches a journal that every later change to this database is logged to<br>
+     * Deposits and withdrawals queue their record under their stripe lock, then wait for it holding only the read lock,
+     * so transactions from many threads are forced to disk together
+     * @param _journal	the journal, or null to stop logging
+     */
+    @Override
+    void setJournal(TransactionJournal _journal) {
+        this.databaseLock.writeLock().lock();
+        try {
+            super.setJournal(_journal);
+        } finally {
+            this.databaseLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Writes a snapshot of this database to a file<br>
+     * Holds the database lock so the snapshot and the journal it empties agree on the same point in time
+     * @param snapshotFile	the file to write the snapshot to
+     * @throws IOException	if the snapshot or journal cannot be written
+     */
+    @Override
+    public void checkpoint(File snapshotFile) throws IOException {
+        this.databaseLock.writeLock().lock();
+        try {
+            super.checkpoint(snapshotFile);
+        } finally {
+            this.databaseLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Copies this database and every account in it<br>
+     * Holds the database lock while copying so the copy reflects a single point in time
+     * @return	a new, unsynchronized database holding copies of the accounts
+     */
+    @Override
+    public AccountDatabase snapshot() {
+        this.databaseLock.writeLock().lock();
+        try {
+            return super.snapshot();
+        } finally {
+            this.databaseLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Account getAccount(Account account) {
+        this.databaseLock.readLock().lock();
+        try {
+            return super.getAccount(account);
+        } finally {
+            this.databaseLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Projects the balance of one account a number of months ahead without changing it<br>
+     * Holds only the read lock, so the account cannot be closed or moved while it is found and projected
+     * @param account	an account with the same type and first and last name as the account to project
+     * @param months	the number of month ends to project, at least 0
+     * @return			the projected balance in cents, or null if the account is not found
+     */
+    @Override
+    public Long projectBalanceCents(Account account, int months) {
+        this.databaseLock.readLock().lock();
+        try {
+            return super.projectBalanceCents(account, months);
+        } finally {
+            this.databaseLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Account[] getAccounts() {
+        this.databaseLock.readLock().lock();
+        try {
+            return super.getAccounts();
+        } finally {
+            this.databaseLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets a page of accounts by position in an order<br>
+     * Holds the database lock since the sorted accounts are cached for the next page
+     * @param order			the order of the accounts, or null for the order they were added
+     * @param startIndex	the position of the first account of the page
+     * @param count			the most accounts to get
+     * @return				a new array of up to count accounts
+     */
+    @Override
+    public Account[] getPage(Comparator<? super Account> order, int startIndex, int count) {
+        this.databaseLock.writeLock().lock();
+        try {
+            return super.getPage(order, startIndex, count);
+        } finally {
+            this.databaseLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Account[] getPageAfter(Comparator<? super Account> order, Account after, int count) {
+        this.databaseLock.writeLock().lock();
+        try {
+            return super.getPageAfter(order, after, count);
+        } finally {
+            this.databaseLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public MonthEndSummary applyMonthEnd() {
+        this.databaseLock.writeLock().lock();
+        try {
+            return super.applyMonthEnd();
+        } finally {
+            this.databaseLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Updates all the accounts, then writes them in order of date opened<br>
+     * The month end is applied while the database is locked, but the report is written from a copy taken just before,
+     * so a slow out never holds up other threads
+     * @param out			where to write the accounts, such as a Writer
+     * @throws IOException	if out cannot be written to
+     */
+    @Override
+    public void printByDateOpen(Appendable out) throws IOException {
+        this.monthEndCopy().printByDateOpen(out);
+    }
+
+    /**
+     * Updates all the accounts, then writes them in order of last name, then first name<br>
+     * The month end is applied while the database is locked, but the report is written from a copy taken just before,
+     * so a slow out never holds up other threads
+     * @param out			where to write the accounts, such as a Writer
+     * @throws IOException	if out cannot be written to
+     */
+    @Override
+    public void printByLastName(Appendable out) throws IOException {
+        this.monthEndCopy().printByLastName(out);
+    }
+
+    /**
+     * Copies the database, then applies a month end to it, as one step under the database lock<br>
+     * Printing a month end report from the copy updates the copy the same way and describes the same changes
+     * @return	an unsynchronized copy of the accounts as they were before the month end
+     */
+    private AccountDatabase monthEndCopy() {
+        this.databaseLock.writeLock().lock();
+        try {
+            AccountDatabase copy = super.snapshot();
+            if (copy.getsize() > 0) {
+                super.applyMonthEnd();
+            }
+            return copy;
+        } finally {
+            this.databaseLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void printAccounts(Appendable out) throws IOException {
+        this.snapshot().printAccounts(out);
+    }
+
+    @Override
+    public void printAccountsForExport(Appendable out) throws IOException {
+        this.snapshot().printAccountsForExport(out);
+    }
+
+    @Override
+    public void printAccountsForExport(WritableByteChannel channel) throws IOException {
+        this.snapshot().printAccountsForExport(channel);
+    }
+
+    /**
+     * Testmain - tests concurrent transactions
+     * @param args	unused
+     */
+    public static void main(String[] args) {
+        final ConcurrentAccountDatabase db = new ConcurrentAccountDatabase();
+        final int accountCount = 100;
+        final int threadCount = 8;
+        final int transactionCount = 20000;
+        for (int i = 0; i < accountCount; i++) {
+            db.add(new MoneyMarket("F" + i, "L" + i, 100, 1, 1, 2000));
+        }
+
+        // Each thread deposits and withdraws $1 at a time while other threads open and close accounts
+        final long[] deposited = new long[threadCount];
+        final long[] withdrawn = new long[threadCount];
+        Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            final int thread = t;
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    java.util.Random random = new java.util.Random(thread);
+                    for (int i = 0; i < transactionCount; i++) {
+                        int person = random.nextInt(accountCount);
+                        if (random.nextBoolean()) {
+                            if (db.deposit(new MoneyMarket("F" + person, "L" + person), 1)) {
+                                deposited[thread]++;
+                            }
+                        } else if (db.withdrawal(new MoneyMarket("F" + person, "L" + person), 1) == 0) {
+                            withdrawn[thread]++;
+                        }
+                        if (i % 100 == 0) {
+                            db.add(new Savings("T" + thread, "T" + i, 1, 1, 1, 2000, false));
+                            db.remove(new Savings("T" + thread, "T" + i));
+                        }
+                    }
+                }
+            });
+            threads[t].start();
+        }
+
+        try {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            System.out.println("Unexpected: interrupted");
+            return;
+        }
+
+        // Tests if no transaction was lost and no balance went negative
+        long totalDeposited = 0;
+        long totalWithdrawn = 0;
+        for (int t = 0; t < threadCount; t++) {
+            totalDeposited += deposited[t];
+            totalWithdrawn += withdrawn[t];
+        }
+        long total = 0;
+        boolean isOverdrawn = false;
+        for (Account account : db.snapshot().getAccounts()) {
+            total += account.getBalanceCents();
+            isOverdrawn |= account.getBalanceCents() < 0;
+        }
+        long expected = (accountCount * 100 + totalDeposited - totalWithdrawn) * Money.CENTS_PER_DOLLAR;
+        if (total == expected && !isOverdrawn && db.getsize() == accountCount) {
+            System.out.println("Expected: balances add up after " + threadCount * transactionCount + " concurrent transactions");
+        } else {
+            System.out.println("Unexpected: total " + total + " instead of " + expected);
+        }
+
+        // Tests if withdrawals racing on one account never overdraw it and are all counted
+        final MoneyMarket hot = new MoneyMarket("Hot", "Account", 1000, 1, 1, 2000);
+        db.add(hot);
+        int versionBefore = db.getVersion();
+        final int[] succeeded = new int[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            final int thread = t;
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 500; i++) {
+                        if (db.withdrawal(new MoneyMarket("Hot", "Account"), 1) == 0) {
+                            succeeded[thread]++;
+                        }
+                    }
+                }
+            });
+            threads[t].start();
+        }
+
+        try {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            System.out.println("Unexpected: interrupted");
+            return;
+        }
+
+        int totalSucceeded = 0;
+        for (int count : succeeded) {
+            totalSucceeded += count;
+        }
+        // The version changes once for every withdrawal, even though they only hold the read lock
+        if (totalSucceeded == 1000 && hot.getBalanceCents() == 0 && hot.getWithdrawals() == 1000
+                && db.getVersion() - versionBefore == 1000) {
+            System.out.println("Expected: exactly 1000 of " + threadCount * 500 + " racing $1 withdrawals succeeded");
+        } else {
+            System.out.println("Unexpected: " + totalSucceeded + " withdrawals succeeded, balance " + hot.getBalanceCents());
+        }
+
+        // Tests if an account is always found and projected while other accounts are opened and closed around it
+        Thread churn = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 20000; i++) {
+                    db.add(new Checking("C" + i, "C", 1, 1, 1, 2000, false));
+                    if (i % 2 == 1) {
+                        db.remove(new Checking("C" + (i - 1), "C"));
+                    }
+                }
+            }
+        });
+        churn.start();
+        int projectedCount = 0;
+        Long projected = Long.valueOf(0);
+        while (churn.isAlive()) {
+            projected = db.projectBalanceCents(new MoneyMarket("F0", "L0"), 12);
+            if (projected == null) {
+                break;
+            }
+            projectedCount++;
+        }
+        try {
+            churn.join();
+        } catch (InterruptedException e) {
+            System.out.println("Unexpected: interrupted");
+            return;
+        }
+        if (projected != null) {
+            System.out.println("Expected: projected an account " + projectedCount
+                    + " times while others were opened and closed");
+        } else {
+            System.out.println("Unexpected: account was not found while others were opened and closed");
+        }
+
+        // Tests if a month end report matches the unsynchronized database and is written without holding the lock
+        final AccountDatabase plain = db.snapshot();
+        final boolean[] isLockedWhileWriting = new boolean[1];
+        final StringBuilder report = new StringBuilder();
+        Appendable out = new Appendable() {
+            @Override
+            public Appendable append(CharSequence text) {
+                isLockedWhileWriting[0] |= db.databaseLock.isWriteLocked();
+                report.append(text);
+                return this;
+            }
+
+            @Override
+            public Appendable append(CharSequence text, int start, int end) {
+                return this.append(text.subSequence(start, end));
+            }
+
+            @Override
+            public Appendable append(char c) {
+                return this.append(String.valueOf(c));
+            }
+        };
+        try {
+            db.printByLastName(out);
+        } catch (IOException e) {
+            System.out.println("Unexpected: " + e);
+        }
+        if (report.toString().equals(plain.printByLastName()) && db.printAccounts().equals(plain.printAccounts())
+                && !isLockedWhileWriting[0]) {
+            System.out.println("Expected: month end report is written from a copy after the lock is released");
+        } else {
+            System.out.println("Unexpected: month end report differs or was written under the lock");
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package application;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * This class keeps an account database in a snapshot file and a journal file, so its accounts survive the program
+ * closing<br>
+ * Opening loads the snapshot and replays the journal made after it into an empty database, and every later change to
+ * the database is logged to the journal. Once enough changes are logged, or when the files are closed, a checkpoint
+ * writes a new snapshot and empties the journal, so the journal never grows without bound.
+ * The files are named after a base path, such as accounts.snapshot and accounts.journal for the base path accounts
+ * @author Steven Nguyen, Julian Romero
+ */
+public class DatabaseFiles implements Closeable {
+    static final String DATA_OPTION = "--data";
+    static final long CHECKPOINT_RECORDS = 100000;
+
+    private final AccountDatabase db;
+    private final File snapshotFile;
+    private final File journalFile;
+    private final TransactionJournal journal;
+    private final long checkpointRecords;
+    private volatile long checkpointedCount;
+
+    /**
+     * Constructs the files of an open database
+     * @param _db					the database
+     * @param _snapshotFile			the snapshot file
+     * @param _journalFile			the journal file
+     * @param _journal				the journal, already attached to the database
+     * @param _checkpointRecords	the number of records logged between checkpoints
+     */
+    private DatabaseFiles(AccountDatabase _db, File _snapshotFile, File _journalFile, TransactionJournal _journal,
+            long _checkpointRecords) {
+        this.db = _db;
+        this.snapshotFile = _snapshotFile;
+        this.journalFile = _journalFile;
+        this.journal = _journal;
+        this.checkpointRecords = _checkpointRecords;
+    }
+
+    /**
+     * Opens the files of a database, creating them if they do not exist<br>
+     * Every change saved in them is loaded into the database, then its later changes are logged
+     * @param basePath		the path the files are named after
+     * @param db			the database to rebuild, which should be empty and not yet shared with other threads
+     * @return				the open files
+     * @throws IOException	if the files cannot be read or opened
+     */
+    public static DatabaseFiles open(File basePath, AccountDatabase db) throws IOException {
+        return open(basePath, db, CHECKPOINT_RECORDS);
+    }
+
+    /**
+     * Opens the files of a database with a given number of records between checkpoints
+     * @param basePath			the path the files are named after
+     * @param db				the database to rebuild, which should be empty and not yet shared with other threads
+     * @param checkpointRecords	the number of records logged before checkpointIfNeeded takes a checkpoint
+     * @return					the open files
+     * @throws IOException		if the files cannot be read or opened
+     */
+    static DatabaseFiles open(File basePath, AccountDatabase db, long checkpointRecords) throws IOException {
+        File snapshotFile = new File(basePath.getPath() + ".snapshot");
+        File journalFile = new File(basePath.getPath() + ".journal");
+        TransactionJournal journal = TransactionJournal.open(journalFile, snapshotFile, db);
+        return new DatabaseFiles(db, snapshotFile, journalFile, journal, checkpointRecords);
+    }
+
+    /**
+     * Gets the base path given by a leading --data option on the command line
+     * @param args	the command line arguments
+     * @return		the base path, or null if the arguments do not start with --data and a path
+     */
+    static File dataOption(String[] args) {
+        if (args.length >= 2 && args[0].equals(DATA_OPTION)) {
+            return new File(args[1]);
+        }
+        return null;
+    }
+
+    /**
+     * Gets the command line arguments after a leading --data option
+     * @param args	the command line arguments
+     * @return		the arguments without --data and its path, or args if they do not start with it
+     */
+    static String[] withoutDataOption(String[] args) {
+        if (dataOption(args) != null) {
+            return Arrays.copyOfRange(args, 2, args.length);
+        }
+        return args;
+    }
+
+    /**
+     * Gets the journal file
+     * @return	the journal file
+     */
+    public File getJournalFile() {
+        return this.journalFile;
+    }
+
+    /**
+     * Gets the snapshot file
+     * @return	the snapshot file
+     */
+    public File getSnapshotFile() {
+        return this.snapshotFile;
+    }
+
+    /**
+     * Takes a checkpoint if enough records were logged since the last one<br>
+     * Called after each command, so the journal stays near the checkpoint size however long the program runs.
+     * Only one thread takes a checkpoint at a time, and the others return right away
+     * @return				true if a checkpoint was taken
+     * @throws IOException	if the snapshot or journal cannot be written
+     */
+    public boolean checkpointIfNeeded() throws IOException {
+        if (this.journal.getRecordCount() - this.checkpointedCount < this.checkpointRecords) {
+            return false;
+        }
+        synchronized (this) {
+            long recordCount = this.journal.getRecordCount();
+            if (recordCount - this.checkpointedCount < this.checkpointRecords) {
+                return false;
+            }
+            this.db.checkpoint(this.snapshotFile);
+            this.checkpointedCount = recordCount;
+            return true;
+        }
+    }
+
+    /**
+     * Takes a checkpoint so the next open only loads the snapshot, then closes the files<br>
+     * If the checkpoint fails, every logged change is still written to the journal before it is closed
+     * @throws IOException	if the changes cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            synchronized (this) {
+                if (this.journal.getRecordCount() > this.checkpointedCount) {
+                    this.db.checkpoint(this.snapshotFile);
+                }
+            }
+        } finally {
+            this.journal.close();
+        }
+    }
+
+    /**
+     * Testmain - tests that a database opened from its files has the changes made before they were closed
+     * @param args	unused
+     */
+    public static void main(String[] args) {
+        try {
+            File basePath = File.createTempFile("accounts", "");
+            basePath.delete();
+            File journalFile = new File(basePath.getPath() + ".journal");
+            journalFile.deleteOnExit();
+            new File(basePath.getPath() + ".snapshot").deleteOnExit();
+
+            AccountDatabase db = new AccountDatabase();
+            DatabaseFiles files = open(basePath, db);
+            db.add(new Checking("John", "Doe", 500, 1, 2, 2020, true));
+            db.deposit(new Checking("John", "Doe"), 100);
+            db.applyMonthEnd();
+            String before = db.printAccounts();
+            files.close();
+
+            AccountDatabase reopened = new AccountDatabase();
+            open(basePath, reopened).close();
+            if (reopened.printAccounts().equals(before) && files.getJournalFile().equals(journalFile)) {
+                System.out.println("Expected: reopened database has the changes made before it was closed");
+            } else {
+                System.out.println("Unexpected: reopened database is\n" + reopened.printAccounts());
+            }
+
+            // Tests if the journal is emptied every few records and reopening loads the snapshot plus the journal
+            db = new AccountDatabase();
+            files = open(basePath, db, 10);
+            int checkpointCount = 0;
+            long largestJournal = 0;
+            for (int i = 0; i < 95; i++) {
+                db.deposit(new Checking("John", "Doe"), 1);
+                if (files.checkpointIfNeeded()) {
+                    checkpointCount++;
+                }
+                largestJournal = Math.max(largestJournal, journalFile.length());
+            }
+            before = db.printAccounts();
+            long journalBeforeClose = journalFile.length();
+            files.close();
+            long journalAfterClose = journalFile.length();
+            reopened = new AccountDatabase();
+            open(basePath, reopened).close();
+            if (checkpointCount == 9 && journalAfterClose < journalBeforeClose && largestJournal < 1024
+                    && reopened.printAccounts().equals(before) && files.getSnapshotFile().exists()) {
+                System.out.println("Expected: " + checkpointCount + " checkpoints kept the journal under "
+                        + largestJournal + " bytes");
+            } else {
+                System.out.println("Unexpected: " + checkpointCount + " checkpoints, journal up to "
+                        + largestJournal + " bytes");
+            }
+        } catch (IOException e) {
+            System.out.println("Unexpected: " + e);
+        }
+
+        // Tests if --data is taken from the front of the arguments
+        String[] withData = {"--data", "bank", "7070"};
+        if ("bank".equals(dataOption(withData).getPath()) && withoutDataOption(withData).length == 1
+                && dataOption(new String[] {"7070"}) == null) {
+            System.out.println("Expected: --data option is read from the arguments");
+        } else {
+            System.out.println("Unexpected: --data option was not read");
+        }
+    }
+}
@@ -22,25 +22,45 @@ public class Date implements Comparable<Date> {
     }
 
     /**
-     * Compares the instance with a date object<br>
-     * returns -1 if the date is not valid<br>
-     * returns 1 if the date object is the same and
+     * Compares the instance with a date object chronologically
      * @param date	takes a date object
-     * @return the integer value if it is valid , or equal to the object or not
+     * @return negative if this date is before date, 0 if they are the same day, positive if this date is after date
      */
+    @Override
     public int compareTo(Date date) {
-        String dateToString = date.toString();
-        if (isValid(dateToString)) {
-            if(this.equals(date)) {
-                return 1;
-            }
-            else {
-                return 0;
-            }
+        if (this.year != date.year) {
+            return Integer.compare(this.year, date.year);
         }
-        else {
-            return -1;
+        if (this.month != date.month) {
+            return Integer.compare(this.month, date.month);
         }
+        return Integer.compare(this.day, date.day);
+    }
+
+    /**
+     * Checks whether this date is a valid calendar date
+     * @return true if this date is valid, otherwise false
+     */
+    public boolean isValid() {
+        return isValid(this.toString());
+    }
+
+    /**
+     * Packs this date into an int that orders the same way as compareTo<br>
+     * Layout: year in the high bits, then 4 bits of month, then 5 bits of day
+     * @return the packed date
+     */
+    int toPacked() {
+        return (this.year << 9) | (this.month << 5) | this.day;
+    }
+
+    /**
+     * Unpacks a date packed by toPacked
+     * @param packed	the packed date
+     * @return the date
+     */
+    static Date fromPacked(int packed) {
+        return new Date((packed >>> 5) & 0xF, packed & 0x1F, packed >>> 9);
     }
 
     /**
@@ -49,8 +69,27 @@ public class Date implements Comparable<Date> {
      * @return	the string representation
      */
     public String toString() {
-        String output = String.format("%d/%d/%d", this.month, this.day, this.year);
-        return output;
+        return this.appendTo(new StringBuilder(AccountFormat.MAX_DATE_LENGTH)).toString();
+    }
+
+    /**
+     * Appends the string representation of this Date<br>
+     * Format: *Month*, *day* ,*year*
+     * @param out	where to append the text
+     * @return		out
+     */
+    StringBuilder appendTo(StringBuilder out) {
+        return AccountFormat.appendDate(out, this.month, this.day, this.year);
+    }
+
+    /**
+     * Writes the string representation of this Date into a buffer as ASCII
+     * @param buffer	the buffer, with room for AccountFormat.MAX_DATE_LENGTH bytes after offset
+     * @param offset	the index to start writing at
+     * @return			the index after the last byte written
+     */
+    int writeTo(byte[] buffer, int offset) {
+        return AccountFormat.writeDate(buffer, offset, this.month, this.day, this.year);
     }
 
     /**
@@ -65,13 +104,32 @@ public class Date implements Comparable<Date> {
      * @return boolean true if input is a valid date and format, otherwise false
      */
     private boolean isValid(String date) {
-        int leapYearDay = 29;
-        int leapYearDivisor = 4;
         //length of inputs
         int lengthOfDayInput = 2;
         int lengthOfYearInput = 4;
         int lengthOfMonthInput = 2;
 
+        //parse date for special cases
+        String[] numbers = date.split("/", 3);
+        if(numbers[0].length() > lengthOfMonthInput || numbers[1].length() > lengthOfDayInput
+                || numbers[2].length() > lengthOfYearInput){
+            return false;
+        }
+        return isValid(Integer.parseInt(numbers[0]), Integer.parseInt(numbers[1]), Integer.parseInt(numbers[2]));
+    }
+
+    /**
+     * Checks if a month, day and year make a valid calendar date<br>
+     * Shared by every place dates are read in, so they all accept the same dates
+     * @param month	the month
+     * @param day	the day
+     * @param year	the year
+     * @return true if the date is valid, otherwise false
+     */
+    static boolean isValid(int month, int day, int year) {
+        int leapYearDay = 29;
+        int leapYearDivisor = 4;
+
         //special case months
         int september = 9;
         int november = 11;
@@ -84,16 +142,6 @@ public class Date implements Comparable<Date> {
         int thirty = 30;
         int twentyNine = 29;
 
-        //parse date for special cases
-        String[] numbers = date.split("/", 3);
-        if(numbers[0].length() > lengthOfMonthInput || numbers[1].length() > lengthOfDayInput
-                || numbers[2].length() > lengthOfYearInput){
-            return false;
-        }
-        int month = Integer.parseInt(numbers[0]);
-        int day = Integer.parseInt(numbers[1]);
-        int year = Integer.parseInt(numbers[2]);
-
         if(month > 12 || day > 31 || month < 1||day < 1){
             return false;
         }
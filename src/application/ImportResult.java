@@ -0,0 +1,127 @@
+package application;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This class reports the outcome of importing a file of accounts<br>
+ * Every error is counted, but only the first MAX_ERRORS are kept with their messages
+ * @author Steven Nguyen, Julian Romero
+ */
+public class ImportResult {
+    /**
+     * The most error messages kept
+     */
+    public static final int MAX_ERRORS = 100;
+
+    private final int linesRead;
+    private final int accountsAdded;
+    private final int duplicates;
+    private final int errorCount;
+    private final List<String> errors;
+    private final boolean cancelled;
+
+    /**
+     * Constructs an import result
+     * @param _linesRead		the number of lines read
+     * @param _accountsAdded	the number of accounts added to the database
+     * @param _duplicates		the number of accounts skipped since they were already in the file or database
+     * @param _errorCount		the number of lines that could not be read
+     * @param _errors			the messages of the first errors, each starting with its line number
+     * @param _cancelled		true if the import stopped before the end of the file
+     */
+    ImportResult(int _linesRead, int _accountsAdded, int _duplicates, int _errorCount, List<String> _errors,
+            boolean _cancelled) {
+        this.linesRead = _linesRead;
+        this.accountsAdded = _accountsAdded;
+        this.duplicates = _duplicates;
+        this.errorCount = _errorCount;
+        this.errors = Collections.unmodifiableList(new ArrayList<String>(_errors));
+        this.cancelled = _cancelled;
+    }
+
+    /**
+     * Gets a copy of this result with the accounts added and skipped replaced
+     * @param _accountsAdded	the number of accounts added to the database
+     * @param _duplicates		the number of accounts skipped since they were already in the file or database
+     * @return					the new result
+     */
+    ImportResult withAdded(int _accountsAdded, int _duplicates) {
+        return new ImportResult(this.linesRead, _accountsAdded, _duplicates, this.errorCount, this.errors,
+                this.cancelled);
+    }
+
+    /**
+     * Gets the number of lines read
+     * @return	the number of lines
+     */
+    public int getLinesRead() {
+        return this.linesRead;
+    }
+
+    /**
+     * Gets the number of accounts added to the database
+     * @return	the number of accounts
+     */
+    public int getAccountsAdded() {
+        return this.accountsAdded;
+    }
+
+    /**
+     * Gets the number of accounts skipped since an account with the same name and type was already added
+     * @return	the number of accounts
+     */
+    public int getDuplicates() {
+        return this.duplicates;
+    }
+
+    /**
+     * Gets the number of lines that could not be read
+     * @return	the number of lines
+     */
+    public int getErrorCount() {
+        return this.errorCount;
+    }
+
+    /**
+     * Gets the messages of the first errors
+     * @return	up to MAX_ERRORS messages, such as "Line 12: invalid date"
+     */
+    public List<String> getErrors() {
+        return this.errors;
+    }
+
+    /**
+     * Gets if the import stopped before the end of the file
+     * @return	true if the import was cancelled
+     */
+    public boolean isCancelled() {
+        return this.cancelled;
+    }
+
+    /**
+     * Gets the string representation of this result<br>
+     * Format: "Import completed: [Added] accounts added, [Duplicates] duplicates skipped, [Errors] lines with errors"
+     * followed by one line per kept error, or "Import cancelled after [Lines] lines: ..." if it was cancelled
+     * @return	the string representation
+     */
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder(96);
+        if (this.cancelled) {
+            AccountFormat.appendDigits(result.append("Import cancelled after "), this.linesRead).append(" lines: ");
+        } else {
+            result.append("Import completed: ");
+        }
+        AccountFormat.appendDigits(result, this.accountsAdded).append(" accounts added, ");
+        AccountFormat.appendDigits(result, this.duplicates).append(" duplicates skipped, ");
+        AccountFormat.appendDigits(result, this.errorCount).append(" lines with errors\n");
+        for (String error : this.errors) {
+            result.append(error).append('\n');
+        }
+        if (this.errorCount > this.errors.size()) {
+            AccountFormat.appendDigits(result.append("..."), this.errorCount - this.errors.size()).append(" more\n");
+        }
+        return result.toString();
+    }
+}
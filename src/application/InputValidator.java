@@ -0,0 +1,137 @@
+package application;
+
+/**
+ * This class holds the rules for checking what a user enters for an account<br>
+ * The same rules are used by the UI and by the batch processor, so a command is accepted by one exactly when it
+ * would be accepted by the other
+ * @author Steven Nguyen, Julian Romero
+ */
+public final class InputValidator {
+    private static final int MAX_MONTH_DIGITS = 2;
+    private static final int MAX_DAY_DIGITS = 2;
+    private static final int MAX_YEAR_DIGITS = 4;
+
+    private InputValidator() {
+    }
+
+    /**
+     * Checks a name for numbers and symbols
+     * @param name	the first or last name
+     * @return		true if every character is a letter from a to z in either case, otherwise false
+     */
+    public static boolean isValidName(String name) {
+        for (int i = 0; i < name.length(); i++) {
+            char letter = name.charAt(i);
+            if (!(letter >= 'a' && letter <= 'z') && !(letter >= 'A' && letter <= 'Z')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks the first and last name of an account
+     * @param fName	the first name
+     * @param lName	the last name
+     * @return		the message to output if either name is missing or not valid, or null if both are valid
+     */
+    public static String checkNames(String fName, String lName) {
+        if (fName.equals("")) {
+            return "First name must be entered!\n";
+        }
+        if (!isValidName(fName)) {
+            return "First name cannot have numbers or symbols!\n";
+        }
+        if (lName.equals("")) {
+            return "last name must be entered!\n";
+        }
+        if (!isValidName(lName)) {
+            return "Last name cannot have numbers or symbols!\n";
+        }
+        return null;
+    }
+
+    /**
+     * Checks input for invalid numbers
+     * @param input	the text entered
+     * @return		true if input is a valid integer, otherwise false
+     */
+    public static boolean isValidInteger(String input) {
+        try {
+            Integer.parseInt(input);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Checks a date for invalid numbers and dates
+     * @param date	the date as month/day/year, with at most 2 digits for the month and day and 4 for the year
+     * @return		true if input is a valid date and format, otherwise false
+     */
+    public static boolean isValidDate(String date) {
+        String[] numbers = date.split("/", 3);
+        if (numbers.length != 3 || numbers[0].length() > MAX_MONTH_DIGITS || numbers[1].length() > MAX_DAY_DIGITS
+                || numbers[2].length() > MAX_YEAR_DIGITS) {
+            return false;
+        }
+        for (String number : numbers) {
+            if (!isValidInteger(number)) {
+                return false;
+            }
+        }
+        return Date.isValid(Integer.parseInt(numbers[0]), Integer.parseInt(numbers[1]), Integer.parseInt(numbers[2]));
+    }
+
+    /**
+     * Checks an amount of money to deposit or withdraw
+     * @param amount	the amount in dollars
+     * @return			true if the amount is greater than 0 and at most Money.MAX_DOLLARS, otherwise false
+     */
+    public static boolean isValidAmount(double amount) {
+        return amount > 0 && Money.isConvertible(amount);
+    }
+
+    /**
+     * Checks the balance to open an account with
+     * @param balance	the balance in dollars, which may be 0 or negative
+     * @return			true if the balance is finite and at most Money.MAX_DOLLARS from 0, otherwise false
+     */
+    public static boolean isValidBalance(double balance) {
+        return Money.isConvertible(balance);
+    }
+
+    /**
+     * Testmain - tests the rules for names, dates and amounts
+     * @param args	unused
+     */
+    public static void main(String[] args) {
+        // Tests if names with numbers or symbols, and missing names, are rejected in order
+        if (checkNames("John", "Doe") == null && checkNames("", "Doe").startsWith("First name must")
+                && checkNames("J0hn", "Doe").startsWith("First name cannot") && checkNames("John", "").startsWith("last")
+                && checkNames("John", "D-e").startsWith("Last name cannot")) {
+            System.out.println("Expected: names checked in the same order as the UI");
+        } else {
+            System.out.println("Unexpected: names were not checked in order");
+        }
+
+        // Tests if badly formed and impossible dates are rejected
+        if (isValidDate("2/29/2024") && isValidDate("12/31/1999") && !isValidDate("2/29/2023")
+                && !isValidDate("1/1") && !isValidDate("a/1/2000") && !isValidDate("001/1/2000")
+                && !isValidDate("13/1/2000")) {
+            System.out.println("Expected: only real dates in month/day/year are valid");
+        } else {
+            System.out.println("Unexpected: dates were not checked correctly");
+        }
+
+        // Tests if only positive amounts small enough to hold in cents are valid
+        if (isValidAmount(0.01) && !isValidAmount(0) && !isValidAmount(-5) && !isValidAmount(Double.NaN)
+                && !isValidAmount(Double.POSITIVE_INFINITY) && !isValidAmount(1e300) && isValidBalance(-5)
+                && !isValidBalance(Double.NEGATIVE_INFINITY) && !isValidBalance(-1e300)) {
+            System.out.println("Expected: only positive amounts are valid");
+        } else {
+            System.out.println("Unexpected: amounts were not checked correctly");
+        }
+    }
+}
@@ -6,6 +6,9 @@ import javafx.scene.Scene;
 import javafx.fxml.FXMLLoader;
 
 public class Main extends Application {
+	private static final String DEFAULT_DATA_PATH = "accounts";
+	
+	private UIController controller;
 
 	@Override
 	public void start(Stage primaryStage) {
@@ -16,8 +19,9 @@ public class Main extends Application {
 			primaryStage.setScene(scene);
 			primaryStage.setTitle("Transaction Manager");
 			
-			UIController controller = fxmlLoader.<UIController>getController();
-			controller.setup();
+			controller = fxmlLoader.<UIController>getController();
+			java.io.File dataPath = DatabaseFiles.dataOption(getParameters().getRaw().toArray(new String[0]));
+			controller.setup(dataPath != null ? dataPath : new java.io.File(DEFAULT_DATA_PATH));
 			
 			primaryStage.show();
 		} catch(Exception e) {
@@ -25,7 +29,31 @@ public class Main extends Application {
 		}
 	}
 
+	/**
+	 * Saves the accounts when the UI closes
+	 */
+	@Override
+	public void stop() {
+		if (controller != null) {
+			controller.shutdown();
+		}
+	}
+
+	/**
+	 * Starts the UI, runs a file of commands without it when the first argument is --batch,
+	 * or serves commands over TCP without it when the first argument is --serve<br>
+	 * The UI keeps its accounts in accounts.snapshot and accounts.journal in the working directory,
+	 * or in files named after the path given with --data
+	 * @param args	the command line arguments, such as --batch commands.txt results.txt, --serve 7070
+	 * 				or --data bank
+	 */
 	public static void main(String[] args) {
+		if (args.length > 0 && args[0].equals("--batch")) {
+			BatchMain.main(java.util.Arrays.copyOfRange(args, 1, args.length));
+		}
+		if (args.length > 0 && args[0].equals("--serve")) {
+			ServerMain.main(java.util.Arrays.copyOfRange(args, 1, args.length));
+		}
 		launch(args);
 	}
 }
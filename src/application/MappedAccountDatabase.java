@@ -0,0 +1,363 @@
+package application;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+
+/**
+ * This class handles storing and handling accounts in a memory-mapped file<br>
+ * Each account is a fixed-width record in the file, laid out like a row of ColumnarAccountDatabase,
+ * and the name dictionary is kept in a side file next to it ending in ".names".
+ * Reopening the file maps the records back in and only rebuilds the lookup index<br>
+ * The records are limited to what one mapping can hold, a little over 67 million accounts
+ * @author Steven Nguyen, Julian Romero
+ */
+public class MappedAccountDatabase extends ColumnarAccountDatabase implements Closeable {
+    private static final int MAGIC = 0x41434442;
+    private static final int VERSION = 2;
+
+    private static final int HEADER_SIZE = 64;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int ROW_COUNT_OFFSET = 8;
+
+    private static final int RECORD_SIZE = 32;
+    private static final int TYPE_OFFSET = 0;
+    private static final int FLAGS_OFFSET = 1;
+    private static final int FIRST_NAME_OFFSET = 4;
+    private static final int LAST_NAME_OFFSET = 8;
+    private static final int OPEN_DATE_OFFSET = 12;
+    private static final int WITHDRAWALS_OFFSET = 16;
+    private static final int BALANCE_OFFSET = 24;
+
+    private static final int INITIAL_ROWS = 1024;
+    private static final int MAX_ROWS = (Integer.MAX_VALUE - HEADER_SIZE) / RECORD_SIZE;
+
+    private RandomAccessFile file;
+    private FileChannel channel;
+    private MappedByteBuffer records;
+    private int rowCapacity;
+    private DataOutputStream nameOutput;
+
+    /**
+     * Opens a mapped account database, creating it if the file does not exist
+     * @param dataFile		the file holding the account records
+     * @throws IOException	if the files cannot be opened or are not account databases, or the name dictionary is
+     * 						missing names the records refer to
+     */
+    public MappedAccountDatabase(File dataFile) throws IOException {
+        super(0);
+        File nameFile = new File(dataFile.getPath() + ".names");
+        boolean isNew = !dataFile.exists() || dataFile.length() == 0;
+
+        this.file = new RandomAccessFile(dataFile, "rw");
+        this.channel = this.file.getChannel();
+        if (isNew) {
+            this.map(INITIAL_ROWS);
+            this.records.putInt(MAGIC_OFFSET, MAGIC);
+            this.records.putInt(VERSION_OFFSET, VERSION);
+            this.records.putInt(ROW_COUNT_OFFSET, 0);
+        } else {
+            this.map((int) ((this.channel.size() - HEADER_SIZE) / RECORD_SIZE));
+            if (this.records.getInt(MAGIC_OFFSET) != MAGIC || this.records.getInt(VERSION_OFFSET) != VERSION) {
+                this.channel.close();
+                this.file.close();
+                throw new IOException("Not an account database: " + dataFile);
+            }
+            super.setRowCount(this.records.getInt(ROW_COUNT_OFFSET));
+            try {
+                if (nameFile.exists()) {
+                    this.readNames(nameFile);
+                }
+                this.checkNames(nameFile);
+            } catch (IOException e) {
+                this.channel.close();
+                this.file.close();
+                throw e;
+            }
+            this.rebuildIndex();
+        }
+
+        this.nameOutput = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(nameFile, !isNew)));
+    }
+
+    /**
+     * Reads the name dictionary from the side file<br>
+     * A name cut short by a crash while it was appended is dropped from the end of the file, so later names are
+     * appended after the last whole name
+     * @param nameFile		the side file
+     * @throws IOException	if the side file cannot be read
+     */
+    private void readNames(File nameFile) throws IOException {
+        byte[] dictionary = Files.readAllBytes(nameFile.toPath());
+        ByteArrayInputStream bytes = new ByteArrayInputStream(dictionary);
+        DataInputStream input = new DataInputStream(bytes);
+        int wholeLength = 0;
+        try {
+            while (bytes.available() > 0) {
+                super.addName(input.readUTF());
+                wholeLength = dictionary.length - bytes.available();
+            }
+        } catch (EOFException e) {
+            // The last name was cut short
+        }
+
+        if (wholeLength < dictionary.length) {
+            RandomAccessFile names = new RandomAccessFile(nameFile, "rw");
+            try {
+                names.setLength(wholeLength);
+            } finally {
+                names.close();
+            }
+        }
+    }
+
+    /**
+     * Checks that the name dictionary holds every name the records refer to<br>
+     * Done when the file is opened, since a missing name would otherwise only fail once an account is read
+     * @param nameFile		the side file, for the message
+     * @throws IOException	if a record refers to a name that is not in the dictionary
+     */
+    private void checkNames(File nameFile) throws IOException {
+        int nameCount = this.getNameCount();
+        for (int row = 0; row < this.getRowCount(); row++) {
+            if (this.getType(row) != EMPTY
+                    && (this.getFirstName(row) >= nameCount || this.getLastName(row) >= nameCount)) {
+                throw new IOException((nameFile.exists() ? "Name dictionary is missing names: "
+                        : "Name dictionary not found: ") + nameFile);
+            }
+        }
+    }
+
+    /**
+     * Maps the file with room for a number of records, growing the file if needed
+     * @param rows			the number of records to map
+     * @throws IOException	if the file cannot be mapped
+     */
+    private void map(int rows) throws IOException {
+        this.records = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) rows * RECORD_SIZE);
+        this.rowCapacity = rows;
+    }
+
+    /**
+     * Gets the position of a field of a record in the mapping
+     * @param row		the row of the record
+     * @param offset	the offset of the field in the record
+     * @return			the position of the field
+     */
+    private static int position(int row, int offset) {
+        return HEADER_SIZE + row * RECORD_SIZE + offset;
+    }
+
+    @Override
+    void ensureRows(int rows) {
+        if (rows <= this.rowCapacity) {
+            return;
+        }
+        if (rows > MAX_ROWS) {
+            throw new IllegalStateException("Mapped account database is full");
+        }
+
+        try {
+            this.records.force();
+            this.map((int) Math.min(Math.max(rows, (long) this.rowCapacity * 2), MAX_ROWS));
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot grow mapped account database", e);
+        }
+    }
+
+    @Override
+    void setRowCount(int rowCount) {
+        super.setRowCount(rowCount);
+        this.records.putInt(ROW_COUNT_OFFSET, rowCount);
+    }
+
+    @Override
+    byte getType(int row) {
+        return this.records.get(position(row, TYPE_OFFSET));
+    }
+
+    @Override
+    void setType(int row, byte type) {
+        this.records.put(position(row, TYPE_OFFSET), type);
+    }
+
+    @Override
+    byte getFlags(int row) {
+        return this.records.get(position(row, FLAGS_OFFSET));
+    }
+
+    @Override
+    int getFirstName(int row) {
+        return this.records.getInt(position(row, FIRST_NAME_OFFSET));
+    }
+
+    @Override
+    int getLastName(int row) {
+        return this.records.getInt(position(row, LAST_NAME_OFFSET));
+    }
+
+    @Override
+    int getOpenDate(int row) {
+        return this.records.getInt(position(row, OPEN_DATE_OFFSET));
+    }
+
+    @Override
+    long getBalance(int row) {
+        return this.records.getLong(position(row, BALANCE_OFFSET));
+    }
+
+    @Override
+    void setBalance(int row, long balance) {
+        this.records.putLong(position(row, BALANCE_OFFSET), balance);
+    }
+
+    @Override
+    int getWithdrawals(int row) {
+        return this.records.getInt(position(row, WITHDRAWALS_OFFSET));
+    }
+
+    @Override
+    void setWithdrawals(int row, int withdrawalCount) {
+        this.records.putInt(position(row, WITHDRAWALS_OFFSET), withdrawalCount);
+    }
+
+    @Override
+    void writeRow(int row, byte type, byte flagBits, int firstName, int lastName, int openDate, long balance,
+            int withdrawalCount) {
+        this.records.put(position(row, FLAGS_OFFSET), flagBits);
+        this.records.putInt(position(row, FIRST_NAME_OFFSET), firstName);
+        this.records.putInt(position(row, LAST_NAME_OFFSET), lastName);
+        this.records.putInt(position(row, OPEN_DATE_OFFSET), openDate);
+        this.records.putInt(position(row, WITHDRAWALS_OFFSET), withdrawalCount);
+        this.records.putLong(position(row, BALANCE_OFFSET), balance);
+        // The type is written last since a record with a type is treated as holding an account
+        this.records.put(position(row, TYPE_OFFSET), type);
+    }
+
+    /**
+     * Adds a name to the dictionary and appends it to the side file<br>
+     * The side file is written before any record can refer to the name
+     * @param name	a name that is not in the dictionary yet
+     * @return		the id of the new name
+     */
+    @Override
+    int addName(String name) {
+        try {
+            this.nameOutput.writeUTF(name);
+            this.nameOutput.flush();
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot write name dictionary", e);
+        }
+        return super.addName(name);
+    }
+
+    /**
+     * Writes all changes to the files on disk
+     * @throws IOException	if the changes cannot be written
+     */
+    public void flush() throws IOException {
+        this.nameOutput.flush();
+        this.records.force();
+    }
+
+    /**
+     * Writes all changes to disk and closes the files
+     * @throws IOException	if the changes cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        this.flush();
+        this.nameOutput.close();
+        this.channel.close();
+        this.file.close();
+    }
+
+    /**
+     * Testmain - tests that accounts survive closing and reopening the database
+     * @param args	unused
+     */
+    public static void main(String[] args) {
+        try {
+            testReopen();
+        } catch (IOException e) {
+            System.out.println("Unexpected: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Tests that accounts survive closing and reopening the database
+     * @throws IOException	if the test files cannot be used
+     */
+    private static void testReopen() throws IOException {
+        File dataFile = File.createTempFile("accounts", ".db");
+        dataFile.delete();
+        dataFile.deleteOnExit();
+        new File(dataFile.getPath() + ".names").deleteOnExit();
+
+        // Adds more accounts than the initial mapping holds
+        MappedAccountDatabase db = new MappedAccountDatabase(dataFile);
+        for (int i = 0; i < 3000; i++) {
+            db.add(new Checking("F" + i, "L" + i % 10, 100 + i, 1 + i % 12, 1 + i % 28, 2000, i % 2 == 0));
+            db.add(new MoneyMarket("F" + i, "L" + i % 10, 3000, 1, 1, 2001));
+        }
+        for (int i = 0; i < 3000; i += 3) {
+            db.remove(new Checking("F" + i, "L" + i % 10));
+        }
+        db.deposit(new Checking("F1", "L1"), 50);
+        db.withdrawal(new MoneyMarket("F1", "L1"), 50);
+        String before = db.printAccounts();
+        db.close();
+
+        // Tests if reopening restores the same accounts
+        db = new MappedAccountDatabase(dataFile);
+        if (db.getsize() == 5000 && db.printAccounts().equals(before)) {
+            System.out.println("Expected: reopened database has the same 5000 accounts");
+        } else {
+            System.out.println("Unexpected: reopened database has " + db.getsize() + " accounts");
+        }
+
+        // Tests if removed rows are reused after reopening
+        if (db.add(new Savings("A", "A", 10, 1, 1, 2000, true)) && db.getRowCount() == 6000) {
+            System.out.println("Expected: added an account into a reused row");
+        } else {
+            System.out.println("Unexpected: account was not added into a reused row");
+        }
+        db.close();
+
+        // Tests if a missing or cut short dictionary is reported when the file is opened
+        File nameFile = new File(dataFile.getPath() + ".names");
+        byte[] dictionary = Files.readAllBytes(nameFile.toPath());
+        int failedOpens = 0;
+        for (int length : new int[] {-1, dictionary.length / 2}) {
+            if (length < 0) {
+                nameFile.delete();
+            } else {
+                Files.write(nameFile.toPath(), java.util.Arrays.copyOf(dictionary, length));
+            }
+            try {
+                new MappedAccountDatabase(dataFile).close();
+            } catch (IOException e) {
+                failedOpens++;
+            }
+        }
+        Files.write(nameFile.toPath(), java.util.Arrays.copyOf(dictionary, dictionary.length + 1));
+        db = new MappedAccountDatabase(dataFile);
+        boolean isReopened = db.getsize() == 5001 && nameFile.length() == dictionary.length;
+        db.close();
+        if (failedOpens == 2 && isReopened) {
+            System.out.println("Expected: missing names are reported at open and a cut short last name is dropped");
+        } else {
+            System.out.println("Unexpected: " + failedOpens + " of 2 broken dictionaries were reported");
+        }
+    }
+}
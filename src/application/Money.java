@@ -0,0 +1,136 @@
+package application;
+
+/**
+ * This class converts and calculates amounts of money stored as a whole number of cents<br>
+ * Balances are kept in cents so deposits, withdrawals and fees are exact,
+ * and interest is rounded to the nearest cent with ties going to the even cent
+ * @author Steven Nguyen, Julian Romero
+ */
+public final class Money {
+    /**
+     * The number of cents in a dollar
+     */
+    public static final long CENTS_PER_DOLLAR = 100;
+
+    /**
+     * The denominator of annual interest rates, so a rate of 5 means .05%
+     */
+    public static final long RATE_SCALE = 10000;
+
+    /**
+     * The number of months in a year, used to turn annual rates into monthly rates
+     */
+    public static final long MONTHS_PER_YEAR = 12;
+
+    /**
+     * The largest amount in dollars that can be converted to cents, small enough that a double still holds a
+     * fraction of a cent to round
+     */
+    public static final double MAX_DOLLARS = 1e12;
+
+    /**
+     * How many units in the last place a scaled amount may be from a half cent and still count as a tie
+     */
+    private static final int TIE_ULPS = 4;
+
+    private Money() {
+    }
+
+    /**
+     * Gets if an amount of dollars can be converted to cents
+     * @param dollars	the amount in dollars
+     * @return			true if the amount is finite and at most MAX_DOLLARS from 0, otherwise false
+     */
+    public static boolean isConvertible(double dollars) {
+        return Math.abs(dollars) <= MAX_DOLLARS;
+    }
+
+    /**
+     * Converts dollars to cents, rounding half up to the nearest cent<br>
+     * An amount written with a 5 in the third decimal place, such as 1.005, rounds up as written,
+     * even though the nearest double is slightly less
+     * @param dollars	the amount in dollars
+     * @return			the amount in cents
+     * @throws IllegalArgumentException	if the amount is not finite or is more than MAX_DOLLARS from 0
+     */
+    public static long toCents(double dollars) {
+        if (!isConvertible(dollars)) {
+            throw new IllegalArgumentException("Cannot convert " + dollars + " dollars to cents");
+        }
+
+        double scaled = Math.abs(dollars) * CENTS_PER_DOLLAR;
+        double whole = Math.floor(scaled);
+        double fraction = scaled - whole;
+        long cents = (long) whole;
+        if (fraction > 0.5 || Math.abs(fraction - 0.5) <= TIE_ULPS * Math.ulp(scaled)) {
+            cents++;
+        }
+        return dollars < 0 ? -cents : cents;
+    }
+
+    /**
+     * Converts cents to dollars
+     * @param cents	the amount in cents
+     * @return		the amount in dollars
+     */
+    public static double toDollars(long cents) {
+        return cents / (double) CENTS_PER_DOLLAR;
+    }
+
+    /**
+     * Multiplies an amount by a fraction, rounding to the nearest cent with ties going to the even cent
+     * @param cents			the amount in cents
+     * @param numerator		the numerator of the fraction
+     * @param denominator	the denominator of the fraction, which must be positive
+     * @return				the rounded amount in cents
+     */
+    public static long multiply(long cents, long numerator, long denominator) {
+        long product = Math.multiplyExact(cents, numerator);
+        long quotient = Math.floorDiv(product, denominator);
+        long twiceRemainder = (product - quotient * denominator) * 2;
+        if (twiceRemainder > denominator || (twiceRemainder == denominator && (quotient & 1) != 0)) {
+            quotient++;
+        }
+        return quotient;
+    }
+
+    /**
+     * Calculates one month of interest on a balance
+     * @param cents			the balance in cents
+     * @param annualRate	the annual interest rate out of RATE_SCALE
+     * @return				the monthly interest in cents, rounded to the nearest cent
+     */
+    public static long monthlyInterest(long cents, long annualRate) {
+        return multiply(cents, annualRate, RATE_SCALE * MONTHS_PER_YEAR);
+    }
+
+    /**
+     * Testmain - tests that dollars round half up to cents as written, and that amounts that cannot be held are rejected
+     * @param args	unused
+     */
+    public static void main(String[] args) {
+        // Tests if ties round away from zero even when the nearest double is just under the tie
+        if (toCents(1.005) == 101 && toCents(-1.005) == -101 && toCents(2.675) == 268 && toCents(0.1 + 0.2) == 30
+                && toCents(1.004999) == 100 && toCents(-0.004) == 0 && toCents(MAX_DOLLARS) == 100000000000000L) {
+            System.out.println("Expected: dollars round half up to the nearest cent");
+        } else {
+            System.out.println("Unexpected: 1.005 dollars is " + toCents(1.005) + " cents");
+        }
+
+        // Tests if amounts that are not finite or are too large are rejected instead of overflowing
+        int rejected = 0;
+        for (double dollars : new double[] {Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, 1e300,
+                -MAX_DOLLARS * 2}) {
+            try {
+                toCents(dollars);
+            } catch (IllegalArgumentException e) {
+                rejected++;
+            }
+        }
+        if (rejected == 5) {
+            System.out.println("Expected: amounts that cannot be held in cents are rejected");
+        } else {
+            System.out.println("Unexpected: only " + rejected + " of 5 amounts were rejected");
+        }
+    }
+}
@@ -1,21 +1,36 @@
 package application;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
 /**
  * This class represents a money market account<br>
- * Checking accounts have a monthly fee of 6, a minimum balance of 2500 unless the withdrawals has surpassed 6, and an annual interest rate of .65%
+ * Checking accounts have a monthly fee of 6, a minimum balance of 2500 unless the withdrawals has surpassed 6, and an annual interest rate of .65%<br>
+ * Amounts are in cents and rates are out of Money.RATE_SCALE
  * @author Steven Nguyen, Julian Romero
  */
 public class MoneyMarket extends Account {
-	private int withdrawals = 0;
-	private static final int maxWithdrawals = 6;
-	private static final double monthlyFee = 12;
-	private static final double waiveBalanceMinimum = 2500;
-	private static final double annualInterestRate = .0065;
+	private volatile int withdrawals = 0;
+	static final int maxWithdrawals = 6;
+	static final long monthlyFee = 1200;
+	static final long waiveBalanceMinimum = 250000;
+	static final long annualInterestRate = 65;
 	
+	private static final int typeHash = 3;
+
 	private static final int fillerBalance = 0;
 	private static final int fillerMonth = 1;
 	private static final int fillerDay = 1;
 	private static final int fillerYear = 2000;
 	
+	private static final VarHandle WITHDRAWALS;
+	static {
+		try {
+			WITHDRAWALS = MethodHandles.lookup().findVarHandle(MoneyMarket.class, "withdrawals", int.class);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+	
 	/**
 	 * Constructs a money market account
 	 * @param _fname	the first name of the profile
@@ -44,6 +59,18 @@ public class MoneyMarket extends Account {
 		withdrawals = _withdrawals;
 	}
 	
+	/**
+	 * Constructs a money market account from an existing profile and open date
+	 * @param _holder		the profile
+	 * @param _balance		the initial balance in cents
+	 * @param _dateOpen		the open date
+	 * @param _withdrawals	the initial number of withdrawals
+	 */
+	MoneyMarket(Profile _holder, long _balance, Date _dateOpen, int _withdrawals) {
+		super(_holder, _balance, _dateOpen);
+		withdrawals = _withdrawals;
+	}
+	
 	/**
 	 * Constructs a temporary money market account used for comparisons
 	 * @param _fname	the first name of the profile
@@ -53,32 +80,104 @@ public class MoneyMarket extends Account {
 		super(_fname, _lname, fillerBalance, fillerMonth, fillerDay, fillerYear);
 	}
 	
+	/**
+	 * Copies this money market account, including its current balance and withdrawals
+	 * @return	a new money market account
+	 */
+	@Override
+	MoneyMarket copy() {
+		return new MoneyMarket(this.getProfile(), this.getBalanceCents(), this.getOpenDate(), this.getWithdrawals());
+	}
+	
 	/**
 	 * Withdraw money
-	 * @param amount	the amount of money to withdraw
+	 * @param cents	the amount of money to withdraw in cents
+	 */
+	@Override
+	public void debitCents(long cents) {
+		WITHDRAWALS.getAndAdd(this, 1);
+		super.debitCents(cents);
+	}
+	
+	/**
+	 * Withdraw money if the account has enough money<br>
+	 * The withdrawal is only counted when the money is removed
+	 * @param cents	the amount of money to withdraw in cents
+	 * @return		true if the money was withdrawn, false if the balance is too low
 	 */
 	@Override
-	public void debit(double amount) {
-		withdrawals++;
-		super.debit(amount);
+	public boolean tryDebitCents(long cents) {
+		if (!super.tryDebitCents(cents)) {
+			return false;
+		}
+		WITHDRAWALS.getAndAdd(this, 1);
+		return true;
 	}
 	
 	/**
 	 * Calculate the monthly interest
-	 * @return	the monthly interest
+	 * @return	the monthly interest in cents
 	 */
 	@Override
-	public double monthlyInterest() {
-		return this.getBalance() * (annualInterestRate / 12);
+	public long monthlyInterestCents() {
+		return interestFor(this.getBalanceCents());
 	}
 	
 	/**
 	 * Calculate the monthly fee
-	 * @return	the monthly fee
+	 * @return	the monthly fee in cents
+	 */
+	@Override
+	public long monthlyFeeCents() {
+		return feeFor(this.getBalanceCents(), this.getWithdrawals());
+	}
+	
+	/**
+	 * Calculate the balance of this account after a number of month ends
+	 * @param months	the number of months to project
+	 * @return			the projected balance in cents
 	 */
 	@Override
-	public double monthlyFee() {
-		if (this.getBalance() >= waiveBalanceMinimum && this.withdrawals <= maxWithdrawals) {
+	public long projectBalanceCents(int months) {
+		return projectBalance(this.getBalanceCents(), this.getWithdrawals(), months);
+	}
+	
+	/**
+	 * Calculate the balance of a money market account after a number of month ends<br>
+	 * Charging the monthly fee counts as a withdrawal, the same as it does at a real month end
+	 * @param balance		the balance in cents
+	 * @param withdrawals	the number of withdrawals made
+	 * @param months		the number of months to project
+	 * @return				the projected balance in cents
+	 */
+	static long projectBalance(long balance, int withdrawals, int months) {
+		for (int i = 0; i < months; i++) {
+			balance += interestFor(balance) - feeFor(balance, withdrawals);
+			if (withdrawals <= maxWithdrawals) {
+				// Past the limit the count no longer changes the fee, so it stops counting
+				withdrawals++;
+			}
+		}
+		return balance;
+	}
+	
+	/**
+	 * Calculate the monthly interest for a money market account
+	 * @param balance	the balance in cents
+	 * @return			the monthly interest in cents
+	 */
+	static long interestFor(long balance) {
+		return Money.monthlyInterest(balance, annualInterestRate);
+	}
+	
+	/**
+	 * Calculate the monthly fee for a money market account
+	 * @param balance		the balance in cents
+	 * @param withdrawals	the number of withdrawals made
+	 * @return				the monthly fee in cents
+	 */
+	static long feeFor(long balance, int withdrawals) {
+		if (balance >= waiveBalanceMinimum && withdrawals <= maxWithdrawals) {
 			return 0;
 		} else {
 			return monthlyFee;
@@ -86,13 +185,23 @@ public class MoneyMarket extends Account {
 	}
 	
 	/**
-	 * Gets the string representation of this money market account<br>
+	 * Gets the number of withdrawals made from this account
+	 * @return	the number of withdrawals
+	 */
+	public int getWithdrawals() {
+		return this.withdrawals;
+	}
+	
+	/**
+	 * Appends the string representation of this money market account<br>
 	 * Format: "*Money Market*[Profile Name]* $[Balance]*[Open Date]* [Number of withdrawals] withdrawals*
-	 * @return	the string representation
+	 * @param out	where to append the text
+	 * @return		out
 	 */
 	@Override
-	public String toString() {
-		return String.format("*%s%s*%d withdrawals*", "Money Market", super.toString(), this.withdrawals);
+	StringBuilder appendTo(StringBuilder out) {
+		super.appendTo(out.append("*Money Market"));
+		return AccountFormat.appendDigits(out.append('*'), this.getWithdrawals()).append(" withdrawals*");
 	}
 	
 	/**
@@ -108,4 +217,13 @@ public class MoneyMarket extends Account {
 			return false;
 		}
 	}
+	
+	/**
+	 * Gets the hash code of this money market account, consistent with equals
+	 * @return	the hash code of the profile combined with the account type
+	 */
+	@Override
+	public int hashCode() {
+		return 31 * super.hashCode() + typeHash;
+	}
 }
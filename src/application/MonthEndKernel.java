@@ -0,0 +1,225 @@
+package application;
+
+/**
+ * This class applies a month end to balances stored in primitive arrays, one account type at a time<br>
+ * Each loop works on one type's balances and flags with no objects and no branches in the rounding,
+ * and fees are chosen with simple selects, so the JIT compiler can unroll it and keep it in registers.
+ * A quick range check decides if a whole group can use a plain multiply; if any balance is large enough to overflow,
+ * the group falls back to the same scalar rules the account classes use. Results are identical either way<br>
+ * ColumnarAccountDatabase.applyMonthEnd calls these methods directly with its columns gathered by type
+ * @author Steven Nguyen, Julian Romero
+ */
+final class MonthEndKernel {
+    private static final long MONTHLY_DENOMINATOR = Money.RATE_SCALE * Money.MONTHS_PER_YEAR;
+
+    private MonthEndKernel() {
+    }
+
+    /**
+     * Divides by the monthly denominator, rounding to the nearest cent with ties going to the even cent<br>
+     * Matches Money.multiply without branching
+     * @param product	the balance multiplied by the annual rate
+     * @return			the rounded monthly interest in cents
+     */
+    private static long divideHalfEven(long product) {
+        long quotient = Math.floorDiv(product, MONTHLY_DENOMINATOR);
+        long remainder = product - quotient * MONTHLY_DENOMINATOR;
+        // Rounds up when twice the remainder plus the odd bit passes the denominator
+        return quotient + ((MONTHLY_DENOMINATOR - 2 * remainder - (quotient & 1)) >>> 63);
+    }
+
+    /**
+     * Gets if every balance can be multiplied by a rate without overflowing
+     * @param balances	the balances in cents
+     * @param count		the number of balances to check
+     * @param rate		the largest rate the balances are multiplied by
+     * @return			true if the plain multiply is safe for every balance
+     */
+    private static boolean fitsRate(long[] balances, int count, long rate) {
+        long limit = Long.MAX_VALUE / rate;
+        long smallest = 0;
+        long largest = 0;
+        for (int i = 0; i < count; i++) {
+            smallest = Math.min(smallest, balances[i]);
+            largest = Math.max(largest, balances[i]);
+        }
+        return largest <= limit && smallest >= -limit;
+    }
+
+    /**
+     * Applies a month end to checking account balances
+     * @param balances		the balances in cents, updated in place
+     * @param directDeposit	if each account has direct deposit enabled
+     * @param count			the number of accounts
+     * @return				a summary of the interest and fees applied, without an elapsed time
+     */
+    static MonthEndSummary checking(long[] balances, boolean[] directDeposit, int count) {
+        long totalInterest = 0;
+        long totalFees = 0;
+        if (fitsRate(balances, count, Checking.annualInterestRate)) {
+            for (int i = 0; i < count; i++) {
+                long balance = balances[i];
+                long interest = divideHalfEven(balance * Checking.annualInterestRate);
+                long fee = balance >= Checking.waiveBalanceMinimum || directDeposit[i] ? 0 : Checking.monthlyFee;
+                balances[i] = balance + interest - fee;
+                totalInterest += interest;
+                totalFees += fee;
+            }
+        } else {
+            for (int i = 0; i < count; i++) {
+                long interest = Checking.interestFor(balances[i]);
+                long fee = Checking.feeFor(balances[i], directDeposit[i]);
+                balances[i] += interest - fee;
+                totalInterest += interest;
+                totalFees += fee;
+            }
+        }
+        return new MonthEndSummary(count, totalInterest, totalFees, 0);
+    }
+
+    /**
+     * Applies a month end to savings account balances
+     * @param balances	the balances in cents, updated in place
+     * @param isLoyal	if each account holder is a loyal customer
+     * @param count		the number of accounts
+     * @return			a summary of the interest and fees applied, without an elapsed time
+     */
+    static MonthEndSummary savings(long[] balances, boolean[] isLoyal, int count) {
+        long totalInterest = 0;
+        long totalFees = 0;
+        if (fitsRate(balances, count, Math.max(Savings.annualInterestRate, Savings.loyalAnnualInterestRate))) {
+            for (int i = 0; i < count; i++) {
+                long balance = balances[i];
+                long rate = isLoyal[i] ? Savings.loyalAnnualInterestRate : Savings.annualInterestRate;
+                long interest = divideHalfEven(balance * rate);
+                long fee = balance >= Savings.waiveBalanceMinimum ? 0 : Savings.monthlyFee;
+                balances[i] = balance + interest - fee;
+                totalInterest += interest;
+                totalFees += fee;
+            }
+        } else {
+            for (int i = 0; i < count; i++) {
+                long interest = Savings.interestFor(balances[i], isLoyal[i]);
+                long fee = Savings.feeFor(balances[i]);
+                balances[i] += interest - fee;
+                totalInterest += interest;
+                totalFees += fee;
+            }
+        }
+        return new MonthEndSummary(count, totalInterest, totalFees, 0);
+    }
+
+    /**
+     * Applies a month end to money market account balances<br>
+     * Charging the monthly fee counts as a withdrawal, the same as it does for a money market account
+     * @param balances		the balances in cents, updated in place
+     * @param withdrawals	the number of withdrawals made from each account, updated in place
+     * @param count			the number of accounts
+     * @return				a summary of the interest and fees applied, without an elapsed time
+     */
+    static MonthEndSummary moneyMarket(long[] balances, int[] withdrawals, int count) {
+        long totalInterest = 0;
+        long totalFees = 0;
+        if (fitsRate(balances, count, MoneyMarket.annualInterestRate)) {
+            for (int i = 0; i < count; i++) {
+                long balance = balances[i];
+                long interest = divideHalfEven(balance * MoneyMarket.annualInterestRate);
+                long fee = balance >= MoneyMarket.waiveBalanceMinimum && withdrawals[i] <= MoneyMarket.maxWithdrawals
+                        ? 0 : MoneyMarket.monthlyFee;
+                balances[i] = balance + interest - fee;
+                withdrawals[i]++;
+                totalInterest += interest;
+                totalFees += fee;
+            }
+        } else {
+            for (int i = 0; i < count; i++) {
+                long interest = MoneyMarket.interestFor(balances[i]);
+                long fee = MoneyMarket.feeFor(balances[i], withdrawals[i]);
+                balances[i] += interest - fee;
+                withdrawals[i]++;
+                totalInterest += interest;
+                totalFees += fee;
+            }
+        }
+        return new MonthEndSummary(count, totalInterest, totalFees, 0);
+    }
+
+    /**
+     * Testmain - tests that the kernel matches the scalar rules of each account type
+     * @param args	unused
+     */
+    public static void main(String[] args) {
+        java.util.Random random = new java.util.Random(213);
+        int count = 100000;
+        long[] balances = new long[count];
+        boolean[] flags = new boolean[count];
+        int[] withdrawals = new int[count];
+        for (int i = 0; i < count; i++) {
+            // Mixes balances around the fee thresholds with exact half cent ties and negative balances
+            switch (i % 4) {
+                case 0:
+                    balances[i] = random.nextInt(600000) - 100000;
+                    break;
+                case 1:
+                    balances[i] = 12000 * (random.nextInt(2000) - 1000);
+                    break;
+                case 2:
+                    balances[i] = 24000 * random.nextInt(1000) + 12000;
+                    break;
+                default:
+                    balances[i] = random.nextLong() / 1000;
+                    break;
+            }
+            flags[i] = random.nextBoolean();
+            withdrawals[i] = random.nextInt(10);
+        }
+
+        boolean isSame = true;
+        for (int type = 0; type < 3; type++) {
+            long[] kernelBalances = balances.clone();
+            int[] kernelWithdrawals = withdrawals.clone();
+            MonthEndSummary summary;
+            if (type == 0) {
+                summary = checking(kernelBalances, flags, count);
+            } else if (type == 1) {
+                summary = savings(kernelBalances, flags, count);
+            } else {
+                summary = moneyMarket(kernelBalances, kernelWithdrawals, count);
+            }
+
+            long totalInterest = 0;
+            long totalFees = 0;
+            for (int i = 0; i < count; i++) {
+                long interest;
+                long fee;
+                if (type == 0) {
+                    interest = Checking.interestFor(balances[i]);
+                    fee = Checking.feeFor(balances[i], flags[i]);
+                } else if (type == 1) {
+                    interest = Savings.interestFor(balances[i], flags[i]);
+                    fee = Savings.feeFor(balances[i]);
+                } else {
+                    interest = MoneyMarket.interestFor(balances[i]);
+                    fee = MoneyMarket.feeFor(balances[i], withdrawals[i]);
+                }
+                isSame &= kernelBalances[i] == balances[i] + interest - fee;
+                totalInterest += interest;
+                totalFees += fee;
+            }
+            isSame &= summary.getTotalInterestCents() == totalInterest && summary.getTotalFeesCents() == totalFees;
+        }
+        if (isSame) {
+            System.out.println("Expected: kernel matches the scalar rules for " + count + " balances of each type");
+        } else {
+            System.out.println("Unexpected: kernel does not match the scalar rules");
+        }
+
+        // Tests if a balance too large for the interest calculation fails the same way as the scalar rules
+        try {
+            checking(new long[] {100, Long.MAX_VALUE / 2}, new boolean[2], 2);
+            System.out.println("Unexpected: overflowing balance was accepted");
+        } catch (ArithmeticException e) {
+            System.out.println("Expected: overflowing balance is rejected");
+        }
+    }
+}
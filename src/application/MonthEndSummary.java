@@ -0,0 +1,92 @@
+package application;
+
+/**
+ * This class summarizes one month end run over a database<br>
+ * Totals are in cents
+ * @author Steven Nguyen, Julian Romero
+ */
+public class MonthEndSummary {
+    private final int accountsProcessed;
+    private final long totalInterest;
+    private final long totalFees;
+    private final long elapsedNanos;
+
+    /**
+     * Constructs a month end summary
+     * @param _accountsProcessed	the number of accounts updated
+     * @param _totalInterest		the interest paid to all accounts in cents
+     * @param _totalFees			the fees charged to all accounts in cents
+     * @param _elapsedNanos			the time the month end took in nanoseconds
+     */
+    public MonthEndSummary(int _accountsProcessed, long _totalInterest, long _totalFees, long _elapsedNanos) {
+        this.accountsProcessed = _accountsProcessed;
+        this.totalInterest = _totalInterest;
+        this.totalFees = _totalFees;
+        this.elapsedNanos = _elapsedNanos;
+    }
+
+    /**
+     * Combines this summary with the summary of another part of the database
+     * @param other	the summary of the other part
+     * @return		a summary of both parts, keeping this summary's elapsed time
+     */
+    MonthEndSummary plus(MonthEndSummary other) {
+        return new MonthEndSummary(this.accountsProcessed + other.accountsProcessed,
+                this.totalInterest + other.totalInterest, this.totalFees + other.totalFees, this.elapsedNanos);
+    }
+
+    /**
+     * Gets a copy of this summary with a different elapsed time
+     * @param _elapsedNanos	the time the month end took in nanoseconds
+     * @return				the new summary
+     */
+    MonthEndSummary withElapsedNanos(long _elapsedNanos) {
+        return new MonthEndSummary(this.accountsProcessed, this.totalInterest, this.totalFees, _elapsedNanos);
+    }
+
+    /**
+     * Gets the number of accounts updated
+     * @return	the number of accounts
+     */
+    public int getAccountsProcessed() {
+        return this.accountsProcessed;
+    }
+
+    /**
+     * Gets the interest paid to all accounts
+     * @return	the interest in cents
+     */
+    public long getTotalInterestCents() {
+        return this.totalInterest;
+    }
+
+    /**
+     * Gets the fees charged to all accounts
+     * @return	the fees in cents
+     */
+    public long getTotalFeesCents() {
+        return this.totalFees;
+    }
+
+    /**
+     * Gets the time the month end took
+     * @return	the elapsed time in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return this.elapsedNanos;
+    }
+
+    /**
+     * Gets the string representation of this summary<br>
+     * Format: "Month end: [Accounts] accounts, interest $[Interest], fees $[Fees], [Time] ms"
+     * @return	the string representation
+     */
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder(80);
+        AccountFormat.appendDigits(result.append("Month end: "), this.accountsProcessed).append(" accounts, interest ");
+        AccountFormat.appendMoney(result, this.totalInterest, AccountFormat.DOLLARS).append(", fees ");
+        AccountFormat.appendMoney(result, this.totalFees, AccountFormat.DOLLARS).append(", ");
+        return AccountFormat.appendDigits(result, this.elapsedNanos / 1000000).append(" ms").toString();
+    }
+}
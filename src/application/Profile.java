@@ -48,6 +48,15 @@ public class Profile {
 		}
 	}
 	
+	/**
+	 * Gets the hash code of this profile, consistent with equals
+	 * @return	the hash code
+	 */
+	@Override
+	public int hashCode() {
+		return 31 * this.lname.hashCode() + this.fname.hashCode();
+	}
+	
 	/**
 	 * Compares this profile with another by last name
 	 * @param profile	the profile to compare to
@@ -70,7 +79,17 @@ public class Profile {
 	 */
 	@Override
 	public String toString() {
-		return String.format("%s %s", this.fname, this.lname);
+		return this.appendTo(new StringBuilder()).toString();
+	}
+	
+	/**
+	 * Appends the string representation of this profile
+	 * Format: "[First Name] [Last Name]"
+	 * @param out	where to append the text
+	 * @return		out
+	 */
+	StringBuilder appendTo(StringBuilder out) {
+		return out.append(this.fname).append(' ').append(this.lname);
 	}
 	
 	/**
@@ -2,15 +2,18 @@ package application;
 /**
  * This class represents a savings account<br>
  * Checking accounts have a monthly fee of 5, a minimum balance of 300 to waive the fee, and an annual interest rate of .25%<br>
- * the annual interest rate is .35% on loyal accounts
+ * the annual interest rate is .35% on loyal accounts<br>
+ * Amounts are in cents and rates are out of Money.RATE_SCALE
  * @author Steven Nguyen, Julian Romero
  */
 public class Savings extends Account {
 	private boolean isLoyal;
-	private static final double monthlyFee = 5;
-	private static final double waiveBalanceMinimum = 300;
-	private static final double annualInterestRate = .0025;
-	private static final double loyalAnnualInterestRate = .0035;
+	static final long monthlyFee = 500;
+	static final long waiveBalanceMinimum = 30000;
+	static final long annualInterestRate = 25;
+	static final long loyalAnnualInterestRate = 35;
+
+	private static final int typeHash = 2;
 
 	private static final int fillerBalance = 0;
 	private static final int fillerMonth = 1;
@@ -33,6 +36,18 @@ public class Savings extends Account {
 		this.isLoyal = _isLoyal;
 	}
 	
+	/**
+	 * Constructs a savings account from an existing profile and open date
+	 * @param _holder	the profile
+	 * @param _balance	the initial balance in cents
+	 * @param _dateOpen	the open date
+	 * @param _isLoyal	true if the account is loyal, false otherwise
+	 */
+	Savings(Profile _holder, long _balance, Date _dateOpen, boolean _isLoyal) {
+		super(_holder, _balance, _dateOpen);
+		this.isLoyal = _isLoyal;
+	}
+	
 	/**
 	 * Constructs a temporary savings account used for comparisons
 	 * @param _fname	the first name of the profile
@@ -43,25 +58,79 @@ public class Savings extends Account {
 		this.isLoyal = fillerIsLoyal;
 	}
 
+	/**
+	 * Copies this savings account, including its current balance
+	 * @return	a new savings account
+	 */
+	@Override
+	Savings copy() {
+		return new Savings(this.getProfile(), this.getBalanceCents(), this.getOpenDate(), this.getIsLoyal());
+	}
+
 	/**
 	 * Calculate the monthly interest for this account
+	 * @return	the monthly interest in cents
 	 */
 	@Override
-	public double monthlyInterest() {
-		double rate = annualInterestRate;
-		if (this.isLoyal) {
-			rate = loyalAnnualInterestRate;
-		}
-		
-		return this.getBalance() * (rate / 12);
+	public long monthlyInterestCents() {
+		return interestFor(this.getBalanceCents(), this.getIsLoyal());
 	}
 
 	/**
 	 * Calculate the monthly fee for this account
+	 * @return	the monthly fee in cents
+	 */
+	@Override
+	public long monthlyFeeCents() {
+		return feeFor(this.getBalanceCents());
+	}
+	
+	/**
+	 * Calculate the balance of this account after a number of month ends
+	 * @param months	the number of months to project
+	 * @return			the projected balance in cents
 	 */
 	@Override
-	public double monthlyFee() {
-		if (this.getBalance() >= waiveBalanceMinimum) {
+	public long projectBalanceCents(int months) {
+		return projectBalance(this.getBalanceCents(), this.getIsLoyal(), months);
+	}
+	
+	/**
+	 * Calculate the balance of a savings account after a number of month ends
+	 * @param balance	the balance in cents
+	 * @param isLoyal	if the account holder is a loyal customer
+	 * @param months	the number of months to project
+	 * @return			the projected balance in cents
+	 */
+	static long projectBalance(long balance, boolean isLoyal, int months) {
+		for (int i = 0; i < months; i++) {
+			balance += interestFor(balance, isLoyal) - feeFor(balance);
+		}
+		return balance;
+	}
+	
+	/**
+	 * Calculate the monthly interest for a savings account
+	 * @param balance	the balance in cents
+	 * @param isLoyal	true if the account is loyal, false otherwise
+	 * @return			the monthly interest in cents
+	 */
+	static long interestFor(long balance, boolean isLoyal) {
+		long rate = annualInterestRate;
+		if (isLoyal) {
+			rate = loyalAnnualInterestRate;
+		}
+		
+		return Money.monthlyInterest(balance, rate);
+	}
+	
+	/**
+	 * Calculate the monthly fee for a savings account
+	 * @param balance	the balance in cents
+	 * @return			the monthly fee in cents
+	 */
+	static long feeFor(long balance) {
+		if (balance >= waiveBalanceMinimum) {
 			return 0;
 		} else {
 			return monthlyFee;
@@ -77,18 +146,19 @@ public class Savings extends Account {
 	}
 
 	/**
-	 * Gets the string representation of this money market account<br>
-	 * Format: "*Money Market*[Profile Name]* $[Balance]*[Open Date]*<br>
+	 * Appends the string representation of this savings account<br>
+	 * Format: "*Savings*[Profile Name]* $[Balance]*[Open Date]*<br>
 	 * appends "special savings account*" at the end if the account is loyal
-	 * @return	the string representation
+	 * @param out	where to append the text
+	 * @return		out
 	 */
 	@Override
-	public String toString() {
-		if (this.isLoyal) {
-			return String.format("*%s%s*%s*", "Savings", super.toString(), "special savings account");
-		} else {
-			return String.format("*%s%s", "Savings", super.toString());
+	StringBuilder appendTo(StringBuilder out) {
+		super.appendTo(out.append("*Savings"));
+		if (this.getIsLoyal()) {
+			out.append("*special savings account*");
 		}
+		return out;
 	}
 
 	/**
@@ -105,6 +175,15 @@ public class Savings extends Account {
 		}
 	}
 	
+	/**
+	 * Gets the hash code of this savings account, consistent with equals
+	 * @return	the hash code of the profile combined with the account type
+	 */
+	@Override
+	public int hashCode() {
+		return 31 * super.hashCode() + typeHash;
+	}
+	
 	/**
 	 * Testmain - tests the methods in this class
 	 * @param args	unused
@@ -0,0 +1,20 @@
+package application;
+
+/**
+ * This class serves account commands over TCP without the UI<br>
+ * Nothing here uses JavaFX, so the server can run on a machine without it, such as
+ * java -cp bin application.ServerMain 7070 accounts.txt
+ * @author Steven Nguyen, Julian Romero
+ */
+public final class ServerMain {
+    private ServerMain() {
+    }
+
+    /**
+     * Serves commands until the process is stopped, or exits with 1 if the arguments or files could not be used
+     * @param args	optionally the port, and a file of accounts to import before listening
+     */
+    public static void main(String[] args) {
+        System.exit(AccountServer.run(args));
+    }
+}
@@ -0,0 +1,130 @@
+package application;
+
+/**
+ * This class holds one deposit or withdrawal submitted as part of a batch<br>
+ * The account only needs its type and first and last name, since it is used to find the account in a database
+ * @author Steven Nguyen, Julian Romero
+ */
+public final class Transaction {
+    /**
+     * The type of a transaction that adds money to an account
+     */
+    public static final int DEPOSIT = 0;
+
+    /**
+     * The type of a transaction that takes money from an account
+     */
+    public static final int WITHDRAWAL = 1;
+
+    /**
+     * The result of a transaction that changed the balance
+     */
+    public static final int APPLIED = 0;
+
+    /**
+     * The result of a withdrawal from an account without enough balance
+     */
+    public static final int INSUFFICIENT_FUNDS = 1;
+
+    /**
+     * The result of a transaction on an account that is not in the database
+     */
+    public static final int NOT_FOUND = -1;
+
+    private final Account account;
+    private final int type;
+    private final long cents;
+
+    /**
+     * Constructs a transaction
+     * @param _account	an account with the same type and first and last name as the account to change
+     * @param _type		DEPOSIT or WITHDRAWAL
+     * @param _cents	the amount of money in cents
+     */
+    private Transaction(Account _account, int _type, long _cents) {
+        this.account = _account;
+        this.type = _type;
+        this.cents = _cents;
+    }
+
+    /**
+     * Gets a deposit
+     * @param account	an account with the same type and first and last name as the account to add to
+     * @param amount	the amount of money to add to the account
+     * @return			the transaction
+     * @throws IllegalArgumentException	if the amount is not at least a cent, or cannot be converted to cents
+     */
+    public static Transaction deposit(Account account, double amount) {
+        return new Transaction(account, DEPOSIT, checkCents(Money.toCents(amount)));
+    }
+
+    /**
+     * Gets a deposit
+     * @param account	an account with the same type and first and last name as the account to add to
+     * @param cents		the amount of money to add to the account in cents
+     * @return			the transaction
+     * @throws IllegalArgumentException	if the amount is not greater than 0
+     */
+    public static Transaction depositCents(Account account, long cents) {
+        return new Transaction(account, DEPOSIT, checkCents(cents));
+    }
+
+    /**
+     * Gets a withdrawal
+     * @param account	an account with the same type and first and last name as the account to withdraw from
+     * @param amount	the amount of money to withdraw
+     * @return			the transaction
+     * @throws IllegalArgumentException	if the amount is not at least a cent, or cannot be converted to cents
+     */
+    public static Transaction withdrawal(Account account, double amount) {
+        return new Transaction(account, WITHDRAWAL, checkCents(Money.toCents(amount)));
+    }
+
+    /**
+     * Gets a withdrawal
+     * @param account	an account with the same type and first and last name as the account to withdraw from
+     * @param cents		the amount of money to withdraw in cents
+     * @return			the transaction
+     * @throws IllegalArgumentException	if the amount is not greater than 0
+     */
+    public static Transaction withdrawalCents(Account account, long cents) {
+        return new Transaction(account, WITHDRAWAL, checkCents(cents));
+    }
+
+    /**
+     * Checks the amount of a transaction, since a negative deposit would withdraw without checking the balance
+     * @param cents	the amount of money in cents
+     * @return		the amount
+     * @throws IllegalArgumentException	if the amount is not greater than 0
+     */
+    private static long checkCents(long cents) {
+        if (cents <= 0) {
+            throw new IllegalArgumentException("Amount must be greater than 0, not " + cents + " cents");
+        }
+        return cents;
+    }
+
+    /**
+     * Gets the account the transaction is for
+     * @return	an account with the same type and first and last name as the account to change
+     */
+    public Account getAccount() {
+        return this.account;
+    }
+
+    /**
+     * Gets the type of the transaction
+     * @return	DEPOSIT or WITHDRAWAL
+     */
+    public int getType() {
+        return this.type;
+    }
+
+    /**
+     * Gets the amount of the transaction
+     * @return	the amount of money in cents
+     */
+    public long getCents() {
+        return this.cents;
+    }
+}
@@ -0,0 +1,839 @@
+package application;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * This class keeps a binary log of the changes made to an account database<br>
+ * Each change is one record: its length, a CRC32 checksum and the change itself. A deposit or withdrawal is made in
+ * memory and its record is queued as one step while the account is locked, so the records of an account are in the
+ * order its changes were made, and the change is only reported as done once its record is forced to disk.
+ * If a record cannot be written, the change that logged it throws and every later change
+ * to the database throws before it is made, so the database is never more than the failed changes ahead of the
+ * journal. Threads logging at the same time share one write and one force:
+ * the first thread to wait becomes the leader and writes every record logged so far, while the others wait for it.
+ * Opening a journal replays its records into a database, dropping a record cut short by a crash
+ * @author Steven Nguyen, Julian Romero
+ */
+public class TransactionJournal implements Closeable {
+    static final byte OPEN = 1;
+    static final byte CLOSE = 2;
+    static final byte DEPOSIT = 3;
+    static final byte WITHDRAWAL = 4;
+    static final byte MONTH_END = 5;
+
+    private static final int MAGIC = 0x41434a4c;
+    private static final int VERSION = 1;
+    private static final int FILE_HEADER_SIZE = 16;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final int MAX_RECORD_SIZE = 1 << 20;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final ReentrantLock lock;
+    private final Condition synced;
+    private ByteArrayOutputStream pending;
+    private long generation;
+    private long loggedCount;
+    private long durableCount;
+    private long syncCount;
+    private boolean isSyncing;
+    private volatile IOException failure;
+
+    /**
+     * Constructs a journal that appends to the end of an open file
+     * @param _file			the file, already checked and truncated after its last whole record
+     * @param _generation	the generation of the records in the file
+     */
+    private TransactionJournal(RandomAccessFile _file, long _generation) throws IOException {
+        this.file = _file;
+        this.channel = _file.getChannel();
+        this.channel.position(this.channel.size());
+        this.lock = new ReentrantLock();
+        this.synced = this.lock.newCondition();
+        this.pending = new ByteArrayOutputStream();
+        this.generation = _generation;
+    }
+
+    /**
+     * Opens a journal, creating the file if it does not exist<br>
+     * Every record already in the file is replayed into the database, then the journal is attached to the database
+     * so its later changes are logged
+     * @param journalFile	the journal file
+     * @param db			the database to rebuild, which should be empty and not yet shared with other threads
+     * @return				the open journal
+     * @throws IOException	if the file cannot be read or opened
+     */
+    public static TransactionJournal open(File journalFile, AccountDatabase db) throws IOException {
+        return open(journalFile, null, db);
+    }
+
+    /**
+     * Opens a journal that follows a checkpoint, creating the files if they do not exist<br>
+     * The snapshot is loaded first, then only the journal records made after it are replayed.
+     * A journal left from before the snapshot, as when a crash interrupted a checkpoint, is emptied instead
+     * @param journalFile	the journal file
+     * @param snapshotFile	the snapshot written by AccountDatabase.checkpoint, or null if there is none
+     * @param db			the database to rebuild, which should be empty and not yet shared with other threads
+     * @return				the open journal
+     * @throws IOException	if the files cannot be read or opened
+     */
+    public static TransactionJournal open(File journalFile, File snapshotFile, AccountDatabase db)
+            throws IOException {
+        long coveredGeneration = 0;
+        if (snapshotFile != null && snapshotFile.exists()) {
+            coveredGeneration = AccountSnapshot.read(snapshotFile, db);
+        }
+
+        long generation = readGeneration(journalFile);
+        long validLength = 0;
+        if (generation > coveredGeneration) {
+            validLength = replay(journalFile, db);
+        } else {
+            generation = coveredGeneration + 1;
+        }
+
+        RandomAccessFile file = new RandomAccessFile(journalFile, "rw");
+        if (file.length() > validLength) {
+            // Drops a record cut short by a crash so new records follow the last whole one
+            file.setLength(validLength);
+        }
+        TransactionJournal journal = new TransactionJournal(file, generation);
+        if (validLength == 0) {
+            journal.writeHeader();
+        }
+        db.setJournal(journal);
+        return journal;
+    }
+
+    /**
+     * Reads the generation of a journal file
+     * @param journalFile	the journal file
+     * @return				the generation, or 0 if the file has no header yet
+     * @throws IOException	if the file is not a transaction journal
+     */
+    private static long readGeneration(File journalFile) throws IOException {
+        if (!journalFile.exists() || journalFile.length() < FILE_HEADER_SIZE) {
+            return 0;
+        }
+
+        DataInputStream input = new DataInputStream(new FileInputStream(journalFile));
+        try {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                throw new IOException("Not a transaction journal: " + journalFile);
+            }
+            return input.readLong();
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Applies every whole record in a journal file to a database
+     * @param journalFile	the journal file
+     * @param db			the database to apply the records to, which must not have a journal attached
+     * @return				the length of the file up to the end of the last whole record
+     * @throws IOException	if the file cannot be read
+     */
+    static long replay(File journalFile, AccountDatabase db) throws IOException {
+        if (!journalFile.exists() || journalFile.length() < FILE_HEADER_SIZE) {
+            return 0;
+        }
+
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(journalFile), 65536));
+        long validLength = FILE_HEADER_SIZE;
+        CRC32 checksum = new CRC32();
+        try {
+            input.readFully(new byte[FILE_HEADER_SIZE]);
+            while (true) {
+                int length = input.readInt();
+                int expected = input.readInt();
+                if (length <= 0 || length > MAX_RECORD_SIZE) {
+                    break;
+                }
+                byte[] body = new byte[length];
+                input.readFully(body);
+                checksum.reset();
+                checksum.update(body);
+                if ((int) checksum.getValue() != expected) {
+                    break;
+                }
+                apply(body, db);
+                validLength += RECORD_HEADER_SIZE + length;
+            }
+        } catch (EOFException e) {
+            // Reached the end of the journal, or a record cut short
+        } finally {
+            input.close();
+        }
+        return validLength;
+    }
+
+    /**
+     * Empties the file and writes the header for the current generation
+     * @throws IOException	if the file cannot be written
+     */
+    private void writeHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putLong(this.generation).flip();
+        this.channel.truncate(0);
+        this.channel.position(0);
+        while (header.hasRemaining()) {
+            this.channel.write(header);
+        }
+        this.channel.force(false);
+    }
+
+    /**
+     * Gets the generation of the journal, which goes up each time a checkpoint empties it
+     * @return	the generation
+     */
+    long getGeneration() {
+        this.lock.lock();
+        try {
+            return this.generation;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Empties the journal after a checkpoint has saved every change in it<br>
+     * No other thread may log a change until this returns
+     * @param newGeneration	the generation of the records logged after the checkpoint
+     * @throws IOException	if the journal cannot be written
+     */
+    void reset(long newGeneration) throws IOException {
+        this.lock.lock();
+        try {
+            this.awaitDurable(this.loggedCount);
+            this.checkOpen();
+            this.generation = newGeneration;
+            this.writeHeader();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Applies one record to a database<br>
+     * Withdrawals are checked against the balance again. The records of an account are in the order its changes were
+     * made, so a withdrawal that succeeded when it was logged succeeds when it is replayed
+     * @param body			the record without its length and checksum
+     * @param db			the database to apply the record to
+     * @throws IOException	if the record is not a change this journal writes, or a withdrawal overdraws its account
+     */
+    private static void apply(byte[] body, AccountDatabase db) throws IOException {
+        DataInputStream record = new DataInputStream(new ByteArrayInputStream(body));
+        byte op = record.readByte();
+        if (op == MONTH_END) {
+            db.applyMonthEnd();
+            return;
+        }
+
+        byte type = record.readByte();
+        switch (op) {
+            case OPEN:
+                byte flags = record.readByte();
+                Date dateOpen = Date.fromPacked(record.readInt());
+                long balance = record.readLong();
+                int withdrawals = record.readInt();
+                Profile holder = new Profile(record.readUTF(), record.readUTF());
+                db.add(toAccount(type, flags, holder, balance, dateOpen, withdrawals));
+                break;
+            case CLOSE:
+                db.remove(toAccount(type, (byte) 0, new Profile(record.readUTF(), record.readUTF()), 0, null, 0));
+                break;
+            case DEPOSIT:
+            case WITHDRAWAL:
+                long cents = record.readLong();
+                Account account = toAccount(type, (byte) 0, new Profile(record.readUTF(), record.readUTF()), 0, null, 0);
+                if (op == DEPOSIT) {
+                    db.depositCents(account, cents);
+                } else if (db.withdrawalCents(account, cents) == 1) {
+                    throw new IOException("Journal withdrawal overdraws " + account.getProfile());
+                }
+                break;
+            default:
+                throw new IOException("Unknown journal record " + op);
+        }
+    }
+
+    /**
+     * Builds an account from the fields of a record
+     * @param type			the account type tag
+     * @param flags			the account flags
+     * @param holder		the profile
+     * @param balance		the balance in cents
+     * @param dateOpen		the open date, or null for a temporary account used for lookups
+     * @param withdrawals	the number of withdrawals of a money market account
+     * @return				the account
+     */
+    private static Account toAccount(byte type, byte flags, Profile holder, long balance, Date dateOpen,
+            int withdrawals) {
+        if (dateOpen == null) {
+            dateOpen = new Date(1, 1, 2000);
+        }
+        switch (type) {
+            case ColumnarAccountDatabase.CHECKING:
+                return new Checking(holder, balance, dateOpen, (flags & ColumnarAccountDatabase.DIRECT_DEPOSIT) != 0);
+            case ColumnarAccountDatabase.SAVINGS:
+                return new Savings(holder, balance, dateOpen, (flags & ColumnarAccountDatabase.LOYAL) != 0);
+            default:
+                return new MoneyMarket(holder, balance, dateOpen, withdrawals);
+        }
+    }
+
+    /**
+     * Logs an account being opened
+     * @param account	the account as it was added
+     */
+    void logOpen(Account account) {
+        this.commit(encodeOpen(account));
+    }
+
+    /**
+     * Logs many accounts being opened, waiting for all their records to be on disk at once
+     * @param accounts	the accounts as they were added
+     * @param count		the number of accounts to log from the start of the array
+     */
+    void logOpenAll(Account[] accounts, int count) {
+        if (count == 0) {
+            return;
+        }
+        long lastRecord = 0;
+        for (int i = 0; i < count; i++) {
+            lastRecord = this.append(encodeOpen(accounts[i]));
+        }
+        this.awaitCommitted(lastRecord);
+    }
+
+    /**
+     * Encodes the record of an account being opened
+     * @param account	the account as it was added
+     * @return			the record without its length and checksum
+     */
+    private static byte[] encodeOpen(Account account) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(64);
+        DataOutputStream record = new DataOutputStream(body);
+        try {
+            record.writeByte(OPEN);
+            record.writeByte(ColumnarAccountDatabase.typeOf(account));
+            record.writeByte(ColumnarAccountDatabase.flagsOf(account));
+            record.writeInt(account.getOpenDate().toPacked());
+            record.writeLong(account.getBalanceCents());
+            record.writeInt(account instanceof MoneyMarket ? ((MoneyMarket) account).getWithdrawals() : 0);
+            record.writeUTF(account.getProfile().getFName());
+            record.writeUTF(account.getProfile().getLName());
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot encode journal record", e);
+        }
+        return body.toByteArray();
+    }
+
+    /**
+     * Logs an account being closed
+     * @param account	the account that was removed
+     */
+    void logClose(Account account) {
+        this.commit(this.encode(CLOSE, account, 0));
+    }
+
+    /**
+     * Queues the record of a deposit without waiting for it to be on disk<br>
+     * Called in the same locked step as the deposit, so the account's records stay in the order of its changes
+     * @param account	the account deposited into
+     * @param cents		the amount deposited in cents
+     * @return			the number of the record, to pass to awaitRecord
+     */
+    long appendDeposit(Account account, long cents) {
+        return this.append(this.encode(DEPOSIT, account, cents));
+    }
+
+    /**
+     * Queues the record of a withdrawal that succeeded without waiting for it to be on disk<br>
+     * Called in the same locked step as the withdrawal, so the account's records stay in the order of its changes
+     * @param account	the account withdrawn from
+     * @param cents		the amount withdrawn in cents
+     * @return			the number of the record, to pass to awaitRecord
+     */
+    long appendWithdrawal(Account account, long cents) {
+        return this.append(this.encode(WITHDRAWAL, account, cents));
+    }
+
+    /**
+     * Waits until a queued record and every record before it are on disk
+     * @param recordNumber	the number of the record
+     */
+    void awaitRecord(long recordNumber) {
+        this.awaitCommitted(recordNumber);
+    }
+
+    /**
+     * Logs a month end applied to every account
+     */
+    void logMonthEnd() {
+        this.commit(new byte[] {MONTH_END});
+    }
+
+    /**
+     * Encodes a record that names an account
+     * @param op		CLOSE, DEPOSIT or WITHDRAWAL
+     * @param account	the account
+     * @param cents		the amount for a deposit or withdrawal
+     * @return			the record without its length and checksum
+     */
+    private byte[] encode(byte op, Account account, long cents) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(48);
+        DataOutputStream record = new DataOutputStream(body);
+        try {
+            record.writeByte(op);
+            record.writeByte(ColumnarAccountDatabase.typeOf(account));
+            if (op != CLOSE) {
+                record.writeLong(cents);
+            }
+            record.writeUTF(account.getProfile().getFName());
+            record.writeUTF(account.getProfile().getLName());
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot encode journal record", e);
+        }
+        return body.toByteArray();
+    }
+
+    /**
+     * Logs a record and waits until it is on disk
+     * @param body	the record without its length and checksum
+     */
+    private void commit(byte[] body) {
+        this.awaitCommitted(this.append(body));
+    }
+
+    /**
+     * Adds a record to the records waiting to be written
+     * @param body	the record without its length and checksum
+     * @return		the number of the record
+     */
+    private long append(byte[] body) {
+        CRC32 checksum = new CRC32();
+        checksum.update(body);
+        long recordNumber;
+        this.lock.lock();
+        try {
+            this.checkOpen();
+            int length = body.length;
+            int crc = (int) checksum.getValue();
+            this.pending.write(length >>> 24);
+            this.pending.write(length >>> 16);
+            this.pending.write(length >>> 8);
+            this.pending.write(length);
+            this.pending.write(crc >>> 24);
+            this.pending.write(crc >>> 16);
+            this.pending.write(crc >>> 8);
+            this.pending.write(crc);
+            this.pending.write(body, 0, length);
+            recordNumber = ++this.loggedCount;
+        } finally {
+            this.lock.unlock();
+        }
+        return recordNumber;
+    }
+
+    /**
+     * Waits until a number of records are on disk, for changes that cannot throw an IOException
+     * @param recordNumber	the number of records that must be on disk
+     */
+    private void awaitCommitted(long recordNumber) {
+        try {
+            this.awaitDurable(recordNumber);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot write transaction journal", e);
+        }
+    }
+
+    /**
+     * Waits until a number of records are on disk<br>
+     * If no other thread is writing, this thread writes and forces every pending record as one batch
+     * @param recordNumber	the number of records that must be on disk
+     * @throws IOException	if the journal cannot be written
+     */
+    private void awaitDurable(long recordNumber) throws IOException {
+        this.lock.lock();
+        try {
+            while (this.durableCount < recordNumber) {
+                this.checkFailure();
+                if (this.isSyncing) {
+                    this.synced.awaitUninterruptibly();
+                    continue;
+                }
+
+                // Becomes the leader for every record logged so far
+                this.isSyncing = true;
+                ByteArrayOutputStream batch = this.pending;
+                long batchEnd = this.loggedCount;
+                this.pending = new ByteArrayOutputStream(Math.max(32, batch.size()));
+                IOException error = null;
+                this.lock.unlock();
+                try {
+                    ByteBuffer buffer = ByteBuffer.wrap(batch.toByteArray());
+                    while (buffer.hasRemaining()) {
+                        this.channel.write(buffer);
+                    }
+                    this.channel.force(false);
+                } catch (IOException e) {
+                    error = e;
+                } finally {
+                    this.lock.lock();
+                }
+
+                this.isSyncing = false;
+                if (error != null) {
+                    this.failure = error;
+                } else {
+                    this.durableCount = batchEnd;
+                    this.syncCount++;
+                }
+                this.synced.signalAll();
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Checks that a change can be made to the database and logged<br>
+     * Once a write fails the database holds changes that are not on disk, so it must be rebuilt by opening the
+     * journal again before it is changed
+     * @throws IllegalStateException	if an earlier write failed or the journal is closed
+     */
+    void checkWritable() {
+        this.checkOpen();
+        if (this.failure != null) {
+            throw new IllegalStateException("Cannot change the database since its journal failed", this.failure);
+        }
+    }
+
+    /**
+     * Throws the error that stopped an earlier write, since records after a failed batch cannot be trusted
+     * @throws IOException	if an earlier write failed
+     */
+    private void checkFailure() throws IOException {
+        if (this.failure != null) {
+            throw new IOException("Transaction journal failed earlier", this.failure);
+        }
+    }
+
+    /**
+     * Checks that the journal has not been closed
+     */
+    private void checkOpen() {
+        if (!this.channel.isOpen()) {
+            throw new IllegalStateException("Transaction journal is closed");
+        }
+    }
+
+    /**
+     * Gets the number of records logged since the journal was opened
+     * @return	the number of records
+     */
+    public long getRecordCount() {
+        this.lock.lock();
+        try {
+            return this.loggedCount;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of times the journal was forced to disk since it was opened<br>
+     * Fewer forces than records means concurrent changes shared a force
+     * @return	the number of forces
+     */
+    public long getSyncCount() {
+        this.lock.lock();
+        try {
+            return this.syncCount;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Waits for every logged record to be on disk, then closes the file
+     * @throws IOException	if the records cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        long lastRecord;
+        this.lock.lock();
+        try {
+            lastRecord = this.loggedCount;
+        } finally {
+            this.lock.unlock();
+        }
+        try {
+            this.awaitDurable(lastRecord);
+        } finally {
+            this.channel.close();
+            this.file.close();
+        }
+    }
+
+    /**
+     * Testmain - tests that concurrent changes share forces and that replaying the journal rebuilds the database
+     * @param args	unused
+     */
+    public static void main(String[] args) {
+        try {
+            testReplay();
+        } catch (IOException | InterruptedException e) {
+            System.out.println("Unexpected: " + e);
+        }
+    }
+
+    /**
+     * Tests that concurrent changes share forces and that replaying the journal rebuilds the database
+     * @throws IOException			if the test file cannot be used
+     * @throws InterruptedException	if the test is interrupted
+     */
+    private static void testReplay() throws IOException, InterruptedException {
+        File journalFile = File.createTempFile("accounts", ".journal");
+        journalFile.delete();
+        journalFile.deleteOnExit();
+
+        final ConcurrentAccountDatabase db = new ConcurrentAccountDatabase();
+        TransactionJournal journal = open(journalFile, db);
+        for (int i = 0; i < 50; i++) {
+            db.add(new Checking("F" + i, "L" + i % 5, 100 + i, 1 + i % 12, 1, 2000, i % 2 == 0));
+            db.add(new Savings("F" + i, "L" + i % 5, 500, 2, 1 + i % 28, 2001, i % 3 == 0));
+            db.add(new MoneyMarket("F" + i, "L" + i % 5, 2500, 3, 1, 2002, i % 4));
+        }
+        db.remove(new Savings("F7", "L2"));
+
+        // Each thread deposits and withdraws while another thread applies month ends
+        final int threadCount = 8;
+        Thread[] threads = new Thread[threadCount + 1];
+        for (int t = 0; t < threadCount; t++) {
+            final int seed = t;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    java.util.Random random = new java.util.Random(seed);
+                    for (int i = 0; i < 500; i++) {
+                        int person = random.nextInt(50);
+                        Account account = random.nextBoolean() ? new Checking("F" + person, "L" + person % 5)
+                                : new MoneyMarket("F" + person, "L" + person % 5);
+                        if (random.nextBoolean()) {
+                            db.depositCents(account, random.nextInt(10000));
+                        } else {
+                            db.withdrawalCents(account, random.nextInt(10000));
+                        }
+                    }
+                }
+            };
+        }
+        threads[threadCount] = new Thread() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 3; i++) {
+                    db.applyMonthEnd();
+                }
+            }
+        };
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        db.printByLastName();
+        String before = db.printAccounts();
+        long records = journal.getRecordCount();
+        long syncs = journal.getSyncCount();
+        journal.close();
+
+        // Tests if concurrent changes shared forces
+        if (syncs < records) {
+            System.out.println("Expected: " + records + " records took " + syncs + " forces");
+        } else {
+            System.out.println("Unexpected: " + records + " records took " + syncs + " forces");
+        }
+
+        // Tests if replaying the journal rebuilds the same database
+        AccountDatabase replayed = new AccountDatabase();
+        journal = open(journalFile, replayed);
+        if (replayed.printAccounts().equals(before)) {
+            System.out.println("Expected: replayed journal rebuilds " + replayed.getsize() + " accounts");
+        } else {
+            System.out.println("Unexpected: replayed journal does not match the database");
+        }
+        replayed.deposit(new Checking("F1", "L1"), 1);
+        before = replayed.printAccounts();
+        journal.close();
+
+        // Tests if a record cut short by a crash is dropped and later records still replay
+        long length = journalFile.length();
+        RandomAccessFile torn = new RandomAccessFile(journalFile, "rw");
+        torn.setLength(length + 5);
+        torn.close();
+        replayed = new AccountDatabase();
+        journal = open(journalFile, replayed);
+        replayed.deposit(new Checking("F1", "L1"), 1);
+        before = replayed.printAccounts();
+        journal.close();
+        AccountDatabase reopened = new AccountDatabase();
+        replay(journalFile, reopened);
+        if (journalFile.length() > length && reopened.printAccounts().equals(before)) {
+            System.out.println("Expected: torn record is dropped and later records replay");
+        } else {
+            System.out.println("Unexpected: torn record was not handled");
+        }
+
+        // Tests if withdrawals that rely on deposits made by other threads at the same time replay without overdrawing
+        journalFile.delete();
+        final ConcurrentAccountDatabase hot = new ConcurrentAccountDatabase();
+        journal = open(journalFile, hot);
+        hot.add(new Checking("Hot", "Account", 0, 1, 1, 2000, false));
+        for (int t = 0; t < threadCount; t++) {
+            final boolean isDepositing = t % 2 == 0;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 500; i++) {
+                        if (isDepositing) {
+                            hot.depositCents(new Checking("Hot", "Account"), 1);
+                        } else {
+                            hot.withdrawalCents(new Checking("Hot", "Account"), 1);
+                        }
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (int t = 0; t < threadCount; t++) {
+            threads[t].join();
+        }
+        before = hot.printAccounts();
+        journal.close();
+        replayed = new AccountDatabase();
+        try {
+            replay(journalFile, replayed);
+            if (replayed.printAccounts().equals(before)) {
+                System.out.println("Expected: withdrawals racing deposits on one account replay in order");
+            } else {
+                System.out.println("Unexpected: racing withdrawals replay to a different balance");
+            }
+        } catch (IOException e) {
+            System.out.println("Unexpected: " + e);
+        }
+
+        // Tests if a checkpoint empties the journal and reopening only replays later changes
+        File snapshotFile = new File(journalFile.getPath() + ".snapshot");
+        snapshotFile.deleteOnExit();
+        AccountDatabase checkpointed = new ConcurrentAccountDatabase();
+        journal = open(journalFile, snapshotFile, checkpointed);
+        byte[] staleJournal = java.nio.file.Files.readAllBytes(journalFile.toPath());
+        checkpointed.checkpoint(snapshotFile);
+        long checkpointLength = journalFile.length();
+        checkpointed.applyMonthEnd();
+        checkpointed.remove(new MoneyMarket("F3", "L3"));
+        before = checkpointed.printAccounts();
+        journal.close();
+        reopened = new ConcurrentAccountDatabase();
+        journal = open(journalFile, snapshotFile, reopened);
+        journal.close();
+        if (checkpointLength == FILE_HEADER_SIZE && reopened.printAccounts().equals(before)) {
+            System.out.println("Expected: checkpoint empties the journal and later changes replay over it");
+        } else {
+            System.out.println("Unexpected: checkpoint and journal do not rebuild the database");
+        }
+
+        // Tests if a journal left from before the checkpoint is not replayed again
+        java.nio.file.Files.write(journalFile.toPath(), staleJournal);
+        reopened = new AccountDatabase();
+        journal = open(journalFile, snapshotFile, reopened);
+        reopened.withdrawal(new Checking("F1", "L1"), 1);
+        journal.close();
+        AccountDatabase fromSnapshot = new AccountDatabase();
+        AccountSnapshot.read(snapshotFile, fromSnapshot);
+        fromSnapshot.withdrawal(new Checking("F1", "L1"), 1);
+        AccountDatabase replayedAgain = new AccountDatabase();
+        open(journalFile, snapshotFile, replayedAgain).close();
+        if (reopened.printAccounts().equals(fromSnapshot.printAccounts())
+                && replayedAgain.printAccounts().equals(fromSnapshot.printAccounts())) {
+            System.out.println("Expected: journal from before the checkpoint is skipped");
+        } else {
+            System.out.println("Unexpected: journal from before the checkpoint was replayed again");
+        }
+
+        // Tests if a batch of transactions is forced once and replays to the same balances
+        snapshotFile.delete();
+        journalFile.delete();
+        AccountDatabase batched = new AccountDatabase();
+        journal = open(journalFile, batched);
+        batched.add(new Checking("F1", "L1", 100, 1, 1, 2000, true));
+        batched.add(new MoneyMarket("F2", "L2", 2500, 1, 1, 2000, 0));
+        long syncsBefore = journal.getSyncCount();
+        Transaction[] transactions = new Transaction[300];
+        for (int i = 0; i < transactions.length; i++) {
+            Account key = i % 2 == 0 ? new Checking("F1", "L1") : new MoneyMarket("F2", "L2");
+            transactions[i] = i % 3 == 0 ? Transaction.depositCents(key, 500) : Transaction.withdrawalCents(key, 900);
+        }
+        transactions[5] = Transaction.deposit(new Savings("F1", "L1"), 1);
+        batched.applyTransactions(transactions);
+        long batchSyncs = journal.getSyncCount() - syncsBefore;
+        journal.close();
+        replayed = new AccountDatabase();
+        replay(journalFile, replayed);
+        if (batchSyncs == 1 && replayed.printAccounts().equals(batched.printAccounts())) {
+            System.out.println("Expected: batch of transactions took 1 force and replays to the same balances");
+        } else {
+            System.out.println("Unexpected: batch of transactions took " + batchSyncs + " forces");
+        }
+
+        // Tests if no change is made after a write fails, and reopening the journal gives the changes on disk
+        journalFile.delete();
+        AccountDatabase failing = new AccountDatabase();
+        journal = open(journalFile, failing);
+        failing.add(new Checking("F1", "L1", 100, 1, 1, 2000, true));
+        failing.deposit(new Checking("F1", "L1"), 50);
+        String durable = failing.printAccounts();
+        journal.failure = new IOException("Simulated disk failure");
+        int rejectedCount = 0;
+        try {
+            failing.deposit(new Checking("F1", "L1"), 25);
+        } catch (IllegalStateException e) {
+            rejectedCount++;
+        }
+        try {
+            failing.add(new Savings("F2", "L2", 100, 1, 1, 2000, false));
+        } catch (IllegalStateException e) {
+            rejectedCount++;
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            // Expected, since the journal failed
+        }
+        replayed = new AccountDatabase();
+        replay(journalFile, replayed);
+        if (rejectedCount == 2 && failing.printAccounts().equals(durable) && replayed.printAccounts().equals(durable)) {
+            System.out.println("Expected: changes after a failed write are rejected before they are made");
+        } else {
+            System.out.println("Unexpected: " + rejectedCount + " of 2 changes were rejected after a failed write");
+        }
+    }
+}
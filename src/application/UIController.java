@@ -1,36 +1,209 @@
 package application;
 
 import java.io.*;
+import java.nio.file.NoSuchFileException;
 
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.beans.value.ObservableValue;
+import javafx.concurrent.Task;
+import javafx.concurrent.WorkerStateEvent;
 import javafx.event.ActionEvent;
+import javafx.event.EventHandler;
 import javafx.fxml.FXML;
 import javafx.scene.control.Button;
 import javafx.scene.control.CheckBox;
+import javafx.scene.control.MenuItem;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.control.RadioButton;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
 import javafx.scene.control.TextArea;
 import javafx.scene.control.TextField;
 import javafx.scene.control.ToggleGroup;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
+import javafx.util.Callback;
 
-import java.util.Scanner;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 import java.text.DecimalFormat;
 
 
 // https://docs.oracle.com/javase/8/javafx/api/toc.htm
 public class UIController {
     private AccountDatabase db;
+    private DatabaseFiles files;
     private String priceFormatString = "$#.#";
     private DecimalFormat priceFormat;
+    private ExecutorService jobExecutor;
+    private Task<?> job;
 
     /**
-     * Method called by Main.java to initialize variables
+     * Method called by Main.java to initialize variables<br>
+     * The accounts saved when the app last closed are restored from the database files
+     * @param dataPath	the path the database files are named after
      */
-    void setup() {
+    void setup(File dataPath) {
         db = new AccountDatabase();
+        String restoreMessage;
+        try {
+            files = DatabaseFiles.open(dataPath, db);
+            restoreMessage = "Restored " + db.getsize() + " accounts from " + files.getSnapshotFile() + " and "
+                    + files.getJournalFile() + "\n";
+        } catch (IOException | RuntimeException e) {
+            // Starts empty without saving, rather than saving over files that could not be read
+            db = new AccountDatabase();
+            files = null;
+            restoreMessage = "Cannot restore accounts, changes will not be saved: " + e.getMessage() + "\n";
+        }
 
         priceFormat = new DecimalFormat(priceFormatString);
         priceFormat.setMinimumFractionDigits(2);
+
+        // Imports and exports run one at a time on a daemon thread, so they never keep the app from closing
+        jobExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "import-export");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        setupAccountTable();
+        this.output(restoreMessage);
+    }
+
+    /**
+     * Method called by Main.java when the app closes, to save a checkpoint of the accounts and close their files
+     */
+    void shutdown() {
+        if (job != null) {
+            job.cancel();
+        }
+        if (files == null) {
+            return;
+        }
+        try {
+            files.close();
+        } catch (IOException e) {
+            System.err.println("Cannot save accounts: " + e.getMessage());
+        }
+        files = null;
+    }
+
+    /**
+     * Sets up the account table to show the database one page at a time<br>
+     * Sorting a column asks the database for its accounts in that order instead of sorting the rows in the table.
+     * The interest and fee columns are projected from the current balance, so after a month end they show what the
+     * next month end will apply, and the amounts just applied are only in the month end summary
+     */
+    private void setupAccountTable() {
+        typeColumn.setCellValueFactory(new AccountCell() {
+            @Override
+            String text(Account account) {
+                if (account instanceof Checking) {
+                    return "Checking";
+                } else if (account instanceof Savings) {
+                    return "Savings";
+                } else {
+                    return "Money Market";
+                }
+            }
+        });
+        nameColumn.setCellValueFactory(new AccountCell() {
+            @Override
+            String text(Account account) {
+                return account.getProfile().toString();
+            }
+        });
+        dateColumn.setCellValueFactory(new AccountCell() {
+            @Override
+            String text(Account account) {
+                return account.getOpenDate().toString();
+            }
+        });
+        balanceColumn.setCellValueFactory(new AccountCell() {
+            @Override
+            String text(Account account) {
+                return AccountFormat.appendMoney(new StringBuilder(), account.getBalanceCents(), AccountFormat.DOLLARS).toString();
+            }
+        });
+        interestColumn.setCellValueFactory(new AccountCell() {
+            @Override
+            String text(Account account) {
+                return AccountFormat.appendMoney(new StringBuilder(), account.monthlyInterestCents(), AccountFormat.DOLLARS).toString();
+            }
+        });
+        feeColumn.setCellValueFactory(new AccountCell() {
+            @Override
+            String text(Account account) {
+                return AccountFormat.appendMoney(new StringBuilder(), account.monthlyFeeCents(), AccountFormat.DOLLARS).toString();
+            }
+        });
+
+        typeColumn.setSortable(false);
+        interestColumn.setSortable(false);
+        feeColumn.setSortable(false);
+        accountTable.setSortPolicy(new Callback<TableView<Account>, Boolean>() {
+            @Override
+            public Boolean call(TableView<Account> table) {
+                refreshAccountTable();
+                return true;
+            }
+        });
+        refreshAccountTable();
+    }
+
+    /**
+     * Gets the order of the account table from the column it is sorted by
+     * @return	the order, or null for the order accounts were added
+     */
+    private Comparator<Account> getTableOrder() {
+        if (accountTable.getSortOrder().isEmpty()) {
+            return null;
+        }
+
+        TableColumn<Account, ?> column = accountTable.getSortOrder().get(0);
+        Comparator<Account> order;
+        if (column == nameColumn) {
+            order = AccountSorter.BY_NAME_THEN_TYPE;
+        } else if (column == dateColumn) {
+            order = AccountSorter.BY_DATE_THEN_NAME;
+        } else {
+            order = AccountSorter.BY_BALANCE;
+        }
+        if (column.getSortType() == TableColumn.SortType.DESCENDING) {
+            order = Collections.reverseOrder(order);
+        }
+        return order;
+    }
+
+    /**
+     * Shows the database in the account table again if it or the table's order changed since it was last shown
+     */
+    private void refreshAccountTable() {
+        Comparator<Account> order = getTableOrder();
+        if (accountTable.getItems() instanceof AccountTableItems) {
+            AccountTableItems shown = (AccountTableItems) accountTable.getItems();
+            if (shown.getVersion() == db.getVersion() && sameOrder(shown.getOrder(), order)) {
+                return;
+            }
+        }
+        accountTable.setItems(new AccountTableItems(db, order));
+    }
+
+    /**
+     * Gets if two table orders are the same
+     * @param a	an order, or null
+     * @param b	another order, or null
+     * @return	true if both orders sort the same way
+     */
+    private static boolean sameOrder(Comparator<? super Account> a, Comparator<? super Account> b) {
+        return a == null ? b == null : a.equals(b);
     }
 
     @FXML
@@ -96,9 +269,42 @@ public class UIController {
     @FXML
     private TextArea Output;
 
+    @FXML
+    private TableView<Account> accountTable;
+
+    @FXML
+    private TableColumn<Account, String> typeColumn;
+
+    @FXML
+    private TableColumn<Account, String> nameColumn;
+
+    @FXML
+    private TableColumn<Account, String> dateColumn;
+
+    @FXML
+    private TableColumn<Account, String> balanceColumn;
+
+    @FXML
+    private TableColumn<Account, String> interestColumn;
+
+    @FXML
+    private TableColumn<Account, String> feeColumn;
+
     @FXML
     private Button Clear_Output;
 
+    @FXML
+    private MenuItem importMenuItem;
+
+    @FXML
+    private MenuItem exportMenuItem;
+
+    @FXML
+    private ProgressBar jobProgress;
+
+    @FXML
+    private Button cancelJobButton;
+
     /**
      * disables loyalCustomerBox when checking button is clicked
      * @param event
@@ -132,123 +338,6 @@ public class UIController {
         loyalCustomerBox.setDisable(true);
     }
 
-    /**
-     * Checks input of checking names for invalid numbers and symbols
-     * @param name
-     * @return boolean true if name is a valid integer for date, otherwise false
-     */
-    private boolean checkNameInOC(String name) {
-        name = name.toLowerCase();
-        char[] letterArray = name.toCharArray();
-        for (int i = 0; i < letterArray.length; i++) {
-            char letter = letterArray[i];
-            if (!(letter >= 'a' && letter <= 'z')) {
-                return false;
-            }
-        }
-        return true;
-    }
-
-    /**
-     * Checks input of date for invalid dates
-     * @param date
-     * @return boolean true if input is a valid date and format, otherwise false
-     */
-    private boolean isValidDate(String date) {
-        int leapYearDay = 29;
-        int leapYearDivisor = 4;
-        //length of inputs
-        int lengthOfDayInput = 2;
-        int lengthOfYearInput = 4;
-        int lengthOfMonthInput = 2;
-
-        //special case months
-        int september = 9;
-        int november = 11;
-        int february = 2;
-        int april = 4;
-        int june = 6;
-
-        //special case days
-        int thirtyFirst = 31;
-        int thirty = 30;
-        int twentyNine = 29;
-
-        //parse date for special cases
-        String[] numbers = date.split("/", 3);
-        if(numbers[0].length() > lengthOfMonthInput || numbers[1].length() > lengthOfDayInput
-                || numbers[2].length() > lengthOfYearInput){
-            return false;
-        }
-        int month = Integer.parseInt(numbers[0]);
-        int day = Integer.parseInt(numbers[1]);
-        int year = Integer.parseInt(numbers[2]);
-
-        if(month > 12 || day > 31 || month < 1||day < 1){
-            return false;
-        }
-
-        //handling leap years
-        if (year % leapYearDivisor == 0 && month == february && day == leapYearDay) {
-            return true;
-        }
-        //handling months with 31 days
-        else if ((month == november || month == september || month == june || month == april) && day == thirtyFirst) {
-            return false;
-        }
-        //handling February
-        else if (month == february && (day == twentyNine || day == thirty || day == thirtyFirst)) {
-            return false;
-        }
-        else{
-            return true;
-        }
-    }
-
-    /**
-     * Checks input of date for invalid numbers
-     * @param input
-     * @return boolean true if date input is a valid integer, otherwise false
-     */
-    private boolean isValidInteger(String input) {
-        try {
-            Integer.parseInt(input);
-            return true;
-        }
-        catch(NumberFormatException e) {
-            return false;
-        }
-    }
-
-    /**
-     * Checks input of date for invalid numbers
-     * @param input
-     * @return boolean true if number input is a valid double, otherwise false
-     */
-    private boolean isValidDouble(String input) {
-        try {
-            Double.parseDouble(input);
-            return true;
-        }
-        catch(NumberFormatException e) {
-            return false;
-        }
-    }
-    /**
-     * Checks input of date for invalid numbers
-     * @param input
-     * @return boolean true if number input is a valid double, otherwise false
-     */
-    private boolean isValidBoolean(String input) {
-        try {
-            Boolean.parseBoolean(input);
-            return true;
-        }
-        catch(NumberFormatException e) {
-            return false;
-        }
-    }
-
     /**
      * Deposit money when the Deposit button is clicked on the Funds tab
      * @param event
@@ -273,11 +362,15 @@ public class UIController {
             return;
         }
         
-        // Make sure amount is positive
-        if (amount <= 0) {
+        // Make sure amount is positive and small enough to hold in cents
+        if (!(amount > 0)) {
         	this.output("Amount must be greater than 0!");
         	return;
         }
+        if (!InputValidator.isValidAmount(amount)) {
+        	this.output("Amount is out of range!\n");
+        	return;
+        }
 
         // Try to deposit
         boolean isDeposited = db.deposit(account, amount);
@@ -327,11 +420,15 @@ public class UIController {
             return;
         }
         
-        // Make sure amount is positive
-        if (amount <= 0) {
+        // Make sure amount is positive and small enough to hold in cents
+        if (!(amount > 0)) {
         	this.output("Amount must be greater than 0!");
         	return;
         }
+        if (!InputValidator.isValidAmount(amount)) {
+        	this.output("Amount is out of range!\n");
+        	return;
+        }
 
         // Try to withdraw
         int isWithdrawn = db.withdrawal(account, amount);
@@ -374,7 +471,8 @@ public class UIController {
 
     /**
      * Exports the current database to a chosen directory in a given format when export is chosen
-     * Format Account Type first initial,first name,last name,balance,date,and optional boolean value
+     * Format Account Type first initial,first name,last name,balance,date,and optional boolean value<br>
+     * The accounts are copied, then written to the file in the background with a progress bar and a cancel button
      * @param event
      */
     @FXML
@@ -396,23 +494,32 @@ public class UIController {
             this.output("Export Failed database empty\n");
             return;
         }
-        saveTextToFile(db.printAccountsForExport(),database);
-    }
-    /**
-     * Saves the text from the database to a file
-     * @param content,file Takes the strings in the database and file location
-     */
-    private void saveTextToFile(String content, File file){
-        try {
-            PrintWriter writer;
-            writer = new PrintWriter(file);
-            writer.println(content);
-            this.output("Export successful");
-            writer.close();
-        } catch (IOException ex) {
-            this.output("Cannot output file");
-        }
+
+        final AccountExportTask task = new AccountExportTask(db, database);
+        task.setOnSucceeded(new EventHandler<WorkerStateEvent>() {
+            @Override
+            public void handle(WorkerStateEvent done) {
+                finishJob();
+                output("Export successful");
+            }
+        });
+        task.setOnCancelled(new EventHandler<WorkerStateEvent>() {
+            @Override
+            public void handle(WorkerStateEvent done) {
+                finishJob();
+                output("Export cancelled\n");
+            }
+        });
+        task.setOnFailed(new EventHandler<WorkerStateEvent>() {
+            @Override
+            public void handle(WorkerStateEvent done) {
+                finishJob();
+                output("Cannot output file");
+            }
+        });
+        startJob(task);
     }
+
     /**
      * Gets an account on the Funds tab given the inputs
      * @return	either a template account or a string with the error
@@ -445,21 +552,10 @@ public class UIController {
     void closeAccount(ActionEvent event) {
         String fName = firstNameOc.getText();
         String lName = lastNameOc.getText();
-        if(fName.equals("")){
-            this.output("First name must be entered!\n");
-            return;
-        }
         //checks if names are valid input
-        if(!checkNameInOC(fName)){
-            this.output("First name cannot have numbers or symbols!\n");
-            return;
-        }
-        if(lName.equals("")){
-            this.output("last name must be entered!\n");
-            return;
-        }
-        if(!checkNameInOC(lName)){
-            this.output("Last name cannot have numbers or symbols!\n");
+        String nameError = InputValidator.checkNames(fName, lName);
+        if(nameError != null){
+            this.output(nameError);
             return;
         }
 
@@ -556,12 +652,14 @@ public class UIController {
 
     /**
      * Imports a text file to the database in a given format when import is chosen
-     * Format Account Type first initial,first name,last name,balance,date,and optional boolean value
+     * Format Account Type first initial,first name,last name,balance,date,and optional boolean value<br>
+     * Lines that cannot be read are reported and skipped, and the rest of the file is still imported. The file is
+     * read in the background with a progress bar and a cancel button, and the accounts are added in batches as they
+     * are read
      * @param event
      */
     @FXML
     void importDataBase(ActionEvent event) {
-        boolean duplicateAccount = false;
         FileChooser fileChooser = new FileChooser();
         Stage primaryStage = new Stage();
 
@@ -571,137 +669,83 @@ public class UIController {
             return;
         }
 
-        try {
-            File myObj = new File(database.getPath());
-            Scanner sc = new Scanner(myObj);
-
-
-            while(sc.hasNextLine()){
-                String lineRead = sc.nextLine();
-                String[] accountInputs = lineRead.split(",",-2);
-                //checks if input length is right
-                if(accountInputs.length != 6){
-                    this.output("wrong input size format\n");
-                    sc.close();
-                    return;
-                }
-                //checks if format of inputs are right
-                if(accountInputs[0].length() > 1 || checkNameInOC(accountInputs[0]) == false){
-                    this.output("wrong input length format\n");
-                    sc.close();
-                    return;
-                }
-
-                if(checkNameInOC(accountInputs[1]) == false){
-                    this.output("wrong input name format\n");
-                    sc.close();
-                    return;
+        final AccountImportTask task = new AccountImportTask(database, db, new Runnable() {
+            @Override
+            public void run() {
+                refreshAccountTable();
+            }
+        });
+        task.setOnSucceeded(new EventHandler<WorkerStateEvent>() {
+            @Override
+            public void handle(WorkerStateEvent done) {
+                finishJob();
+                ImportResult result = task.getResult();
+                if(result.getDuplicates() > 0){
+                    output("Warning some accounts already in database and have not been added\n");
                 }
-
-                if(checkNameInOC(accountInputs[2]) == false){
-                    this.output("wrong input name format\n");
-                    sc.close();
-                    return;
+                output(result.toString());
+            }
+        });
+        task.setOnCancelled(new EventHandler<WorkerStateEvent>() {
+            @Override
+            public void handle(WorkerStateEvent done) {
+                finishJob();
+                output("Import cancelled: " + task.getAccountsAdded() + " accounts added, " + task.getDuplicates()
+                        + " duplicates skipped\n");
+            }
+        });
+        task.setOnFailed(new EventHandler<WorkerStateEvent>() {
+            @Override
+            public void handle(WorkerStateEvent done) {
+                finishJob();
+                Throwable e = task.getException();
+                if (e instanceof FileNotFoundException || e instanceof NoSuchFileException) {
+                    output("File not found\n");
+                } else {
+                    output("Cannot read file\n");
                 }
+            }
+        });
+        startJob(task);
+    }
 
-                if(isValidDouble(accountInputs[3]) == false){
-                    this.output("wrong input double format\n");
-                    sc.close();
-                    return;
-                }
+    /**
+     * Runs an import or export in the background, showing its progress and letting it be cancelled<br>
+     * Import and export are turned off until it finishes, so only one runs at a time
+     * @param task	the import or export
+     */
+    private void startJob(Task<?> task) {
+        job = task;
+        importMenuItem.setDisable(true);
+        exportMenuItem.setDisable(true);
+        jobProgress.progressProperty().bind(task.progressProperty());
+        jobProgress.setVisible(true);
+        cancelJobButton.setDisable(false);
+        jobExecutor.execute(task);
+    }
 
-                if(isValidDate(accountInputs[4]) == false){
-                    this.output("wrong input date format\n");
-                    sc.close();
-                    return;
-                }
+    /**
+     * Hides the progress of the finished import or export and turns import and export back on
+     */
+    private void finishJob() {
+        job = null;
+        jobProgress.progressProperty().unbind();
+        jobProgress.setProgress(0);
+        jobProgress.setVisible(false);
+        cancelJobButton.setDisable(true);
+        importMenuItem.setDisable(false);
+        exportMenuItem.setDisable(false);
+    }
 
-                if(accountInputs[0].contains("S")){
-                    if(isValidBoolean(accountInputs[5]) == false){
-                        this.output("wrong input boolean format\n");
-                        sc.close();
-                        return;
-                    }
-                    String firstName = accountInputs[1];
-                    String lastName = accountInputs[2];
-                    Double balance = Double.parseDouble(accountInputs[3]);
-                    String[] date = accountInputs[4].split("/", -2);
-
-                    if(isValidInteger(date[0]) == false || isValidInteger(date[1]) == false || isValidInteger(date[2]) == false){
-                        this.output("wrong input integer format\n");
-                        sc.close();
-                        return;
-                    }
-                    boolean loyalCustomer = Boolean.parseBoolean(accountInputs[5]);
-
-
-                    Savings savingsAccount = new Savings(firstName, lastName, balance, Integer.parseInt(date[0]), Integer.parseInt(date[1]), Integer.parseInt(date[2]), loyalCustomer);
-                    boolean isPresent = db.add(savingsAccount);
-                    if(isPresent == false){
-                        duplicateAccount = true;
-                    }
-                }
-                else if(accountInputs[0].contains("C")){
-                    if(isValidBoolean(accountInputs[5]) == false){
-                        this.output("wrong input boolean format\n");
-                        sc.close();
-                        return;
-                    }
-                    String firstName = accountInputs[1];
-                    String lastName = accountInputs[2];
-                    Double balance = Double.parseDouble(accountInputs[3]);
-                    String[] date = accountInputs[4].split("/", -2);
-                    if(isValidInteger(date[0]) == false || isValidInteger(date[1]) == false || isValidInteger(date[2]) == false){
-                        this.output("wrong input integer format\n");
-                        sc.close();
-                        return;
-                    }
-
-                    boolean directDeposit = Boolean.parseBoolean(accountInputs[5]);
-
-
-                    Checking checkingAccount = new Checking(firstName, lastName, balance, Integer.parseInt(date[0]),
-                            Integer.parseInt(date[1]), Integer.parseInt(date[2]), directDeposit);
-                    boolean isPresent = db.add(checkingAccount);
-                    if(isPresent == false){
-                        duplicateAccount = true;
-                    }
-                }
-                else{
-                    String firstName = accountInputs[1];
-                    String lastName = accountInputs[2];
-                    Double balance = Double.parseDouble(accountInputs[3]);
-                    String[] date = accountInputs[4].split("/", -2);
-
-                    if(isValidInteger(date[0]) == false || isValidInteger(date[1]) == false || isValidInteger(date[2]) == false){
-                        this.output("wrong input integer format\n");
-                        sc.close();
-                        return;
-                    }
-                    if(isValidInteger(accountInputs[5]) == false){
-                        this.output("wrong input integer format\n");
-                        sc.close();
-                        return;
-                    }
-                    int withdrawals = Integer.parseInt(accountInputs[5]);
-
-                    MoneyMarket moneyMarket = new MoneyMarket(firstName, lastName, balance, Integer.parseInt(date[0]),
-                            Integer.parseInt(date[1]), Integer.parseInt(date[2]), withdrawals);
-                    boolean isPresent = db.add(moneyMarket);
-                    if(isPresent == false){
-                        duplicateAccount = true;
-                    }
-                }
-            }
-            if(duplicateAccount){
-                this.output("Warning some accounts already in database and have not been added\n");
-            }
-            
-            sc.close();
-            this.output("Import completed\n");
-        } catch (FileNotFoundException e) {
-            this.output("File not found\n");
-            e.printStackTrace();
+    /**
+     * Cancels the running import or export when the cancel button is clicked<br>
+     * Accounts an import already added stay in the database
+     * @param event
+     */
+    @FXML
+    void cancelJob(ActionEvent event) {
+        if (job != null) {
+            job.cancel();
         }
     }
 
@@ -714,25 +758,15 @@ public class UIController {
 
         String fName = firstNameOc.getText();
         String lName = lastNameOc.getText();
-        if(fName.equals("")){
-            this.output("First name must be entered!\n");
-            return;
-        }
         //checks if names are valid input
-        if(!checkNameInOC(fName)){
-            this.output("First name cannot have numbers or symbols!\n");
-            return;
-        }
-        if(lName.equals("")){
-            this.output("last name must be entered!\n");
-            return;
-        }
-        if(!checkNameInOC(lName)){
-            this.output("Last name cannot have numbers or symbols!\n");
+        String nameError = InputValidator.checkNames(fName, lName);
+        if(nameError != null){
+            this.output(nameError);
             return;
         }
 
-        if(!isValidInteger(month.getText()) || !isValidInteger(day.getText()) || !isValidInteger(year.getText())){
+        if(!InputValidator.isValidInteger(month.getText()) || !InputValidator.isValidInteger(day.getText())
+                || !InputValidator.isValidInteger(year.getText())){
             this.output("Date must be entered and cannot have letters or symbols!\n");
             return;
         }
@@ -743,7 +777,7 @@ public class UIController {
         int dayDate;
         int yearDate;
 
-        if(isValidDate(date)){
+        if(InputValidator.isValidDate(date)){
             if(date.substring(1,2).contains("/")){
                 monthDate = Integer.parseInt(date.substring(0,1));
                 if(date.substring(3,4).contains("/")){
@@ -781,6 +815,10 @@ public class UIController {
             this.output("Amount must be entered and be a double!\n");
             return;
         }
+        if (!InputValidator.isValidBalance(amount)) {
+            this.output("Amount is out of range!\n");
+            return;
+        }
 
         //gui button conditon for checking, saving, and moneymarket
         if(checkingRadioOC.isSelected()){
@@ -938,19 +976,51 @@ public class UIController {
 
     }
 
+    /**
+     * Updates all the accounts for a new month, then shows them in the account table by last name
+     * @param event
+     */
     @FXML
     void PrintAccountByName(ActionEvent event) {
-        output(db.printByLastName());
+        printStatements(nameColumn);
     }
 
+    /**
+     * Shows all the accounts in the account table in the order they were added
+     * @param event
+     */
     @FXML
     void PrintAccounts(ActionEvent event) {
-        output(db.printAccounts());
+        if (db.getsize() == 0) {
+            this.output("Database is empty\n");
+            return;
+        }
+        accountTable.getSortOrder().clear();
+        this.output("Showing " + db.getsize() + " accounts\n");
     }
 
+    /**
+     * Updates all the accounts for a new month, then shows them in the account table by date opened
+     * @param event
+     */
     @FXML
     void PrintAccountsByDate(ActionEvent event) {
-        output(db.printByDateOpen());
+        printStatements(dateColumn);
+    }
+
+    /**
+     * Updates all the accounts for a new month and outputs a summary, then shows them in the account table sorted by a column<br>
+     * The summary has the total interest and fees applied, while the table shows the updated balances
+     * @param column	the column to sort the account table by
+     */
+    private void printStatements(TableColumn<Account, String> column) {
+        if (db.getsize() == 0) {
+            this.output("Database is empty\n");
+            return;
+        }
+        this.output(db.applyMonthEnd() + "\n");
+        column.setSortType(TableColumn.SortType.ASCENDING);
+        accountTable.getSortOrder().setAll(Collections.singletonList(column));
     }
     /**
      * Outputs a string on a new line
@@ -958,6 +1028,23 @@ public class UIController {
      */
     void output(String text) {
         Output.appendText(text);
+        refreshAccountTable();
+        checkpointIfNeeded();
+    }
+
+    /**
+     * Takes a checkpoint of the database files if enough changes were logged since the last one<br>
+     * Every action outputs a message, so this runs after each one
+     */
+    private void checkpointIfNeeded() {
+        if (files == null) {
+            return;
+        }
+        try {
+            files.checkpointIfNeeded();
+        } catch (IOException e) {
+            Output.appendText("Cannot save checkpoint: " + e.getMessage() + "\n");
+        }
     }
 
     /**
@@ -968,4 +1055,25 @@ public class UIController {
     void clear(ActionEvent event) {
         Output.setText("");
     }
+
+    /**
+     * Shows a piece of text about the account in a row of the account table
+     */
+    private abstract static class AccountCell
+            implements Callback<TableColumn.CellDataFeatures<Account, String>, ObservableValue<String>> {
+        @Override
+        public ObservableValue<String> call(TableColumn.CellDataFeatures<Account, String> row) {
+            if (row.getValue() == null) {
+                return new ReadOnlyStringWrapper("");
+            }
+            return new ReadOnlyStringWrapper(text(row.getValue()));
+        }
+
+        /**
+         * Gets the text to show for an account
+         * @param account	the account in the row
+         * @return			the text
+         */
+        abstract String text(Account account);
+    }
 }